@@ -67,8 +67,21 @@ CREATE TABLE "post_tags" (
 CREATE INDEX IF NOT EXISTS idx_users_username ON users (username);
 CREATE INDEX IF NOT EXISTS idx_posts_created_at_desc  ON posts (created_at DESC);
 CREATE INDEX IF NOT EXISTS idx_posts_author_id ON posts (author_id);
+-- Change polling: posts created, edited or deleted after a watermark
+CREATE INDEX IF NOT EXISTS idx_posts_updated_at ON posts (updated_at);
 CREATE INDEX IF NOT EXISTS idx_comments_post_id_created_at ON comments (post_id, created_at DESC);
 CREATE INDEX IF NOT EXISTS idx_post_tags_tag_id ON post_tags (tag_id);
+-- One live review per user and post (target of the review upsert).
+-- Older duplicates, if any, are soft-deleted first so the index can be built.
+UPDATE reviews r
+SET is_deleted = true, deleted_at = CURRENT_TIMESTAMP
+WHERE r.is_deleted = false
+  AND EXISTS (SELECT 1 FROM reviews o
+              WHERE o.post_id = r.post_id AND o.user_id = r.user_id
+                AND o.is_deleted = false AND o.id > r.id);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_reviews_post_id_user_id ON reviews (post_id, user_id) WHERE is_deleted = false;
+-- Rating summaries aggregate a post's live reviews from this index only
+CREATE INDEX IF NOT EXISTS idx_reviews_post_id_rate ON reviews (post_id, rate) WHERE is_deleted = false;
 
 -- Improves search ILIKE %keyword%
 CREATE EXTENSION IF NOT EXISTS pg_trgm;
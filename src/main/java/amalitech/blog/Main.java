@@ -1,38 +1,55 @@
 package amalitech.blog;
 
-import amalitech.blog.dao.DatabaseConnection;
+import amalitech.blog.controller.Navigator.View;
+import amalitech.blog.service.ChangeListener;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.sql.SQLException;
-
 public class Main extends Application {
   private static final Logger log = LoggerFactory.getLogger(Main.class);
 
   @Override
-  public void start(Stage stage) throws IOException, SQLException {
-    try {
-      DatabaseConnection.testConnection();
-    } catch (SQLException e) {
-      log.error("Database connection failed...");
+  public void start(Stage stage) {
+    ServiceContainer services = ServiceContainer.getInstance();
+    // Configuration, database, connection pool, first feed page and Argon2 initialize in the background
+    Startup startup = Startup.begin(services);
+    // The landing page is parsed meanwhile; it needs none of them
+    startup.track("landing view", services.navigator().preload(View.LANDING));
+
+    startup.database().whenComplete((ignored, error) -> {
+      if (error == null) {
+        // Keep local caches in sync with writes made by other instances
+        ChangeListener.start(services.tagService());
+        return;
+      }
+      log.error("Database connection failed...", error.getCause());
       log.info("Make sure to put the correct credential in the .env file");
-      throw e;
-    }
-    FXMLLoader fxmlLoader = new FXMLLoader(Main.class.getResource("view/landing.fxml"));
-    Scene scene = new Scene(fxmlLoader.load(), 1000, 700);
-    stage.setTitle("B-BLOG - Home");
+      Platform.runLater(() -> {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Database Error");
+        alert.setHeaderText("Could not connect to the database");
+        alert.setContentText("Make sure to put the correct credential in the .env file.");
+        alert.showAndWait();
+        Platform.exit();
+      });
+    });
+
+    startup.getTimeline().record("landing shown", () -> services.navigator().show(stage, View.LANDING));
     stage.setMinWidth(800);
     stage.setMinHeight(600);
-    stage.setScene(scene);
     stage.show();
+    // After the first frame is laid out
+    Platform.runLater(() -> {
+      startup.getTimeline().mark("interactive");
+      startup.completion().thenAccept(timeline -> timeline.log(log));
+    });
   }
 
   public static void main(String[] args) {
     launch();
   }
-}
\ No newline at end of file
+}
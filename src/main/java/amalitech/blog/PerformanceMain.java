@@ -1,9 +1,14 @@
 package amalitech.blog;
 
+import amalitech.blog.dao.DatabaseConnection;
+import amalitech.blog.service.CompactFeedStore;
+import amalitech.blog.service.FeedEntryCodec;
 import amalitech.blog.service.PostService;
 import amalitech.blog.service.UserService;
+import amalitech.blog.service.cache.CacheManager;
 import amalitech.blog.utils.PerformanceResult;
 import amalitech.blog.utils.PerformanceUtil;
+import amalitech.blog.utils.StartupTimeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,8 +16,11 @@ import org.slf4j.LoggerFactory;
 public class PerformanceMain {
   public static void main(String[] args) {
     final Logger log = LoggerFactory.getLogger(PerformanceMain.class);
-    PostService postService = new PostService();
-    UserService userService = new UserService();
+    ServiceContainer services = ServiceContainer.getInstance();
+    // Same initialization as the application, measured before anything else runs
+    StartupTimeline startup = Startup.begin(services).await();
+    PostService postService = services.postService();
+    UserService userService = services.userService();
     PerformanceResult feedBefore = PerformanceUtil.measure("Loading feed            ", postService::loadFeed, 3 );
     PerformanceResult postBefore = PerformanceUtil.measure("Post by author          ", () -> postService.getByAuthorId(1L), 3 );
     PerformanceResult statBefore = PerformanceUtil.measure("Loading user stats      ", () ->userService.getUserStats(1L), 3 );
@@ -28,7 +36,14 @@ public class PerformanceMain {
 
     log.info("{}", feedAfter);
     log.info("{}", postAfter);
-    log.info("{}", statAfter);
+    log.info("{}\n", statAfter);
+
+    startup.log(log);
+    log.info("Idle pooled connections: {}\n", DatabaseConnection.getIdleConnections());
+
+    CacheManager.stats().forEach(stats -> log.info("{}", stats));
+    CompactFeedStore.stats().forEach(stats -> log.info("{}", stats));
+    log.info("{}", FeedEntryCodec.getInstance().stats());
 
   }
 }
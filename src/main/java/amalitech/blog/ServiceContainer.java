@@ -0,0 +1,186 @@
+package amalitech.blog;
+
+import amalitech.blog.controller.Navigator;
+import amalitech.blog.dao.CommentDAO;
+import amalitech.blog.dao.PostDAO;
+import amalitech.blog.dao.PostTagsDAO;
+import amalitech.blog.dao.ReviewDAO;
+import amalitech.blog.dao.TagDAO;
+import amalitech.blog.dao.UserDAO;
+import amalitech.blog.service.CommentService;
+import amalitech.blog.service.PasswordHashService;
+import amalitech.blog.service.PostService;
+import amalitech.blog.service.PostTagsService;
+import amalitech.blog.service.ReviewService;
+import amalitech.blog.service.TagService;
+import amalitech.blog.service.UserService;
+import javafx.fxml.FXMLLoader;
+import javafx.util.Callback;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.util.function.Supplier;
+
+/**
+ * Wires the services and DAOs of the application once and shares them.
+ * <p>
+ * Every instance is created lazily on first use, at most once even when several threads ask
+ * for it, and receives its dependencies through its constructor. FXML controllers get the
+ * shared instances through {@link #controllerFactory()}: a controller with a constructor
+ * taking a {@code ServiceContainer} is built with it, any other with its no-arg constructor.
+ * </p>
+ * Load views with {@link #loader(URL)} so their controllers are built that way; controllers
+ * switch views through {@link #navigator()}.
+ */
+public final class ServiceContainer {
+
+  private static final ServiceContainer INSTANCE = new ServiceContainer();
+
+  private final Lazy<PostDAO> postDAO = new Lazy<>(PostDAO::new);
+  private final Lazy<UserDAO> userDAO = new Lazy<>(UserDAO::new);
+  private final Lazy<CommentDAO> commentDAO = new Lazy<>(CommentDAO::new);
+  private final Lazy<ReviewDAO> reviewDAO = new Lazy<>(ReviewDAO::new);
+  private final Lazy<TagDAO> tagDAO = new Lazy<>(TagDAO::new);
+  private final Lazy<PostTagsDAO> postTagsDAO = new Lazy<>(PostTagsDAO::new);
+
+  private final Lazy<PasswordHashService> passwordHashService = new Lazy<>(PasswordHashService::new);
+  private final Lazy<CommentService> commentService = new Lazy<>(() -> new CommentService(commentDAO()));
+  private final Lazy<ReviewService> reviewService = new Lazy<>(() -> new ReviewService(reviewDAO()));
+  private final Lazy<PostTagsService> postTagsService = new Lazy<>(() -> new PostTagsService(postTagsDAO()));
+  private final Lazy<TagService> tagService = new Lazy<>(() -> new TagService(tagDAO(), postTagsService()));
+  private final Lazy<UserService> userService = new Lazy<>(() -> new UserService(passwordHashService(), userDAO(),
+          postDAO(), commentDAO(), reviewService()));
+  private final Lazy<PostService> postService = new Lazy<>(() -> new PostService(postDAO(), tagService(),
+          postTagsService(), userService(), reviewService(), commentService()));
+  private final Lazy<Navigator> navigator = new Lazy<>(() -> new Navigator(this));
+
+  private final Callback<Class<?>, Object> controllerFactory = this::createController;
+
+  private ServiceContainer() { }
+
+  /**
+   * @return the container of the application
+   */
+  public static ServiceContainer getInstance() {
+    return INSTANCE;
+  }
+
+  public PostDAO postDAO() {
+    return this.postDAO.get();
+  }
+
+  public UserDAO userDAO() {
+    return this.userDAO.get();
+  }
+
+  public CommentDAO commentDAO() {
+    return this.commentDAO.get();
+  }
+
+  public ReviewDAO reviewDAO() {
+    return this.reviewDAO.get();
+  }
+
+  public TagDAO tagDAO() {
+    return this.tagDAO.get();
+  }
+
+  public PostTagsDAO postTagsDAO() {
+    return this.postTagsDAO.get();
+  }
+
+  public PasswordHashService passwordHashService() {
+    return this.passwordHashService.get();
+  }
+
+  public CommentService commentService() {
+    return this.commentService.get();
+  }
+
+  public ReviewService reviewService() {
+    return this.reviewService.get();
+  }
+
+  public PostTagsService postTagsService() {
+    return this.postTagsService.get();
+  }
+
+  public TagService tagService() {
+    return this.tagService.get();
+  }
+
+  public UserService userService() {
+    return this.userService.get();
+  }
+
+  public PostService postService() {
+    return this.postService.get();
+  }
+
+  /**
+   * @return the navigator switching the window between the views, keeping some of them loaded
+   */
+  public Navigator navigator() {
+    return this.navigator.get();
+  }
+
+  /**
+   * @return the controller factory handing the shared services to FXML controllers
+   */
+  public Callback<Class<?>, Object> controllerFactory() {
+    return this.controllerFactory;
+  }
+
+  /**
+   * @param view the FXML file
+   * @return a loader for the view using {@link #controllerFactory()}
+   */
+  public FXMLLoader loader(URL view) {
+    FXMLLoader loader = new FXMLLoader(view);
+    loader.setControllerFactory(this.controllerFactory);
+    return loader;
+  }
+
+  private Object createController(Class<?> type) {
+    try {
+      try {
+        Constructor<?> injecting = type.getConstructor(ServiceContainer.class);
+        return injecting.newInstance(this);
+      } catch (NoSuchMethodException e) {
+        return type.getConstructor().newInstance();
+      }
+    } catch (InvocationTargetException e) {
+      throw new RuntimeException("Failed to create controller " + type.getName(), e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new RuntimeException("Failed to create controller " + type.getName(), e);
+    }
+  }
+
+  /**
+   * Value created on first {@link #get()}. Dependencies have no cycles, so holding the lock while
+   * creating them cannot deadlock.
+   */
+  private static final class Lazy<T> {
+    private final Supplier<T> factory;
+    private volatile T value;
+
+    Lazy(Supplier<T> factory) {
+      this.factory = factory;
+    }
+
+    T get() {
+      T current = this.value;
+      if (current == null) {
+        synchronized (this) {
+          current = this.value;
+          if (current == null) {
+            current = this.factory.get();
+            this.value = current;
+          }
+        }
+      }
+      return current;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package amalitech.blog;
+
+import amalitech.blog.dao.DatabaseConnection;
+import amalitech.blog.service.PostService;
+import amalitech.blog.utils.StartupTimeline;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Initializes the application with its independent steps running concurrently, each recorded
+ * in a {@link StartupTimeline}.
+ * <p>
+ * Reading the configuration and connecting to the database, then prewarming the connection pool
+ * and the first feed page, run alongside loading the native Argon2 library; the caller adds its
+ * own steps (e.g. parsing the first view) with {@link #track(String, CompletableFuture)}. Only
+ * the database is required before the application is usable, see {@link #database()}; the rest
+ * makes the first login and the first feed fast.
+ * </p>
+ */
+public final class Startup {
+
+  private static final int PREWARMED_CONNECTIONS = 4;
+
+  private final StartupTimeline timeline = new StartupTimeline();
+  private final ExecutorService threads = Executors.newThreadPerTaskExecutor(
+          Thread.ofPlatform().daemon().name("startup-", 1).factory());
+  private final CompletableFuture<Void> database;
+  private final CompletableFuture<Void> completion;
+
+  private Startup(ServiceContainer services) {
+    // .env and the connection settings
+    CompletableFuture<Void> config = phase("config", DatabaseConnection::getMaxConnections);
+    this.database = config.thenCompose(ignored -> phase("database", DatabaseConnection::testConnection));
+    CompletableFuture<Void> pool = this.database.thenCompose(ignored ->
+            phase("connection pool", () -> DatabaseConnection.prewarm(PREWARMED_CONNECTIONS)));
+    CompletableFuture<Void> feed = this.database.thenCompose(ignored -> phase("first feed page",
+            () -> services.postService().loadFeed(1, PostService.FEED_PAGE_SIZE, null)));
+    // Loads the native library and starts the calibration
+    CompletableFuture<Void> argon2 = phase("argon2", services::passwordHashService);
+    this.completion = CompletableFuture.allOf(pool, feed, argon2);
+  }
+
+  /**
+   * Starts the initialization in the background.
+   */
+  public static Startup begin(ServiceContainer services) {
+    return new Startup(services);
+  }
+
+  /**
+   * @return the timeline, still growing until {@link #completion()} completed
+   */
+  public StartupTimeline getTimeline() {
+    return this.timeline;
+  }
+
+  /**
+   * Records a step started by the caller.
+   *
+   * @return {@code step}
+   */
+  public <T> CompletableFuture<T> track(String name, CompletableFuture<T> step) {
+    return this.timeline.track(name, step);
+  }
+
+  /**
+   * @return completes once the database answered, exceptionally with the {@link SQLException} if it did not
+   */
+  public CompletableFuture<Void> database() {
+    return this.database;
+  }
+
+  /**
+   * @return the timeline, once every step completed or failed
+   */
+  public CompletableFuture<StartupTimeline> completion() {
+    return this.completion.handle((ignored, error) -> this.timeline);
+  }
+
+  /**
+   * Waits for every step, e.g. before measuring anything else.
+   */
+  public StartupTimeline await() {
+    return completion().join();
+  }
+
+  private CompletableFuture<Void> phase(String name, Step step) {
+    return CompletableFuture.runAsync(() -> this.timeline.record(name, () -> {
+      try {
+        step.run();
+        return null;
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+    }), this.threads);
+  }
+
+  @FunctionalInterface
+  private interface Step {
+    void run() throws Exception;
+  }
+}
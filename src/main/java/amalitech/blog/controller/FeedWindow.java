@@ -0,0 +1,229 @@
+package amalitech.blog.controller;
+
+import amalitech.blog.dto.PostDTO;
+import amalitech.blog.service.PostService;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Consecutive feed pages shown by the home list, loaded as the user scrolls.
+ * <p>
+ * When a card close to the end of the window is shown, the next page is appended; close to the
+ * start, the previous page is prepended if it was dropped. A page earlier, the adjacent page is
+ * prefetched so it is usually cached by the time it is loaded. At most {@code maxPages} pages are
+ * held: going past that drops the page at the other end, so memory stays bounded however far
+ * the user scrolls. The visible card is kept in place when pages are added or dropped before it.
+ * </p>
+ * <p>
+ * Each held page is tracked by the number of cards it added, so removing a post, or skipping one
+ * a shifted page repeats, does not change which page is requested next or how many cards are
+ * dropped with a page.
+ * </p>
+ * All methods must be called from the JavaFX Application Thread.
+ */
+class FeedWindow {
+
+  private static final Logger log = LoggerFactory.getLogger(FeedWindow.class);
+
+  private final ObservableList<PostDTO> items = FXCollections.observableArrayList();
+  // Cards added by each held page, from firstPage on
+  private final List<Integer> pageCounts = new ArrayList<>();
+  private final ListView<PostDTO> listView;
+  private final PostService postService;
+  private final int pageSize;
+  private final int maxPages;
+
+  private int firstPage = 1;
+  private boolean lastPageLoaded;
+  private boolean loading;
+  private long generation; // Discards pages requested before a reset
+  private int prefetchedPage; // Not prefetched again while cards keep being shown
+
+  FeedWindow(ListView<PostDTO> listView, PostService postService, int pageSize, int maxPages) {
+    this.listView = listView;
+    this.postService = postService;
+    this.pageSize = pageSize;
+    this.maxPages = maxPages;
+  }
+
+  /**
+   * @return the posts of the window, to be shown by the list
+   */
+  ObservableList<PostDTO> getItems() {
+    return this.items;
+  }
+
+  /**
+   * Restarts the window from the first page of the feed.
+   */
+  void reset(List<PostDTO> firstPagePosts) {
+    this.generation++;
+    this.loading = false;
+    this.firstPage = 1;
+    this.prefetchedPage = 0;
+    this.lastPageLoaded = firstPagePosts.size() < this.pageSize;
+    this.pageCounts.clear();
+    this.pageCounts.add(firstPagePosts.size());
+    this.items.setAll(firstPagePosts);
+  }
+
+  /**
+   * Swaps the first page of the feed for a fresher copy, keeping the pages loaded after it minus
+   * the posts the fresh copy now holds. Ignored once the first page has been dropped from the window.
+   */
+  void replaceFirstPage(List<PostDTO> firstPagePosts) {
+    if (this.firstPage != 1)
+      return;
+    if (this.pageCounts.size() <= 1) {
+      reset(firstPagePosts);
+      return;
+    }
+    this.items.remove(0, this.pageCounts.get(0));
+    this.pageCounts.set(0, 0);
+    // Posts created since pushed these from the first page into the next ones
+    firstPagePosts.forEach(post -> remove(post.getPost().getId()));
+    this.items.addAll(0, firstPagePosts);
+    this.pageCounts.set(0, firstPagePosts.size());
+  }
+
+  /**
+   * Replaces the post with the same ID by a newer version of it.
+   *
+   * @return whether the post is in the window
+   */
+  boolean replace(PostDTO updated) {
+    int index = indexOf(updated.getPost().getId());
+    if (index < 0)
+      return false;
+    this.items.set(index, updated);
+    return true;
+  }
+
+  /**
+   * Removes a post, e.g. one that was deleted.
+   */
+  void remove(long postId) {
+    int index = indexOf(postId);
+    if (index < 0)
+      return;
+    this.items.remove(index);
+    for (int page = 0; page < this.pageCounts.size(); page++) {
+      int count = this.pageCounts.get(page);
+      if (index < count) {
+        this.pageCounts.set(page, count - 1);
+        return;
+      }
+      index -= count;
+    }
+  }
+
+  /**
+   * Called with the index of every card shown; prefetches the adjacent page when the card is
+   * within a page of either end of the window, loads it when within half a page.
+   */
+  void onShown(int index) {
+    if (this.loading || this.listView.getItems() != this.items)
+      return;
+    int margin = this.pageSize / 2;
+    if (index >= this.items.size() - margin && !this.lastPageLoaded)
+      loadNext();
+    else if (index < margin && this.firstPage > 1)
+      loadPrevious();
+    else if (index >= this.items.size() - this.pageSize && !this.lastPageLoaded)
+      prefetch(this.firstPage + pagesHeld());
+    else if (index < this.pageSize && this.firstPage > 1)
+      prefetch(this.firstPage - 1);
+  }
+
+  private void prefetch(int page) {
+    if (page == this.prefetchedPage)
+      return;
+    this.prefetchedPage = page;
+    this.postService.prefetchFeed(page, this.pageSize);
+  }
+
+  private void loadNext() {
+    int page = this.firstPage + pagesHeld();
+    load(page, posts -> {
+      this.lastPageLoaded = posts.size() < this.pageSize;
+      List<PostDTO> added = notShown(posts);
+      this.items.addAll(added);
+      this.pageCounts.add(added.size());
+      if (pagesHeld() > this.maxPages) {
+        int first = firstVisibleIndex();
+        int dropped = this.pageCounts.remove(0);
+        this.items.remove(0, dropped);
+        this.firstPage++;
+        this.listView.scrollTo(Math.max(first - dropped, 0));
+      }
+    });
+  }
+
+  private void loadPrevious() {
+    load(this.firstPage - 1, posts -> {
+      int first = firstVisibleIndex();
+      List<PostDTO> added = notShown(posts);
+      this.items.addAll(0, added);
+      this.pageCounts.add(0, added.size());
+      this.firstPage--;
+      this.listView.scrollTo(first + added.size());
+      if (pagesHeld() > this.maxPages) {
+        int dropped = this.pageCounts.remove(this.pageCounts.size() - 1);
+        this.items.remove(this.items.size() - dropped, this.items.size());
+        this.lastPageLoaded = false;
+      }
+    });
+  }
+
+  private void load(int page, Consumer<List<PostDTO>> onLoaded) {
+    long requested = this.generation;
+    this.loading = true;
+    FxAsync.deliver(this.postService.loadFeedAsync(page, this.pageSize, null), posts -> {
+      if (requested != this.generation)
+        return;
+      this.loading = false;
+      onLoaded.accept(posts);
+    }, error -> {
+      if (requested != this.generation)
+        return;
+      // Retried the next time a card near the end is shown
+      this.loading = false;
+      log.warn("Could not load feed page {}", page, error);
+    });
+  }
+
+  private int indexOf(long postId) {
+    for (int i = 0; i < this.items.size(); i++) {
+      if (this.items.get(i).getPost().getId() == postId)
+        return i;
+    }
+    return -1;
+  }
+
+  // Posts created or deleted since an adjacent page was read shift the pages: skip what is shown already
+  private List<PostDTO> notShown(List<PostDTO> posts) {
+    return posts.stream().filter(post -> indexOf(post.getPost().getId()) < 0).toList();
+  }
+
+  private int pagesHeld() {
+    return this.pageCounts.size();
+  }
+
+  private int firstVisibleIndex() {
+    if (this.listView.lookup(".virtual-flow") instanceof VirtualFlow<?> flow) {
+      IndexedCell<?> cell = flow.getFirstVisibleCell();
+      if (cell != null)
+        return cell.getIndex();
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,71 @@
+package amalitech.blog.controller;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Hands the result of an asynchronous service call back to the JavaFX Application Thread.
+ * <p>
+ * Controllers start the call, show their loading state, and get either the value or the error
+ * on the FX thread. Errors are unwrapped from {@link CompletionException}. Cancelled calls
+ * (e.g. superseded ones) call neither callback.
+ * </p>
+ */
+public final class FxAsync {
+
+  private static final Logger log = LoggerFactory.getLogger(FxAsync.class);
+
+  private FxAsync() { }
+
+  /**
+   * @param future    the call
+   * @param onSuccess receives the value on the FX thread
+   * @param onError   receives the error on the FX thread
+   */
+  public static <T> void deliver(CompletableFuture<T> future, Consumer<? super T> onSuccess,
+                                 Consumer<? super Throwable> onError) {
+    future.whenComplete((value, error) -> Platform.runLater(() -> {
+      Throwable cause = unwrap(error);
+      if (cause instanceof CancellationException)
+        return;
+      try {
+        if (cause != null)
+          onError.accept(cause);
+        else
+          onSuccess.accept(value);
+      } catch (RuntimeException e) {
+        log.error("Could not apply the result of a background call", e);
+      }
+    }));
+  }
+
+  /**
+   * Same as {@link #deliver(CompletableFuture, Consumer, Consumer)}, disabling {@code busy}
+   * (typically the button that started the call) until the call completes.
+   */
+  public static <T> void deliver(CompletableFuture<T> future, Node busy, Consumer<? super T> onSuccess,
+                                 Consumer<? super Throwable> onError) {
+    busy.setDisable(true);
+    deliver(future, value -> {
+      busy.setDisable(false);
+      onSuccess.accept(value);
+    }, error -> {
+      busy.setDisable(false);
+      onError.accept(error);
+    });
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null)
+      error = error.getCause();
+    return error;
+  }
+}
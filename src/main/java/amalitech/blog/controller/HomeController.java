@@ -1,36 +1,50 @@
 package amalitech.blog.controller;
 
 import amalitech.blog.ApplicationContext;
+import amalitech.blog.ServiceContainer;
+import amalitech.blog.controller.Navigator.View;
 import amalitech.blog.controller.posts.PostDetailController;
+import amalitech.blog.dao.enums.TagMatch;
 import amalitech.blog.dto.PostDTO;
-import amalitech.blog.model.Tag;
+import amalitech.blog.dto.TagUsageDTO;
+import amalitech.blog.service.FeedChanges;
 import amalitech.blog.service.PostService;
+import amalitech.blog.service.TagFilter;
 import amalitech.blog.service.TagService;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
-import javafx.scene.input.MouseEvent;
-import javafx.scene.layout.HBox;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.KeyCode;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
-import javafx.stage.Stage;
 import javafx.scene.Node;
 import javafx.event.ActionEvent;
 import javafx.collections.FXCollections;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class HomeController {
+public class HomeController implements Navigator.Revisitable {
 
   @FXML
   private TextField searchField;
@@ -39,15 +53,43 @@ public class HomeController {
   private ComboBox<String> sortComboBox;
 
   @FXML
-  private VBox postsContainer;
+  private ListView<PostDTO> postsList;
 
   @FXML
   private VBox tagsButtonsContainer;
 
-  private final PostService postService = new PostService();
-  private final TagService tagService = new TagService();
-  private List<PostDTO> allPosts; // Cache all posts
-  private String currentFilter = "All";
+  @FXML
+  private Button newPostsButton;
+
+  private static final int SEARCH_RESULTS_LIMIT = 50;
+  private static final int TAG_FEED_LIMIT = 20;
+  private static final int FEED_PAGE_SIZE = PostService.FEED_PAGE_SIZE;
+  private static final int FEED_MAX_PAGES = 10; // Posts held while scrolling the feed: 200
+  private static final Duration CHANGE_POLL_INTERVAL = Duration.seconds(30);
+
+  private final Logger log = LoggerFactory.getLogger(HomeController.class);
+  private final PostService postService;
+  private final TagService tagService;
+  private final ServiceContainer services;
+  private final Label placeholder = new Label();
+  private FeedWindow feedWindow; // Feed pages loaded while scrolling
+  private final Map<Long, PostDTO> newPosts = new LinkedHashMap<>(); // Created since the feed was loaded
+  private FeedChanges feedChanges; // Cursor of the change polling
+  private boolean pollingChanges;
+  private List<PostDTO> tagFilteredPosts = List.of(); // Posts matching the selected tags
+  private final Set<Long> selectedTagIds = new LinkedHashSet<>(); // Empty means "All"
+  private long tagFilterGeneration; // Discards results of outdated tag selections
+  private ToggleButton matchAllToggle;
+  // Tag selection as seen by the search thread
+  private volatile List<Long> searchTagIds = List.of();
+  private volatile TagMatch searchTagMatch = TagMatch.ALL;
+  private SearchPipeline<List<PostDTO>> searchPipeline;
+
+  public HomeController(ServiceContainer services) {
+    this.services = services;
+    this.postService = services.postService();
+    this.tagService = services.tagService();
+  }
 
   @FXML
   public void initialize() {
@@ -57,12 +99,40 @@ public class HomeController {
     ));
     sortComboBox.getSelectionModel().selectFirst();
 
+    // Only the visible cards exist, recycled as the list scrolls; reaching the end loads the next page
+    placeholder.getStyleClass().add("feed-message");
+    postsList.setPlaceholder(placeholder);
+    feedWindow = new FeedWindow(postsList, postService, FEED_PAGE_SIZE, FEED_MAX_PAGES);
+    // A hovered or focused card is likely to be opened next: its details are prefetched
+    postsList.setCellFactory(list -> new PostCardCell(this::openPost, feedWindow::onShown, post -> {
+      if (post == null)
+        postService.cancelDetailPrefetch();
+      else
+        postService.prefetchDetail(post.getPost().getId());
+    }));
+    postsList.setOnKeyPressed(event -> {
+      PostDTO selected = postsList.getSelectionModel().getSelectedItem();
+      if (event.getCode() == KeyCode.ENTER && selected != null)
+        openPost(selected, postsList);
+    });
+
     // Load dynamic tags
     loadDynamicTags();
 
-    // Load posts from database
+    // Show the last feed right away, then refresh it from the database in the background
     loadAndDisplayPosts();
 
+    // Then keep it fresh with the posts changed since
+    startChangePolling();
+
+    // Search goes to the server, debounced and off the FX thread, within the selected tags; cached
+    // results are dropped once a post is written here or elsewhere
+    searchPipeline = new SearchPipeline<>(Duration.millis(250), 32,
+            query -> postService.search(query, searchTagIds, searchTagMatch, 1, SEARCH_RESULTS_LIMIT),
+            this::displayPosts,
+            error -> displayPosts(List.of()),
+            PostService::getFeedVersion);
+
     // Add listener for search
     searchField.textProperty().addListener((observable, oldValue, newValue) -> handleSearch(newValue));
 
@@ -76,286 +146,278 @@ public class HomeController {
     tagsButtonsContainer.getChildren().clear();
 
     // Add "All" button first
-    Button allButton = createTagButton("All", true);
+    Button allButton = createTagButton("All", null);
     tagsButtonsContainer.getChildren().add(allButton);
 
-    // Load top tags from database
-    List<Tag> topTags = tagService.getTop(10); // Load top 10 tags
-
-    // Create button for each tag
-    for (Tag tag : topTags) {
-      Button tagButton = createTagButton(tag.getName(), false);
-      tagsButtonsContainer.getChildren().add(tagButton);
-    }
+    // AND / OR switch used when several tags are selected
+    matchAllToggle = new ToggleButton("Match all selected tags");
+    matchAllToggle.setSelected(true);
+    matchAllToggle.setMaxWidth(Double.MAX_VALUE);
+    matchAllToggle.setFont(Font.font("System", 12));
+    matchAllToggle.setTooltip(new Tooltip("On: posts having every selected tag. Off: posts having any of them."));
+    matchAllToggle.selectedProperty().addListener((observable, oldValue, newValue) -> {
+      matchAllToggle.setText(newValue ? "Match all selected tags" : "Match any selected tag");
+      if (selectedTagIds.size() > 1)
+        applyTagFilter();
+    });
+    tagsButtonsContainer.getChildren().add(matchAllToggle);
+
+    // Load top tags (names and counts come from the in-memory popularity index, built on first use)
+    FxAsync.deliver(tagService.getTopUsageAsync(10), topTags -> { // Load top 10 tags
+      // Create button for each tag
+      for (TagUsageDTO tag : topTags) {
+        Button tagButton = createTagButton(tag.getName(), tag.getId());
+        tagButton.setText(tag.getName() + " (" + tag.getPostCount() + ")");
+        tagsButtonsContainer.getChildren().add(tagButton);
+      }
+      updateActiveButtons();
+    }, error -> log.warn("Could not load top tags", error));
   }
 
-  private Button createTagButton(String tagName, boolean isActive) {
+  private Button createTagButton(String tagName, Long tagId) {
     Button button = new Button(tagName);
     button.setMaxWidth(Double.MAX_VALUE);
-    button.setFont(Font.font("System", 14));
+    button.setUserData(tagId); // null for "All"
+    button.getStyleClass().setAll("tag-button");
+    if (tagId == null)
+      button.getStyleClass().add("active");
 
-    // Set initial style
-    if (isActive) {
-      button.setStyle("-fx-background-color: #667eea; -fx-text-fill: white; -fx-background-radius: 8; -fx-padding: 10; -fx-cursor: hand;");
+    if (tagId == null) {
+      button.setOnAction(event -> selectTag(null, false));
     } else {
-      button.setStyle("-fx-background-color: transparent; -fx-text-fill: #6c757d; -fx-cursor: hand; -fx-padding: 10;");
+      // Plain click selects only this tag, Ctrl/Cmd-click adds or removes it from the selection
+      button.setTooltip(new Tooltip("Ctrl/Cmd-click to combine tags"));
+      button.setOnMouseClicked(event -> selectTag(tagId, event.isShortcutDown()));
     }
 
-    // Add click handler
-    button.setOnAction(event -> {
-      currentFilter = tagName;
-      filterPosts(tagName);
-      updateActiveButton(button);
-    });
-
     return button;
   }
 
+  private void selectTag(Long tagId, boolean combine) {
+    if (tagId == null) {
+      selectedTagIds.clear();
+    } else if (combine) {
+      if (!selectedTagIds.remove(tagId))
+        selectedTagIds.add(tagId);
+    } else {
+      selectedTagIds.clear();
+      selectedTagIds.add(tagId);
+    }
+    updateActiveButtons();
+    applyTagFilter();
+  }
+
   private void loadAndDisplayPosts() {
-    allPosts = loadFeed();
-    displayPosts(allPosts);
+    // Last feed page shown, from a local file: painting it does not wait for the database
+    feedWindow.reset(postService.loadPersistedFeed());
+    if (feedWindow.getItems().isEmpty())
+      displayLoading();
+    else
+      displayPosts(feedWindow.getItems());
+
+    AtomicBoolean revalidated = new AtomicBoolean();
+    // First page of the precomputed feed snapshot. A stale page is shown now and swapped for
+    // the revalidated one when it arrives
+    CompletableFuture<List<PostDTO>> feed = postService.loadFeedAsync(1, FEED_PAGE_SIZE, refreshed -> {
+              revalidated.set(true);
+              postService.persistFeed(refreshed);
+              Platform.runLater(() -> showFeed(refreshed));
+            })
+            .thenApply(posts -> {
+              if (!revalidated.get())
+                postService.persistFeed(posts);
+              return posts;
+            });
+    FxAsync.deliver(feed, posts -> {
+      // The revalidated page may have made it first
+      if (!revalidated.get())
+        showFeed(posts);
+    }, error -> {
+      log.warn("Could not load the feed", error);
+      if (feedWindow.getItems().isEmpty())
+        displayMessage("Could not load posts. Check your connection and reopen the feed.");
+    });
   }
 
-  private void displayPosts(List<PostDTO> posts) {
-    // Clear existing posts
-    postsContainer.getChildren().clear();
-
-    // If no posts, show message
-    if (posts == null || posts.isEmpty()) {
-      Label noPostsLabel = new Label("No posts found. Be the first to create one!");
-      noPostsLabel.setStyle("-fx-text-fill: #6c757d; -fx-font-size: 16px; -fx-padding: 40;");
-      postsContainer.getChildren().add(noPostsLabel);
+  private void startChangePolling() {
+    // The first poll only reads the watermark
+    pollFeedChanges();
+    Timeline polling = new Timeline(new KeyFrame(CHANGE_POLL_INTERVAL, event -> pollFeedChanges()));
+    polling.setCycleCount(Animation.INDEFINITE);
+    // Only while the home screen is shown
+    postsList.sceneProperty().flatMap(Scene::windowProperty).subscribe(window -> {
+      if (window == null)
+        polling.stop();
+      else
+        polling.play();
+    });
+  }
+
+  private void pollFeedChanges() {
+    if (pollingChanges)
       return;
-    }
+    pollingChanges = true;
+    FxAsync.deliver(postService.pollFeedChangesAsync(feedChanges), changes -> {
+      pollingChanges = false;
+      feedChanges = changes;
+      mergeFeedChanges(changes);
+    }, error -> {
+      pollingChanges = false;
+      log.warn("Could not check the feed for changes", error);
+    });
+  }
 
-    // Create post cards dynamically
-    for (PostDTO postDTO : posts) {
-      VBox postCard = createPostCard(postDTO);
-      postsContainer.getChildren().add(postCard);
-    }
+  private void mergeFeedChanges(FeedChanges changes) {
+    // Shown posts are updated in place, new ones wait for the user to ask for them
+    changes.deletedIds().forEach(postId -> {
+      feedWindow.remove(postId);
+      newPosts.remove(postId);
+    });
+    changes.updated().forEach(feedWindow::replace);
+    changes.created().forEach(post -> {
+      if (!feedWindow.replace(post))
+        newPosts.put(post.getPost().getId(), post);
+    });
+
+    int count = newPosts.size();
+    newPostsButton.setText("↑ " + count + " new post" + (count > 1 ? "s" : ""));
+    newPostsButton.setVisible(count > 0);
+    newPostsButton.setManaged(count > 0);
   }
 
-  private VBox createPostCard(PostDTO postDTO) {
-    // Main card container
-    VBox card = new VBox(12);
-    card.setStyle("-fx-background-color: white; -fx-background-radius: 12; -fx-padding: 20; " +
-            "-fx-cursor: hand; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.08), 10, 0, 0, 2);");
-    card.setUserData(postDTO);
-    card.setOnMouseClicked(event -> {
-      try {
-        handlePostClick(event);
-      } catch (IOException e) {
-        throw new RuntimeException(e);
-      }
+  @FXML
+  private void handleShowNewPosts() {
+    newPosts.clear();
+    newPostsButton.setVisible(false);
+    newPostsButton.setManaged(false);
+    // The polling merged them into the feed snapshot: the first page is read from memory
+    FxAsync.deliver(postService.loadFeedAsync(1, FEED_PAGE_SIZE, null), posts -> {
+      feedWindow.reset(posts);
+      searchField.clear();
+      sortComboBox.getSelectionModel().select("Latest");
+      selectTag(null, false);
+      postsList.scrollTo(0);
+    }, error -> {
+      log.warn("Could not load the new posts", error);
+      displayMessage("Could not load posts. Check your connection and reopen the feed.");
     });
-    // Post Header (Author info)
-    HBox header = new HBox(12);
-    header.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
-
-    Label avatar = new Label("👤");
-    avatar.setStyle("-fx-font-size: 24;");
-
-    VBox authorInfo = new VBox(2);
-
-    // Get author name (firstName + lastName or username)
-    String authorName = getAuthorName(postDTO);
-    Label authorNameLabel = new Label(authorName);
-    authorNameLabel.setStyle("-fx-text-fill: #2c3e50;");
-    authorNameLabel.setFont(Font.font("System Bold", 14));
-
-    // Get time ago and first tag
-    String timeAgo = formatTimeAgo(postDTO.getPost().getCreatedAt());
-    String tags = getAllTags(postDTO);
-    Label postMeta = new Label(timeAgo + (tags != null ? " · " + tags : ""));
-    postMeta.setStyle("-fx-text-fill: #6c757d;");
-    postMeta.setFont(Font.font("System", 12));
-
-    authorInfo.getChildren().addAll(authorNameLabel, postMeta);
-    header.getChildren().addAll(avatar, authorInfo);
-
-    // Post Title
-    Label title = new Label(postDTO.getPost().getTitle());
-    title.setStyle("-fx-text-fill: #2c3e50;");
-    title.setFont(Font.font("System Bold", 18));
-    title.setWrapText(true);
-
-    // Post Excerpt (first 150 characters of body)
-    String excerpt = postDTO.getPost().getBody();
-    if (excerpt != null && excerpt.length() > 150) {
-      excerpt = excerpt.substring(0, 150) + "...";
-    }
-    Label body = new Label(excerpt);
-    body.setStyle("-fx-text-fill: #6c757d;");
-    body.setFont(Font.font("System", 14));
-    body.setWrapText(true);
-
-    // Post Footer (stats)
-    HBox footer = new HBox(20);
-    footer.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
-
-    // Likes count (from reviews)
-    int reviewsCount = postDTO.getReviews() != null ? postDTO.getReviews().size() : 0;
-    Label likes = new Label(reviewsCount + " reviews");
-    likes.setStyle("-fx-text-fill: #6c757d;");
-    likes.setFont(Font.font("System", 13));
-
-    // Comments count
-    int commentsCount = postDTO.getComments() != null ? postDTO.getComments().size() : 0;
-    Label comments = new Label(commentsCount + " comments");
-    comments.setStyle("-fx-text-fill: #6c757d;");
-    comments.setFont(Font.font("System", 13));
-
-    // Read time estimation (rough: 200 words per minute)
-    int readTime = calculateReadTime(postDTO.getPost().getBody());
-    Label readTimeLabel = new Label("📖 " + readTime + " min read");
-    readTimeLabel.setStyle("-fx-text-fill: #6c757d;");
-    readTimeLabel.setFont(Font.font("System", 13));
-
-    footer.getChildren().addAll(likes, comments, readTimeLabel);
-
-    // Add all components to card
-    card.getChildren().addAll(header, title, body, footer);
-
-    return card;
   }
 
-  private String getAuthorName(PostDTO postDTO) {
-    if (postDTO.getAuthorName() != null) {
-      String name = postDTO.getAuthorName();
-      if (name != null && !name.isEmpty())
-        return name;
-    }
-    return "Anonymous";
+  private void showFeed(List<PostDTO> posts) {
+    // Pages loaded by scrolling stay
+    feedWindow.replaceFirstPage(posts);
+    // Do not replace results the user asked for meanwhile
+    if (selectedTagIds.isEmpty() && (searchField.getText() == null || searchField.getText().isBlank()))
+      handleSort(sortComboBox.getValue());
   }
 
-  private String getAllTags(PostDTO postDTO) {
-    if (postDTO.getTags() != null && !postDTO.getTags().isEmpty()) {
-      StringBuilder tags = new StringBuilder();
-      postDTO.getTags().forEach(t -> tags.append(t.getName()).append(" "));
-      return tags.toString().trim();
-    }
-    return null;
+  private void displayLoading() {
+    displayMessage("Loading posts...");
   }
 
-  private String formatTimeAgo(LocalDateTime createdAt) {
-    if (createdAt == null) return "Recently";
-
-    LocalDateTime now = LocalDateTime.now();
-    long minutes = ChronoUnit.MINUTES.between(createdAt, now);
-    long hours = ChronoUnit.HOURS.between(createdAt, now);
-    long days = ChronoUnit.DAYS.between(createdAt, now);
-    long weeks = ChronoUnit.WEEKS.between(createdAt, now);
-    long months = ChronoUnit.MONTHS.between(createdAt, now);
-
-    if (minutes < 1) return "Just now";
-    if (minutes < 60) return minutes + " minute" + (minutes > 1 ? "s" : "") + " ago";
-    if (hours < 24) return hours + " hour" + (hours > 1 ? "s" : "") + " ago";
-    if (days < 7) return days + " day" + (days > 1 ? "s" : "") + " ago";
-    if (weeks < 4) return weeks + " week" + (weeks > 1 ? "s" : "") + " ago";
-    if (months < 12) return months + " month" + (months > 1 ? "s" : "") + " ago";
-
-    long years = ChronoUnit.YEARS.between(createdAt, now);
-    return years + " year" + (years > 1 ? "s" : "") + " ago";
+  private void displayMessage(String message) {
+    placeholder.setText(message);
+    postsList.setItems(FXCollections.observableArrayList());
   }
 
-  private int calculateReadTime(String body) {
-    if (body == null || body.isEmpty()) return 1;
-    int wordCount = body.split("\\s+").length;
-    int minutes = wordCount / 200; // Average reading speed
-    return Math.max(minutes, 1);
+  private void displayPosts(List<PostDTO> posts) {
+    placeholder.setText("No posts found. Be the first to create one!");
+    // The feed window keeps loading pages while shown; any other list is shown as is
+    if (posts == feedWindow.getItems()) {
+      if (postsList.getItems() != posts)
+        postsList.setItems(feedWindow.getItems());
+    } else {
+      postsList.setItems(FXCollections.observableArrayList(posts == null ? List.of() : posts));
+    }
   }
 
   @FXML
-  private void handleCreatePost(ActionEvent event) throws IOException {
-    FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/posts/create-post.fxml"));
-    Scene scene = new Scene(fxmlLoader.load(), 900, 700);
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Create Post");
+  private void handleCreatePost(ActionEvent event) {
+    this.services.navigator().show((Node) event.getSource(), View.CREATE_POST);
   }
 
   @FXML
-  private void handleProfile(ActionEvent event) throws IOException {
-    FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/profile.fxml"));
-    Scene scene = new Scene(fxmlLoader.load(), 1000, 700);
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Profile");
+  private void handleProfile(ActionEvent event) {
+    this.services.navigator().show((Node) event.getSource(), View.PROFILE);
   }
 
   @FXML
-  private void handleLogout(ActionEvent event) throws IOException {
+  private void handleLogout(ActionEvent event) {
     ApplicationContext.setAuthenticatedUser(null);
-    FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/landing.fxml"));
-    Scene scene = new Scene(fxmlLoader.load(), 1000, 700);
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Home");
+    // The feed of this session is not kept for the next user
+    this.services.navigator().clear();
+    this.services.navigator().show((Node) event.getSource(), View.LANDING);
   }
 
-  @FXML
-  private void handlePostClick(MouseEvent event) throws IOException {
-    VBox clickedPost = (VBox) event.getSource();
-    PostDTO post = (PostDTO) clickedPost.getUserData();
-
-    // Load post detail screen
-    FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/posts/post-details.fxml"));
-    Scene scene = new Scene(fxmlLoader.load(), 900, 700);
+  @Override
+  public void onRevisit() {
+    // Shown again as it was left; only posts created, edited or deleted meanwhile are read
+    pollFeedChanges();
+  }
 
-    // Pass post ID to detail controller
-    PostDetailController controller = fxmlLoader.getController();
+  private void openPost(PostDTO post, Node source) {
+    // Pass the post to the detail controller, usually parsed ahead while the feed was shown
+    PostDetailController controller = this.services.navigator().show(source, View.POST_DETAILS);
     controller.setPost(post);
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Post Details");
   }
 
-  private void filterPosts(String tagName) {
-    if ("All".equals(tagName)) {
-      displayPosts(allPosts);
+  private void applyTagFilter() {
+    long generation = ++tagFilterGeneration;
+    searchTagIds = List.copyOf(selectedTagIds);
+    searchTagMatch = matchAllToggle.isSelected() ? TagMatch.ALL : TagMatch.ANY;
+    searchPipeline.clearCache();
+    if (searchField.getText() != null && !searchField.getText().isBlank()) {
+      // Results for the current keyword must be narrowed (or widened) to the new selection
+      searchPipeline.submit(searchField.getText());
+    }
+
+    if (selectedTagIds.isEmpty()) {
+      tagFilteredPosts = List.of();
+      handleSort(sortComboBox.getValue());
       return;
     }
 
-    // Filter posts by tag
-    List<PostDTO> filtered = allPosts.stream()
-            .filter(postDTO -> {
-              if (postDTO.getTags() != null) {
-                return postDTO.getTags().stream()
-                        .anyMatch(tag -> tag.getName().equalsIgnoreCase(tagName));
-              }
-              return false;
-            })
-            .toList();
+    // Matching posts come from the tag bitmap index, so they are not limited to the loaded feed page
+    TagFilter filter = matchAllToggle.isSelected()
+            ? TagFilter.allOf(selectedTagIds)
+            : TagFilter.anyOf(selectedTagIds);
+    if (searchField.getText() == null || searchField.getText().isBlank())
+      displayLoading();
+    FxAsync.deliver(postService.loadFeedAsync(filter, 1, TAG_FEED_LIMIT),
+            posts -> showTagFilteredPosts(generation, posts),
+            error -> {
+              log.warn("Could not load the posts of the selected tags", error);
+              showTagFilteredPosts(generation, List.of());
+            });
+  }
 
-    displayPosts(filtered);
+  private void showTagFilteredPosts(long generation, List<PostDTO> posts) {
+    if (generation != tagFilterGeneration)
+      return;
+    tagFilteredPosts = posts;
+    if (searchField.getText() == null || searchField.getText().isBlank())
+      handleSort(sortComboBox.getValue());
   }
 
   private void handleSearch(String query) {
     if (query == null || query.trim().isEmpty()) {
-      // If search is empty, apply current filter
-      filterPosts(currentFilter);
+      // If search is empty, show the current tag selection again
+      searchPipeline.cancel();
+      handleSort(sortComboBox.getValue());
       return;
     }
 
-    String searchLower = query.toLowerCase();
-
-    // Search in title and body
-    List<PostDTO> searchResults = allPosts.stream()
-            .filter(postDTO -> {
-              String title = postDTO.getPost().getTitle().toLowerCase();
-              String body = postDTO.getPost().getBody().toLowerCase();
-              return title.contains(searchLower) || body.contains(searchLower);
-            })
-            .toList();
-
-    displayPosts(searchResults);
+    // Search title and body on the server
+    searchPipeline.submit(query);
   }
 
   private void handleSort(String sortOption) {
+    // The feed comes latest first: shown as the scrolling window. Other orders sort the posts loaded so far
+    if ("Latest".equals(sortOption) && selectedTagIds.isEmpty()) {
+      displayPosts(feedWindow.getItems());
+      return;
+    }
+
     // Get the currently filtered posts
     List<PostDTO> postsToSort = getFilteredPosts();
 
@@ -379,9 +441,7 @@ public class HomeController {
         break;
       case "Most Commented":
         sortedPosts.sort((a, b) -> {
-          int commentsA = a.getComments() != null ? a.getComments().size() : 0;
-          int commentsB = b.getComments() != null ? b.getComments().size() : 0;
-          return Integer.compare(commentsB, commentsA);
+          return Integer.compare(b.getCommentCount(), a.getCommentCount());
         });
         break;
       default:
@@ -391,41 +451,26 @@ public class HomeController {
   }
 
   private List<PostDTO> getFilteredPosts() {
-    if ("All".equals(currentFilter)) {
-      return new ArrayList<>(allPosts);
+    if (selectedTagIds.isEmpty()) {
+      return new ArrayList<>(feedWindow.getItems());
     }
-
-    // Filter posts by current tag
-    return allPosts.stream()
-            .filter(postDTO -> {
-              if (postDTO.getTags() != null) {
-                return postDTO.getTags().stream()
-                        .anyMatch(tag -> tag.getName().equalsIgnoreCase(currentFilter));
-              }
-              return false;
-            })
-            .collect(Collectors.toList());
+    return new ArrayList<>(tagFilteredPosts);
   }
 
   private int getPopularityScore(PostDTO postDTO) {
-    int reviews = postDTO.getReviews() != null ? postDTO.getReviews().size() : 0;
-    int comments = postDTO.getComments() != null ? postDTO.getComments().size() : 0;
-    return reviews + comments;
+    return postDTO.getReviewCount() + postDTO.getCommentCount();
   }
 
-  private void updateActiveButton(Node clickedButton) {
-    // Reset all tag buttons to default style
+  private void updateActiveButtons() {
+    // Highlight the selected tags, or "All" when nothing is selected
     for (Node node : tagsButtonsContainer.getChildren()) {
       if (node instanceof Button) {
-        node.setStyle("-fx-background-color: transparent; -fx-text-fill: #6c757d; -fx-cursor: hand; -fx-padding: 10;");
+        Long tagId = (Long) node.getUserData();
+        boolean active = tagId == null ? selectedTagIds.isEmpty() : selectedTagIds.contains(tagId);
+        node.getStyleClass().remove("active");
+        if (active)
+          node.getStyleClass().add("active");
       }
     }
-
-    // Set clicked button as active
-    clickedButton.setStyle("-fx-background-color: #667eea; -fx-text-fill: white; -fx-background-radius: 8; -fx-padding: 10; -fx-cursor: hand;");
-  }
-
-  private List<PostDTO> loadFeed() {
-    return this.postService.loadFeed();
   }
 }
\ No newline at end of file
@@ -1,33 +1,24 @@
 package amalitech.blog.controller;
 
+import amalitech.blog.ServiceContainer;
+import amalitech.blog.controller.Navigator.View;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
-import javafx.scene.Scene;
-import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-
 public class LandingController {
 
   private final Logger log = LoggerFactory.getLogger(LandingController.class);
   @FXML
   private void handleLogin(ActionEvent event) {
-    FXMLLoader fxmlLoader = new FXMLLoader(LandingController.class.getResource("/amalitech/blog/view/auth/login.fxml"));
-    Scene scene = null;
     try {
-      scene = new Scene(fxmlLoader.load(), 800, 600);
-    } catch (IOException e) {
+      ServiceContainer.getInstance().navigator().show((Node) event.getSource(), View.LOGIN);
+    } catch (RuntimeException e) {
       log.info("Failed to open login");
-      throw new RuntimeException(e);
+      throw e;
     }
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Login");
   }
 
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package amalitech.blog.controller;
+
+import amalitech.blog.ServiceContainer;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Switches the window between the views of the application, without parsing their FXML on
+ * every navigation.
+ * <p>
+ * The home feed and the landing page are loaded once and kept: going back to them shows the
+ * same scene and controller, so the feed keeps its pages, scroll position, search and tag
+ * filters, and nothing is read from the database again. A kept controller implementing
+ * {@link Revisitable} is told when it is shown again. The other views hold per-visit state
+ * (forms, the post shown) and get a fresh controller every time; the views likely to be opened
+ * next from the current one are parsed ahead on a background thread, so opening them only
+ * attaches a ready scene. {@link #clear()} drops everything, e.g. when the user signs out.
+ * </p>
+ * All methods but construction must be called from the JavaFX Application Thread.
+ */
+public final class Navigator {
+
+  private static final Logger log = LoggerFactory.getLogger(Navigator.class);
+
+  public enum View {
+    LANDING("landing.fxml", "B-BLOG - Home", 1000, 700, true),
+    LOGIN("auth/login.fxml", "B-BLOG - Login", 800, 600, false),
+    SIGN_UP("auth/signup.fxml", "B-BLOG - Sign Up", 800, 600, false),
+    HOME("home.fxml", "B-BLOG - Feed", 1000, 700, true),
+    PROFILE("profile.fxml", "B-BLOG - Profile", 1000, 700, false),
+    CREATE_POST("posts/create-post.fxml", "B-BLOG - Create Post", 900, 700, false),
+    POST_DETAILS("posts/post-details.fxml", "B-BLOG - Post Details", 900, 700, false),
+    UPDATE_POST("posts/update-post.fxml", "B-BLOG - Update Post", 900, 700, false);
+
+    private final String path;
+    private final String title;
+    private final double width;
+    private final double height;
+    private final boolean kept;
+
+    View(String path, String title, double width, double height, boolean kept) {
+      this.path = path;
+      this.title = title;
+      this.width = width;
+      this.height = height;
+      this.kept = kept;
+    }
+  }
+
+  /**
+   * Controller of a kept view that refreshes what may have changed while another view was shown.
+   */
+  public interface Revisitable {
+    void onRevisit();
+  }
+
+  private final ServiceContainer services;
+  private final ExecutorService preloader = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "view-preloader");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final Map<View, Loaded> kept = new EnumMap<>(View.class);
+  private final Map<View, CompletableFuture<Loaded>> preloaded = new EnumMap<>(View.class);
+
+  public Navigator(ServiceContainer services) {
+    this.services = services;
+  }
+
+  /**
+   * Shows a view in the window of {@code source}.
+   *
+   * @return the controller of the view, e.g. to hand it the post to show
+   */
+  public <C> C show(Node source, View view) {
+    return show((Stage) source.getScene().getWindow(), view);
+  }
+
+  /**
+   * Shows a view in a window.
+   *
+   * @return the controller of the view, e.g. to hand it the post to show
+   */
+  @SuppressWarnings("unchecked")
+  public <C> C show(Stage stage, View view) {
+    Loaded loaded = this.kept.get(view);
+    boolean revisit = loaded != null;
+    if (loaded == null) {
+      loaded = takePreloaded(view);
+      if (view.kept)
+        this.kept.put(view, loaded);
+    }
+
+    stage.setScene(loaded.scene());
+    stage.setTitle(view.title);
+    if (revisit && loaded.controller() instanceof Revisitable revisitable)
+      revisitable.onRevisit();
+
+    likelyNext(view).forEach(this::preload);
+    return (C) loaded.controller();
+  }
+
+  /**
+   * Drops the kept views and the views parsed ahead, e.g. the feed of a user signing out.
+   */
+  public void clear() {
+    this.kept.clear();
+    this.preloaded.clear();
+  }
+
+  /**
+   * Parses a view on a background thread, unless it is kept or being parsed already; the next
+   * {@link #show(Stage, View)} of it attaches the result.
+   *
+   * @return completes once the view is parsed
+   */
+  public CompletableFuture<?> preload(View view) {
+    if (view.kept && this.kept.containsKey(view))
+      return CompletableFuture.completedFuture(null);
+    return this.preloaded.computeIfAbsent(view, next -> CompletableFuture.supplyAsync(() -> load(next), this.preloader));
+  }
+
+  private Loaded takePreloaded(View view) {
+    CompletableFuture<Loaded> preloaded = this.preloaded.remove(view);
+    if (preloaded != null) {
+      try {
+        // Usually done; otherwise it is further along than a load started now
+        return preloaded.join();
+      } catch (CompletionException e) {
+        log.debug("Could not preload {}, loading it now", view, e.getCause());
+      }
+    }
+    return load(view);
+  }
+
+  private Loaded load(View view) {
+    FXMLLoader loader = this.services.loader(Navigator.class.getResource("/amalitech/blog/view/" + view.path));
+    try {
+      // Nodes and scenes may be built off the FX thread until shown in a window
+      return new Loaded(new Scene(loader.load(), view.width, view.height), loader.getController());
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to load view " + view.path, e);
+    }
+  }
+
+  // Views parsed ahead while the given one is shown. Only views whose controllers just wire their
+  // nodes on initialization: a view the user may never open must not start database calls or
+  // threads. The post forms are left out, their tag autocompletion loads the tags when attached
+  private static List<View> likelyNext(View view) {
+    return switch (view) {
+      case LANDING -> List.of(View.LOGIN);
+      case LOGIN -> List.of(View.SIGN_UP);
+      case SIGN_UP -> List.of(View.LOGIN);
+      case HOME, UPDATE_POST -> List.of(View.POST_DETAILS);
+      case PROFILE, CREATE_POST, POST_DETAILS -> List.of();
+    };
+  }
+
+  private record Loaded(Scene scene, Object controller) { }
+}
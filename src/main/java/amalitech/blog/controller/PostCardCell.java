@@ -0,0 +1,152 @@
+package amalitech.blog.controller;
+
+import amalitech.blog.dto.PostDTO;
+import amalitech.blog.service.FeedEntryCodec;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Post card of the home feed.
+ * <p>
+ * The list only creates as many cells as fit on screen and reuses them while scrolling: the
+ * nodes of a card are built once per cell and {@link #updateItem(PostDTO, boolean)} only sets
+ * their text. Styles come from {@code home.css}. Pointing at a card, or focusing it, signals
+ * the intent to open it.
+ * </p>
+ */
+public final class PostCardCell extends ListCell<PostDTO> {
+
+  private static final int EXCERPT_LENGTH = 150;
+  private static final int WORDS_PER_MINUTE = 200;
+
+  private final VBox card = new VBox(12);
+  private final Label authorName = new Label();
+  private final Label meta = new Label();
+  private final Label title = new Label();
+  private final Label excerpt = new Label();
+  private final Label reviews = new Label();
+  private final Label comments = new Label();
+  private final Label readTime = new Label();
+  private final IntConsumer onShown;
+
+  /**
+   * @param onOpen   receives the post of a clicked card, and the card
+   * @param onShown  receives the index of every item a cell is given, to load more as the user scrolls
+   * @param onIntent receives the post of a card pointed at or focused, {@code null} when the pointer leaves it
+   */
+  public PostCardCell(BiConsumer<PostDTO, PostCardCell> onOpen, IntConsumer onShown, Consumer<PostDTO> onIntent) {
+    this.onShown = onShown;
+
+    Label avatar = new Label("👤");
+    avatar.getStyleClass().add("post-avatar");
+    this.authorName.getStyleClass().add("post-author");
+    this.meta.getStyleClass().add("post-meta");
+    VBox authorInfo = new VBox(2, this.authorName, this.meta);
+    HBox header = new HBox(12, avatar, authorInfo);
+    header.setAlignment(Pos.CENTER_LEFT);
+
+    this.title.getStyleClass().add("post-title");
+    this.title.setWrapText(true);
+    this.excerpt.getStyleClass().add("post-excerpt");
+    this.excerpt.setWrapText(true);
+
+    this.reviews.getStyleClass().add("post-stat");
+    this.comments.getStyleClass().add("post-stat");
+    this.readTime.getStyleClass().add("post-stat");
+    HBox footer = new HBox(20, this.reviews, this.comments, this.readTime);
+    footer.setAlignment(Pos.CENTER_LEFT);
+
+    this.card.getStyleClass().add("post-card");
+    this.card.getChildren().addAll(header, this.title, this.excerpt, footer);
+    this.card.setOnMouseClicked(event -> {
+      if (getItem() != null)
+        onOpen.accept(getItem(), this);
+    });
+    this.card.setOnMouseEntered(event -> onIntent.accept(getItem()));
+    this.card.setOnMouseExited(event -> onIntent.accept(null));
+    focusedProperty().addListener((observable, oldValue, focused) -> {
+      if (focused && getItem() != null)
+        onIntent.accept(getItem());
+    });
+
+    // Take the width of the list instead of the width of the text, so labels wrap
+    setPrefWidth(0);
+    getStyleClass().add("post-cell");
+  }
+
+  @Override
+  protected void updateItem(PostDTO post, boolean empty) {
+    super.updateItem(post, empty);
+    if (empty || post == null) {
+      setGraphic(null);
+      return;
+    }
+
+    this.authorName.setText(getAuthorName(post));
+    String tags = getAllTags(post);
+    this.meta.setText(formatTimeAgo(post.getPost().getCreatedAt()) + (tags != null ? " · " + tags : ""));
+    this.title.setText(post.getPost().getTitle());
+    String body = post.getPost().getBody();
+    if (body != null && body.length() > EXCERPT_LENGTH)
+      body = body.substring(0, EXCERPT_LENGTH) + "...";
+    this.excerpt.setText(body);
+    this.reviews.setText(post.getReviewCount() + " reviews");
+    this.comments.setText(post.getCommentCount() + " comments");
+    this.readTime.setText("📖 " + calculateReadTime(post) + " min read");
+    setGraphic(this.card);
+
+    this.onShown.accept(getIndex());
+  }
+
+  private static String getAuthorName(PostDTO postDTO) {
+    String name = postDTO.getAuthorName();
+    return name != null && !name.isEmpty() ? name : "Anonymous";
+  }
+
+  private static String getAllTags(PostDTO postDTO) {
+    if (postDTO.getTags() == null || postDTO.getTags().isEmpty())
+      return null;
+    StringBuilder tags = new StringBuilder();
+    postDTO.getTags().forEach(t -> tags.append(t.getName()).append(' '));
+    return tags.toString().trim();
+  }
+
+  private static String formatTimeAgo(LocalDateTime createdAt) {
+    if (createdAt == null) return "Recently";
+
+    LocalDateTime now = LocalDateTime.now();
+    long minutes = ChronoUnit.MINUTES.between(createdAt, now);
+    long hours = ChronoUnit.HOURS.between(createdAt, now);
+    long days = ChronoUnit.DAYS.between(createdAt, now);
+    long weeks = ChronoUnit.WEEKS.between(createdAt, now);
+    long months = ChronoUnit.MONTHS.between(createdAt, now);
+
+    if (minutes < 1) return "Just now";
+    if (minutes < 60) return minutes + " minute" + (minutes > 1 ? "s" : "") + " ago";
+    if (hours < 24) return hours + " hour" + (hours > 1 ? "s" : "") + " ago";
+    if (days < 7) return days + " day" + (days > 1 ? "s" : "") + " ago";
+    if (weeks < 4) return weeks + " week" + (weeks > 1 ? "s" : "") + " ago";
+    if (months < 12) return months + " month" + (months > 1 ? "s" : "") + " ago";
+
+    long years = ChronoUnit.YEARS.between(createdAt, now);
+    return years + " year" + (years > 1 ? "s" : "") + " ago";
+  }
+
+  private static int calculateReadTime(PostDTO postDTO) {
+    // Feed entries carry the word count of the full body, their body may be an excerpt
+    int wordCount = postDTO.getWordCount();
+    String body = postDTO.getPost().getBody();
+    if (wordCount == 0 && body != null)
+      wordCount = FeedEntryCodec.countWords(body);
+    return Math.max(wordCount / WORDS_PER_MINUTE, 1);
+  }
+}
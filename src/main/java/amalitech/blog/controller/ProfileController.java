@@ -1,6 +1,8 @@
 package amalitech.blog.controller;
 
 import amalitech.blog.ApplicationContext;
+import amalitech.blog.ServiceContainer;
+import amalitech.blog.controller.Navigator.View;
 import amalitech.blog.model.User;
 import amalitech.blog.service.UserService;
 import amalitech.blog.service.PostService;
@@ -8,16 +10,11 @@ import amalitech.blog.service.CommentService;
 import amalitech.blog.service.ReviewService;
 import amalitech.blog.utils.ValidatorUtil;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.stage.Stage;
 import javafx.scene.Node;
 import javafx.event.ActionEvent;
 
-import java.io.IOException;
 import java.time.format.DateTimeFormatter;
-import java.util.Map;
 import java.util.Optional;
 
 public class ProfileController {
@@ -37,11 +34,17 @@ public class ProfileController {
   @FXML private Label errorLabel;
   @FXML private Label successLabel;
 
-  private final UserService userService = new UserService();
+  private final UserService userService;
+  private final ServiceContainer services;
 
 
   private User currentUser;
 
+  public ProfileController(ServiceContainer services) {
+    this.services = services;
+    this.userService = services.userService();
+  }
+
   @FXML
   public void initialize() {
     currentUser = ApplicationContext.getAuthenticatedUser();
@@ -67,24 +70,30 @@ public class ProfileController {
   private void loadUserStats() {
     if (currentUser == null) return;
 
+    postsCountLabel.setText("…");
+    commentsCountLabel.setText("…");
+    reviewsCountLabel.setText("…");
+
     // Get counts from services
-    Map<String, Integer> userStats = this.userService.getUserStats(currentUser.getId());
-    int postsCount = userStats.get("postCount");
-    int commentsCount = userStats.get("commentsCount");
-    int reviewsCount = userStats.get("reviewsCount");
-
-    postsCountLabel.setText(String.valueOf(postsCount));
-    commentsCountLabel.setText(String.valueOf(commentsCount));
-    reviewsCountLabel.setText(String.valueOf(reviewsCount));
+    FxAsync.deliver(this.userService.getUserStatsAsync(currentUser.getId()), userStats -> {
+      int postsCount = userStats.get("postCount");
+      int commentsCount = userStats.get("commentsCount");
+      int reviewsCount = userStats.get("reviewsCount");
+
+      postsCountLabel.setText(String.valueOf(postsCount));
+      commentsCountLabel.setText(String.valueOf(commentsCount));
+      reviewsCountLabel.setText(String.valueOf(reviewsCount));
+    }, error -> {
+      postsCountLabel.setText("-");
+      commentsCountLabel.setText("-");
+      reviewsCountLabel.setText("-");
+      showError("Failed to load your statistics: " + error.getMessage());
+    });
   }
 
   @FXML
-  private void handleBack(ActionEvent event) throws IOException {
-    FXMLLoader loader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/home.fxml"));
-    Scene scene = new Scene(loader.load(), 1000, 700);
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Home");
+  private void handleBack(ActionEvent event) {
+    this.services.navigator().show((Node) event.getSource(), View.HOME);
   }
 
   @FXML
@@ -116,15 +125,12 @@ public class ProfileController {
     currentUser.setLastName(lastName);
     currentUser.setEmail(email);
 
-    try {
-      userService.update(currentUser.getId(), currentUser);
+    FxAsync.deliver(userService.updateAsync(currentUser.getId(), currentUser), (Node) event.getSource(), updated -> {
       ApplicationContext.setAuthenticatedUser(currentUser);
 
       showSuccess("Profile updated successfully!");
       loadUserProfile();
-    } catch (Exception e) {
-      showError("Failed to update profile: " + e.getMessage());
-    }
+    }, error -> showError("Failed to update profile: " + error.getMessage()));
   }
 
   @FXML
@@ -149,21 +155,18 @@ public class ProfileController {
       return;
     }
 
-    try {
-      userService.updatePassword(currentUser.getId(), currentPassword, newPassword);
-
+    FxAsync.deliver(userService.updatePasswordAsync(currentUser.getId(), currentPassword, newPassword),
+            (Node) event.getSource(), updated -> {
       showSuccess("Password changed successfully!");
 
       currentPasswordField.clear();
       newPasswordField.clear();
       confirmPasswordField.clear();
-    } catch (Exception e) {
-      showError("Failed to change password: " + e.getMessage());
-    }
+    }, error -> showError("Failed to change password: " + error.getMessage()));
   }
 
   @FXML
-  private void handleDeleteAccount(ActionEvent event) throws IOException {
+  private void handleDeleteAccount(ActionEvent event) {
     // Confirmation dialog
     Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
     alert.setTitle("Delete Account");
@@ -180,19 +183,17 @@ public class ProfileController {
 
       Optional<String> confirmResult = confirmDialog.showAndWait();
       if (confirmResult.isPresent() && confirmResult.get().equals("DELETE")) {
-        try {
-          userService.delete(currentUser.getId());
+        FxAsync.deliver(userService.deleteAsync(currentUser.getId()), (Node) event.getSource(), deleted -> {
           ApplicationContext.setAuthenticatedUser(null);
 
-          // Redirect to landing page
-          FXMLLoader loader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/landing.fxml"));
-          Scene scene = new Scene(loader.load(), 1000, 700);
-          Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-          stage.setScene(scene);
-          stage.setTitle("B-BLOG - Home");
-        } catch (Exception e) {
-          showError("Failed to delete account: " + e.getMessage());
-        }
+          // Redirect to landing page, the views kept for this user are dropped
+          try {
+            this.services.navigator().clear();
+            this.services.navigator().show((Node) event.getSource(), View.LANDING);
+          } catch (RuntimeException e) {
+            showError("Failed to open the landing page: " + e.getMessage());
+          }
+        }, error -> showError("Failed to delete account: " + error.getMessage()));
       }
     }
   }
@@ -0,0 +1,184 @@
+package amalitech.blog.controller;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Search-as-you-type pipeline used by the home screen.
+ * <p>
+ * Keystrokes are debounced on the FX thread, the query itself runs on a background
+ * executor and any query superseded by newer input is cancelled. Results of recent
+ * queries are kept in a small LRU so going back to a previous query is instant, until the
+ * data version changes (e.g. a post was written) and they are dropped.
+ * Only the result of the latest query is ever handed back to the UI.
+ * </p>
+ * All public methods must be called from the JavaFX Application Thread.
+ *
+ * @param <R> the result type of a query
+ */
+public class SearchPipeline<R> {
+
+  private static final Logger log = LoggerFactory.getLogger(SearchPipeline.class);
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+  /**
+   * Shared by every pipeline: idle workers time out so screens that are thrown away
+   * do not leave threads behind.
+   */
+  private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+  private final Function<String, R> query;
+  private final Consumer<R> onResult;
+  private final Consumer<Throwable> onError;
+  private final LongSupplier dataVersion;
+  private final PauseTransition debounce;
+  private final Map<String, R> recentResults;
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLong cacheEpoch = new AtomicLong();
+  private long cachedVersion; // Guarded by recentResults
+
+  private String pendingQuery;
+  private Future<?> inFlight;
+
+  /**
+   * @param delay       quiet period after the last keystroke before the query is sent
+   * @param cacheSize   number of recent query results to keep
+   * @param query       the (blocking) query, executed off the FX thread
+   * @param onResult    receives the result of the latest query on the FX thread
+   * @param onError     receives the failure of the latest query on the FX thread
+   * @param dataVersion version of the data queried, readable from any thread; cached results
+   *                    are dropped once it changed
+   */
+  public SearchPipeline(Duration delay, int cacheSize, Function<String, R> query,
+                        Consumer<R> onResult, Consumer<Throwable> onError, LongSupplier dataVersion) {
+    this.query = query;
+    this.onResult = onResult;
+    this.onError = onError;
+    this.dataVersion = dataVersion;
+    this.cachedVersion = dataVersion.getAsLong();
+    this.recentResults = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, R> eldest) {
+        return size() > cacheSize;
+      }
+    };
+    this.debounce = new PauseTransition(delay);
+    this.debounce.setOnFinished(event -> fire());
+  }
+
+  /**
+   * Registers new input. The query only runs once the input has been stable for the
+   * debounce delay; anything still running for older input is discarded.
+   *
+   * @param text the raw text typed by the user
+   */
+  public void submit(String text) {
+    generation.incrementAndGet();
+    pendingQuery = normalize(text);
+    debounce.playFromStart();
+  }
+
+  /**
+   * Drops pending input and cancels the running query, if any.
+   */
+  public void cancel() {
+    generation.incrementAndGet();
+    debounce.stop();
+    cancelInFlight();
+  }
+
+  /**
+   * Forgets cached results, e.g. when something the query depends on besides the text changed.
+   */
+  public void clearCache() {
+    synchronized (recentResults) {
+      cacheEpoch.incrementAndGet();
+      recentResults.clear();
+    }
+  }
+
+  private void fire() {
+    final String q = pendingQuery;
+    final long expected = generation.get();
+    final long version = dataVersion.getAsLong();
+
+    R cached;
+    final long epoch;
+    synchronized (recentResults) {
+      if (version != cachedVersion) {
+        cachedVersion = version;
+        cacheEpoch.incrementAndGet();
+        recentResults.clear();
+      }
+      epoch = cacheEpoch.get();
+      cached = recentResults.get(q);
+    }
+    if (cached != null) {
+      cancelInFlight();
+      onResult.accept(cached);
+      return;
+    }
+
+    cancelInFlight();
+    inFlight = EXECUTOR.submit(() -> {
+      try {
+        R result = query.apply(q);
+        synchronized (recentResults) {
+          // A query started before clearCache() or a write may have used outdated inputs
+          if (epoch == cacheEpoch.get() && version == dataVersion.getAsLong())
+            recentResults.put(q, result);
+        }
+        Platform.runLater(() -> {
+          if (expected == generation.get()) {
+            onResult.accept(result);
+          }
+        });
+      } catch (RuntimeException e) {
+        log.warn("Search failed for '{}'", q, e);
+        Platform.runLater(() -> {
+          if (expected == generation.get()) {
+            onError.accept(e);
+          }
+        });
+      }
+    });
+  }
+
+  private void cancelInFlight() {
+    if (inFlight != null) {
+      inFlight.cancel(true);
+      inFlight = null;
+    }
+  }
+
+  private static String normalize(String text) {
+    return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static ThreadPoolExecutor createExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "search-" + THREAD_COUNTER.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
@@ -1,18 +1,17 @@
 package amalitech.blog.controller.auth;
 
 import amalitech.blog.ApplicationContext;
+import amalitech.blog.ServiceContainer;
+import amalitech.blog.controller.FxAsync;
+import amalitech.blog.controller.Navigator.View;
 import amalitech.blog.model.User;
 import amalitech.blog.service.UserService;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.control.PasswordField;
-import javafx.stage.Stage;
 import javafx.scene.Node;
 import javafx.event.ActionEvent;
-import java.io.IOException;
 
 public class LoginController {
   @FXML
@@ -24,7 +23,13 @@ public class LoginController {
   @FXML
   private Label errorLabel;
 
-  private final UserService userService = new UserService();
+  private final UserService userService;
+  private final ServiceContainer services;
+
+  public LoginController(ServiceContainer services) {
+    this.services = services;
+    this.userService = services.userService();
+  }
 
   @FXML
   private void handleLogin(ActionEvent event) {
@@ -37,36 +42,20 @@ public class LoginController {
       return;
     }
 
-    User user = this.userService.login(username, password);
-    if (user != null) {
-      ApplicationContext.setAuthenticatedUser(user);
-      try {
-        goToFeed(event);
-      } catch (IOException e) {
-        throw new RuntimeException(e);
+    // Verifying the password takes a while, keep the window responsive meanwhile
+    FxAsync.deliver(this.userService.loginAsync(username, password), (Node) event.getSource(), user -> {
+      if (user == null) {
+        showError("Invalid email or password");
+        return;
       }
-    } else {
-      showError("Invalid email or password");
-    }
+      ApplicationContext.setAuthenticatedUser(user);
+      this.services.navigator().show((Node) event.getSource(), View.HOME);
+    }, error -> showError("Could not sign in: " + error.getMessage()));
   }
 
   @FXML
-  private void handleGoToSignup(ActionEvent event) throws IOException {
-    FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/auth/signup.fxml"));
-    Scene scene = new Scene(fxmlLoader.load(), 800, 600);
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Sign Up");
-  }
-
-  private void goToFeed(ActionEvent event) throws IOException {
-    FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/home.fxml"));
-    Scene scene = new Scene(fxmlLoader.load(), 1000, 700);
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Feed");
+  private void handleGoToSignup(ActionEvent event) {
+    this.services.navigator().show((Node) event.getSource(), View.SIGN_UP);
   }
 
   private void showError(String message) {
@@ -1,22 +1,20 @@
 package amalitech.blog.controller.auth;
 import amalitech.blog.ApplicationContext;
+import amalitech.blog.ServiceContainer;
+import amalitech.blog.controller.FxAsync;
+import amalitech.blog.controller.Navigator.View;
 import amalitech.blog.model.User;
 import amalitech.blog.service.UserService;
 import amalitech.blog.utils.ValidatorUtil;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.control.PasswordField;
-import javafx.stage.Stage;
 import javafx.scene.Node;
 import javafx.event.ActionEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-
 public class SignUpController {
 
   @FXML
@@ -40,9 +38,15 @@ public class SignUpController {
   @FXML
   private Label errorLabel;
 
-  private final UserService userService = new UserService();
+  private final UserService userService;
+  private final ServiceContainer services;
   private final Logger log = LoggerFactory.getLogger(SignUpController.class);
 
+  public SignUpController(ServiceContainer services) {
+    this.services = services;
+    this.userService = services.userService();
+  }
+
   @FXML
   private void handleSignup(ActionEvent event) {
     String username = usernameField.getText().trim();
@@ -78,55 +82,40 @@ public class SignUpController {
       return;
     }
 
-    try {
-      User user = registerUser(username, firstName, lastName, email, password);
-      if (user != null) {
-        goToFeed(event);
-      } else {
+    User user = newUser(username, firstName, lastName, email, password);
+    FxAsync.deliver(this.userService.createAsync(user), (Node) event.getSource(), newUser -> {
+      if (newUser == null) {
         showError("Username or email already exists");
+        return;
       }
-    } catch (Exception e) {
-      showError("Registration failed: " + e.getMessage());
-    }
+      ApplicationContext.setAuthenticatedUser(newUser);
+      log.info("User with id: {}", newUser.getId());
+      try {
+        this.services.navigator().show((Node) event.getSource(), View.HOME);
+      } catch (RuntimeException e) {
+        showError("Failed to open the feed: " + e.getMessage());
+      }
+    }, error -> showError("Registration failed: " + error.getMessage()));
   }
 
   @FXML
   private void handleGoToLogin(ActionEvent event)  {
-    FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/auth/login.fxml"));
-    Scene scene = null;
     try {
-      scene = new Scene(fxmlLoader.load(), 800, 600);
-    } catch (IOException e) {
+      this.services.navigator().show((Node) event.getSource(), View.LOGIN);
+    } catch (RuntimeException e) {
       showError("Failed to open login page: " + e.getMessage());
     }
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Login");
   }
 
-  private void goToFeed(ActionEvent event) throws IOException {
-    FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/home.fxml"));
-    Scene scene = new Scene(fxmlLoader.load(), 1000, 700);
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Feed");
-  }
-
-  private User registerUser(String username, String firstName, String lastName,
-                               String email, String password) {
+  private User newUser(String username, String firstName, String lastName,
+                       String email, String password) {
     User user = new User();
     user.setUsername(username);
     user.setFirstName(firstName);
     user.setLastName(lastName);
     user.setEmail(email);
     user.setPassword(password);
-    User newUser = this.userService.create(user);
-    ApplicationContext.setAuthenticatedUser(newUser);
-    log.info("User with id: {}", newUser.getId());
-    return newUser;
-
+    return user;
   }
 
   private void showError(String message) {
@@ -1,23 +1,24 @@
 package amalitech.blog.controller.posts;
 
 import amalitech.blog.ApplicationContext;
+import amalitech.blog.ServiceContainer;
+import amalitech.blog.controller.FxAsync;
+import amalitech.blog.controller.Navigator.View;
 import amalitech.blog.model.Post;
 import amalitech.blog.service.PostService;
+import amalitech.blog.service.TagService;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.control.TextArea;
-import javafx.stage.Stage;
 import javafx.scene.Node;
 import javafx.event.ActionEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 public class CreatePostController {
@@ -39,9 +40,17 @@ public class CreatePostController {
   @FXML
   private Label titleCountLabel;
 
-  private final PostService postService = new PostService();
+  private final PostService postService;
+  private final TagService tagService;
+  private final ServiceContainer services;
   private final Logger log =  LoggerFactory.getLogger(CreatePostController.class);
 
+  public CreatePostController(ServiceContainer services) {
+    this.services = services;
+    this.postService = services.postService();
+    this.tagService = services.tagService();
+  }
+
   @FXML
   public void initialize() {
     // Add character counter for title
@@ -53,16 +62,14 @@ public class CreatePostController {
         titleField.setText(oldValue);
       }
     });
+
+    // Suggest existing tags while typing
+    TagAutocomplete.attach(tagsField, tagService);
   }
 
   @FXML
-  private void handleBack(ActionEvent event) throws IOException {
-    FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/home.fxml"));
-    Scene scene = new Scene(fxmlLoader.load(), 1000, 700);
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Home");
+  private void handleBack(ActionEvent event) {
+    this.services.navigator().show((Node) event.getSource(), View.HOME);
   }
 
   @FXML
@@ -92,35 +99,34 @@ public class CreatePostController {
     // Get current user ID from session/auth service
     Long authorId = getCurrentUserId();
 
-    if (savePost(authorId, title, body, tags) != null ) {
+    FxAsync.deliver(savePost(authorId, title, body, tags), (Node) event.getSource(), saved -> {
+      if (saved == null) {
+        showError("Failed to publish post. Please try again.");
+        return;
+      }
       showSuccess();
       // Redirect to home after 1 second
       new Thread(() -> {
         try {
           Thread.sleep(1000);
-          javafx.application.Platform.runLater(() -> {
-            try {
-              handleBack(event);
-            } catch (IOException e) {
-              log.error("Error", e);
-            }
-          });
+          javafx.application.Platform.runLater(() -> handleBack(event));
         } catch (InterruptedException e) {
           log.error("Error", e);
         }
       }).start();
-    } else {
+    }, error -> {
+      log.error("Error publishing post", error);
       showError("Failed to publish post. Please try again.");
-    }
+    });
   }
 
-  private Post savePost(Long authorId, String title, String body, Set<String> tags) {
+  private CompletableFuture<Post> savePost(Long authorId, String title, String body, Set<String> tags) {
     Post post = new Post();
     post.setAuthorId(authorId);
     post.setTitle(title);
     post.setBody(body);
 
-    return this.postService.create(post, tags);
+    return this.postService.createAsync(post, tags);
   }
 
   private Long getCurrentUserId() {
@@ -1,7 +1,12 @@
 package amalitech.blog.controller.posts;
 
 import amalitech.blog.ApplicationContext;
+import amalitech.blog.ServiceContainer;
+import amalitech.blog.controller.FxAsync;
+import amalitech.blog.controller.Navigator.View;
 import amalitech.blog.dto.PostDTO;
+import amalitech.blog.dto.RatingSummaryDTO;
+import amalitech.blog.dto.ReviewUpsertDTO;
 import amalitech.blog.model.Comment;
 import amalitech.blog.model.Review;
 import amalitech.blog.model.Tag;
@@ -9,20 +14,16 @@ import amalitech.blog.service.CommentService;
 import amalitech.blog.service.PostService;
 import amalitech.blog.service.ReviewService;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
-import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
-import javafx.stage.Stage;
 import javafx.scene.Node;
 import javafx.event.ActionEvent;
 import javafx.scene.text.Font;
 
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
@@ -44,19 +45,30 @@ public class PostDetailController {
 
   private PostDTO postDTO;
   private Long currentUserId;
-  private final CommentService commentService = new CommentService();
-  private final PostService postService = new PostService();
-  private final ReviewService reviewService = new ReviewService();
+  private final CommentService commentService;
+  private final PostService postService;
+  private final ReviewService reviewService;
+  private final ServiceContainer services;
   private Comment replyingToComment = null; // Track which comment we're replying to
 
+  public PostDetailController(ServiceContainer services) {
+    this.services = services;
+    this.commentService = services.commentService();
+    this.postService = services.postService();
+    this.reviewService = services.reviewService();
+  }
+
   @FXML
   public void initialize() {
     currentUserId = ApplicationContext.getAuthenticatedUser().getId();
   }
 
   public void setPost(PostDTO post) {
+    // Show the feed entry right away; it only carries an excerpt of the body, the details
+    // (full post, comments and reviews) follow from the post detail cache
     this.postDTO = post;
     loadPostData();
+    reloadDetail();
   }
 
   private void loadPostData() {
@@ -83,6 +95,8 @@ public class PostDetailController {
     boolean isAuthor = authorId.equals(currentUserId);
     editButton.setVisible(isAuthor);
     editButton.setManaged(isAuthor);
+    // A feed entry only has an excerpt of the body: editing waits for the full post
+    editButton.setDisable(postDTO.isTruncated());
     deleteButton.setVisible(isAuthor);
     deleteButton.setManaged(isAuthor);
 
@@ -91,42 +105,34 @@ public class PostDetailController {
   }
 
   private void updateReviewsLabel() {
-    List<Review> reviews = reviewService.getByPostId(postDTO.getPost().getId());
-    int reviewCount = reviews.size();
+    // Count, average and histogram come from one aggregate query, cached per post
+    FxAsync.deliver(reviewService.getRatingSummaryAsync(postDTO.getPost().getId()), this::showRatingSummary,
+            error -> reviewsLabel.setText("Reviews unavailable"));
+  }
+
+  private void showRatingSummary(RatingSummaryDTO summary) {
+    int reviewCount = summary.getCount();
 
     if (reviewCount == 0) {
       reviewsLabel.setText("No reviews yet");
+      reviewsLabel.setTooltip(null);
       return;
     }
 
-    // Calculate average rating
-    double average = calculateAverageRating(reviews);
+    double average = summary.getAverage();
     String stars = getStarsForRating(average);
 
     reviewsLabel.setText(String.format("%s %.1f (%d Review%s)",
             stars, average, reviewCount, reviewCount != 1 ? "s" : ""));
-  }
-
-  private double calculateAverageRating(List<Review> reviews) {
-    if (reviews.isEmpty()) return 0.0;
 
-    int total = 0;
-    for (Review review : reviews) {
-      total += getRatingValue(review.getRate());
+    // Rating breakdown, five stars first
+    StringBuilder breakdown = new StringBuilder();
+    int[] histogram = summary.getHistogram();
+    for (int rate = 5; rate >= 1; rate--) {
+      breakdown.append("⭐".repeat(rate)).append("  ").append(histogram[rate - 1]);
+      if (rate > 1) breakdown.append("\n");
     }
-
-    return (double) total / reviews.size();
-  }
-
-  private int getRatingValue(String rate) {
-    return switch (rate) {
-      case "ONE" -> 1;
-      case "TWO" -> 2;
-      case "THREE" -> 3;
-      case "FOUR" -> 4;
-      case "FIVE" -> 5;
-      default -> 0;
-    };
+    reviewsLabel.setTooltip(new Tooltip(breakdown.toString()));
   }
 
   private String getStarsForRating(double rating) {
@@ -155,8 +161,12 @@ public class PostDetailController {
   private void loadComments() {
     commentsContainer.getChildren().clear();
 
-    // Get all comments for this post
-    List<Comment> allComments = commentService.getByPostId(postDTO.getPost().getId());
+    // Comments come with the post details
+    if (postDTO.getComments() == null) {
+      showCommentsMessage("Loading comments...");
+      return;
+    }
+    List<Comment> allComments = postDTO.getComments();
 
     // Filter top-level comments (no parent)
     List<Comment> topLevelComments = allComments.stream()
@@ -306,8 +316,8 @@ public class PostDetailController {
     result.ifPresent(newText -> {
       if (!newText.trim().isEmpty()) {
         comment.setBody(newText.trim());
-        commentService.update(comment.getId(), comment);
-        loadComments();
+        FxAsync.deliver(commentService.updateAsync(comment.getId(), comment), updated -> reloadDetail(),
+                error -> showError("Could not save your comment", error));
       }
     });
   }
@@ -321,8 +331,8 @@ public class PostDetailController {
 
     Optional<ButtonType> result = alert.showAndWait();
     if (result.isPresent() && result.get() == ButtonType.OK) {
-      commentService.delete(comment.getId());
-      loadComments();
+      FxAsync.deliver(commentService.deleteAsync(comment.getId()), deleted -> reloadDetail(),
+              error -> showError("Could not delete the comment", error));
     }
   }
 
@@ -343,37 +353,22 @@ public class PostDetailController {
   }
 
   @FXML
-  private void handleBack(ActionEvent event) throws IOException {
-    FXMLLoader loader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/home.fxml"));
-    Scene scene = new Scene(loader.load(), 1000, 700);
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Home");
+  private void handleBack(ActionEvent event) {
+    // The feed was kept as it was left
+    this.services.navigator().show((Node) event.getSource(), View.HOME);
   }
 
   @FXML
   private void handleEdit(ActionEvent event) {
-
-    // Load post detail screen
-    FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/posts/update-post.fxml"));
-    Scene scene = null;
-    try {
-      scene = new Scene(fxmlLoader.load(), 900, 700);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
-
-    // Pass post ID to detail controller
-    UpdatePostController controller = fxmlLoader.getController();
+    if (postDTO.isTruncated())
+      return;
+    // Pass the post to the edit screen
+    UpdatePostController controller = this.services.navigator().show((Node) event.getSource(), View.UPDATE_POST);
     controller.setPost(postDTO);
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Post Details");
   }
 
   @FXML
-  private void handleDelete(ActionEvent event) throws IOException {
+  private void handleDelete(ActionEvent event) {
     Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
     alert.setTitle("Delete Post");
     alert.setHeaderText("Are you sure you want to delete this post?");
@@ -445,38 +440,27 @@ public class PostDetailController {
     // Show dialog and handle result
     Optional<Review> result = dialog.showAndWait();
     result.ifPresent(review -> {
-      // Check if user already reviewed
-      List<Review> existingReviews = reviewService.getByPostId(postDTO.getPost().getId());
-      Optional<Review> userReview = existingReviews.stream()
-              .filter(r -> r.getUserId().equals(currentUserId))
-              .findFirst();
-
-      if (userReview.isPresent()) {
-        // Update existing review
-        Review existing = userReview.get();
-        existing.setRate(review.getRate());
-        reviewService.update(existing.getId(), existing);
-
-        Alert info = new Alert(Alert.AlertType.INFORMATION);
-        info.setTitle("Review Updated");
-        info.setHeaderText(null);
-        info.setContentText("Your review has been updated!");
-        info.showAndWait();
-      } else {
-        // Create new review
-        reviewService.create(review);
-
-        Alert info = new Alert(Alert.AlertType.INFORMATION);
-        info.setTitle("Review Added");
-        info.setHeaderText(null);
-        info.setContentText("Thank you for your review!");
-        info.showAndWait();
-      }
-
-      updateReviewsLabel();
+      // One upsert creates or updates the user's review and returns the new summary
+      FxAsync.deliver(reviewService.rateAsync(review), this::showReviewSaved,
+              error -> showError("Could not save your review", error));
     });
   }
 
+  private void showReviewSaved(ReviewUpsertDTO saved) {
+    Alert info = new Alert(Alert.AlertType.INFORMATION);
+    info.setHeaderText(null);
+    if (saved.isCreated()) {
+      info.setTitle("Review Added");
+      info.setContentText("Thank you for your review!");
+    } else {
+      info.setTitle("Review Updated");
+      info.setContentText("Your review has been updated!");
+    }
+    info.showAndWait();
+
+    showRatingSummary(saved.getRatingSummary());
+  }
+
   @FXML
   private void handlePostComment(ActionEvent event) {
     String text = commentArea.getText().trim();
@@ -494,9 +478,37 @@ public class PostDetailController {
       comment.setParentCommentId(null);
     }
 
-    commentService.create(comment);
-    commentArea.clear();
-    cancelReply(); // Reset reply state
-    loadComments();
+    FxAsync.deliver(commentService.createAsync(comment), (Node) event.getSource(), created -> {
+      commentArea.clear();
+      cancelReply(); // Reset reply state
+      reloadDetail();
+    }, error -> showError("Could not post your comment", error));
+  }
+
+  // The services patch the cached details on every write, so reloading after one does not hit the database
+  private void reloadDetail() {
+    FxAsync.deliver(postService.loadDetailAsync(postDTO.getPost().getId()), detail -> {
+      if (detail == null) {
+        showCommentsMessage("This post has been deleted.");
+        return;
+      }
+      postDTO = detail;
+      loadPostData();
+    }, error -> showError("Could not load the post", error));
+  }
+
+  private void showCommentsMessage(String message) {
+    commentsContainer.getChildren().clear();
+    Label label = new Label(message);
+    label.setStyle("-fx-text-fill: #6c757d; -fx-font-size: 14;");
+    commentsContainer.getChildren().add(label);
+  }
+
+  private void showError(String message, Throwable error) {
+    Alert alert = new Alert(Alert.AlertType.ERROR);
+    alert.setTitle("Error");
+    alert.setHeaderText(message);
+    alert.setContentText(error.getMessage());
+    alert.show();
   }
 }
\ No newline at end of file
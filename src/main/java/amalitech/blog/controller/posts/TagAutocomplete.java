@@ -0,0 +1,109 @@
+package amalitech.blog.controller.posts;
+
+import amalitech.blog.service.TagService;
+import javafx.geometry.Side;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.CustomMenuItem;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Suggests existing tags while the user types in a comma-separated tags field.
+ * Suggestions come from the in-memory tag index, so nothing hits the database per keystroke.
+ */
+public class TagAutocomplete {
+
+  private static final int MAX_SUGGESTIONS = 8;
+
+  private final TextField field;
+  private final TagService tagService;
+  private final ContextMenu popup = new ContextMenu();
+  private final Logger log = LoggerFactory.getLogger(TagAutocomplete.class);
+
+  private TagAutocomplete(TextField field, TagService tagService) {
+    this.field = field;
+    this.tagService = tagService;
+  }
+
+  /**
+   * Wires autocomplete to the given field and starts loading the tag index in the background.
+   *
+   * @param field      the comma-separated tags field
+   * @param tagService service providing the suggestions
+   */
+  public static void attach(TextField field, TagService tagService) {
+    TagAutocomplete autocomplete = new TagAutocomplete(field, tagService);
+
+    Thread loader = new Thread(() -> {
+      try {
+        tagService.loadSuggestions();
+      } catch (RuntimeException e) {
+        autocomplete.log.warn("Could not load tag suggestions", e);
+      }
+    }, "tag-suggestions-loader");
+    loader.setDaemon(true);
+    loader.start();
+
+    field.textProperty().addListener((observable, oldValue, newValue) -> autocomplete.refresh(newValue));
+    field.focusedProperty().addListener((observable, oldValue, focused) -> {
+      if (!focused) autocomplete.popup.hide();
+    });
+  }
+
+  private void refresh(String text) {
+    String current = currentToken(text);
+    if (current.isEmpty() || !field.isFocused()) {
+      popup.hide();
+      return;
+    }
+
+    // Don't suggest tags that are already in the field
+    Set<String> alreadyTyped = Arrays.stream(text.split(","))
+            .map(t -> t.trim().toLowerCase(Locale.ROOT))
+            .collect(Collectors.toSet());
+
+    List<String> suggestions = tagService.suggest(current, MAX_SUGGESTIONS + alreadyTyped.size()).stream()
+            .filter(name -> !alreadyTyped.contains(name.toLowerCase(Locale.ROOT)))
+            .limit(MAX_SUGGESTIONS)
+            .toList();
+
+    if (suggestions.isEmpty()) {
+      popup.hide();
+      return;
+    }
+
+    popup.getItems().clear();
+    for (String suggestion : suggestions) {
+      CustomMenuItem item = new CustomMenuItem(new Label(suggestion), true);
+      item.setOnAction(event -> accept(suggestion));
+      popup.getItems().add(item);
+    }
+
+    if (!popup.isShowing()) {
+      popup.show(field, Side.BOTTOM, 0, 0);
+    }
+  }
+
+  private void accept(String suggestion) {
+    String text = field.getText();
+    int lastComma = text.lastIndexOf(',');
+    String head = lastComma >= 0 ? text.substring(0, lastComma + 1) + " " : "";
+    field.setText(head + suggestion + ", ");
+    field.positionCaret(field.getText().length());
+    popup.hide();
+  }
+
+  private static String currentToken(String text) {
+    if (text == null) return "";
+    int lastComma = text.lastIndexOf(',');
+    return text.substring(lastComma + 1).trim();
+  }
+}
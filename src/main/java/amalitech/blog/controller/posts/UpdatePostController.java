@@ -1,24 +1,25 @@
 package amalitech.blog.controller.posts;
 
 import amalitech.blog.ApplicationContext;
+import amalitech.blog.ServiceContainer;
+import amalitech.blog.controller.FxAsync;
+import amalitech.blog.controller.Navigator.View;
 import amalitech.blog.dto.PostDTO;
 import amalitech.blog.model.Post;
 import amalitech.blog.model.Tag;
 import amalitech.blog.service.PostService;
 import amalitech.blog.service.TagService;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.control.TextArea;
-import javafx.stage.Stage;
 import javafx.scene.Node;
 import javafx.event.ActionEvent;
 
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 public class UpdatePostController {
@@ -29,12 +30,20 @@ public class UpdatePostController {
   @FXML private Label errorLabel;
   @FXML private Label successLabel;
   @FXML private Label titleCountLabel;
+  @FXML private Button updateButton;
 
-  private final PostService postService = new PostService();
-  private final TagService tagService = new TagService();
+  private final PostService postService;
+  private final TagService tagService;
+  private final ServiceContainer services;
   private PostDTO postDTO;
   private Long currentUserId;
 
+  public UpdatePostController(ServiceContainer services) {
+    this.services = services;
+    this.postService = services.postService();
+    this.tagService = services.tagService();
+  }
+
   @FXML
   public void initialize() {
     currentUserId = ApplicationContext.getAuthenticatedUser().getId();
@@ -48,10 +57,28 @@ public class UpdatePostController {
         titleField.setText(oldValue);
       }
     });
+
+    // Suggest existing tags while typing
+    TagAutocomplete.attach(tagsField, tagService);
   }
 
   public void setPost(PostDTO postDTO) {
     this.postDTO = postDTO;
+    if (postDTO != null && postDTO.isTruncated()) {
+      // Saving an excerpt would overwrite the full body: edit the full post only
+      bodyArea.setDisable(true);
+      updateButton.setDisable(true);
+      FxAsync.deliver(postService.loadDetailAsync(postDTO.getPost().getId()), detail -> {
+        if (detail == null) {
+          showError("This post no longer exists");
+          return;
+        }
+        bodyArea.setDisable(false);
+        updateButton.setDisable(false);
+        setPost(detail);
+      }, error -> showError("Could not load the post: " + error.getMessage()));
+      return;
+    }
     loadPostData();
   }
 
@@ -73,20 +100,18 @@ public class UpdatePostController {
   }
 
   @FXML
-  private void handleCancel(ActionEvent event) throws IOException {
+  private void handleCancel(ActionEvent event) {
 // Go back to post detail
-    FXMLLoader loader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/posts/post-details.fxml"));
-    Scene scene = new Scene(loader.load(), 900, 700);
-    PostDetailController controller = loader.getController();
+    PostDetailController controller = this.services.navigator().show((Node) event.getSource(), View.POST_DETAILS);
     controller.setPost(postDTO);
-
-    Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-    stage.setScene(scene);
-    stage.setTitle("B-BLOG - Post Details");
   }
 
   @FXML
   private void handleUpdate(ActionEvent event) {
+    if (postDTO == null || postDTO.isTruncated()) {
+      showError("The full post is not loaded yet");
+      return;
+    }
     String title = titleField.getText().trim();
     String tagsText = tagsField.getText().trim();
     String body = bodyArea.getText().trim();
@@ -113,13 +138,16 @@ public class UpdatePostController {
     post.setTitle(title);
     post.setBody(body);
 
-    try {
-      // Update post in database
-      postService.update(post.getId(), post);
-
-      // Update tags
-      tagService.updatePostTags(post.getId(), tagNames);
+    // Update post in database, then its tags
+    CompletableFuture<PostDTO> saved = postService.updateAsync(post.getId(), post)
+            .thenCompose(updated -> tagService.updatePostTagsAsync(post.getId(), tagNames))
+            .thenCompose(done -> postService.loadDetailAsync(post.getId()));
 
+    FxAsync.deliver(saved, (Node) event.getSource(), updatedPost -> {
+      if (updatedPost == null) {
+        showError("This post no longer exists");
+        return;
+      }
       showSuccess();
 
       // Wait a moment then redirect to post detail
@@ -127,32 +155,17 @@ public class UpdatePostController {
         try {
           Thread.sleep(1000);
           javafx.application.Platform.runLater(() -> {
-            try {
-              // Reload post data
-              PostDTO updatedPost = postService.loadById(post.getId());
-              updatedPost.setAuthorId(currentUserId);
-
-              FXMLLoader loader = new FXMLLoader(getClass().getResource("/amalitech/blog/view/posts/post-details.fxml"));
-              Scene scene = new Scene(loader.load(), 900, 700);
-
-              PostDetailController controller = loader.getController();
-              controller.setPost(updatedPost);
-
-              Stage stage = (Stage) titleField.getScene().getWindow();
-              stage.setScene(scene);
-              stage.setTitle("B-BLOG - Post Details");
-            } catch (IOException e) {
-              e.printStackTrace();
-            }
+            // Post data reloaded with the update
+            updatedPost.setAuthorId(currentUserId);
+
+            PostDetailController controller = this.services.navigator().show(titleField, View.POST_DETAILS);
+            controller.setPost(updatedPost);
           });
         } catch (InterruptedException e) {
           e.printStackTrace();
         }
       }).start();
-
-    } catch (Exception e) {
-      showError("Failed to update post: " + e.getMessage());
-    }
+    }, error -> showError("Failed to update post: " + error.getMessage()));
   }
 
   private void showError(String message) {
@@ -0,0 +1,81 @@
+package amalitech.blog.dao;
+
+/**
+ * A committed write, as broadcast to the other application instances through {@link ChangeNotifier}.
+ * <p>
+ * The payload is a short text such as {@code 3f2a91c0;P;U;42;;7}:
+ * origin, entity code, action code, row ID, related post ID and related user ID.
+ * </p>
+ *
+ * @param origin ID of the application instance that made the change
+ * @param entity what was written
+ * @param action what happened to it
+ * @param id     ID of the row (the tag ID for post-tag associations)
+ * @param postId related post, if any (the post itself is {@code id})
+ * @param userId related user (author, commenter, reviewer), if any
+ */
+public record ChangeEvent(String origin, Entity entity, Action action, long id, Long postId, Long userId) {
+
+  public enum Entity {
+    POST('P'), COMMENT('C'), REVIEW('R'), TAG('T'), POST_TAG('X'), USER('U');
+
+    private final char code;
+
+    Entity(char code) {
+      this.code = code;
+    }
+  }
+
+  public enum Action {
+    CREATE('C'), UPDATE('U'), DELETE('D');
+
+    private final char code;
+
+    Action(char code) {
+      this.code = code;
+    }
+  }
+
+  /**
+   * @return the compact payload sent with NOTIFY
+   */
+  public String encode() {
+    return origin + ';' + entity.code + ';' + action.code + ';' + id + ';'
+            + (postId == null ? "" : postId) + ';' + (userId == null ? "" : userId);
+  }
+
+  /**
+   * @param payload a payload produced by {@link #encode()}
+   * @return the event
+   * @throws IllegalArgumentException if the payload is malformed
+   */
+  public static ChangeEvent parse(String payload) {
+    String[] parts = payload.split(";", -1);
+    if (parts.length != 6 || parts[1].length() != 1 || parts[2].length() != 1)
+      throw new IllegalArgumentException("Malformed change payload: " + payload);
+    try {
+      return new ChangeEvent(parts[0], entityOf(parts[1].charAt(0)), actionOf(parts[2].charAt(0)),
+              Long.parseLong(parts[3]), parseId(parts[4]), parseId(parts[5]));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed change payload: " + payload, e);
+    }
+  }
+
+  private static Entity entityOf(char code) {
+    for (Entity entity : Entity.values()) {
+      if (entity.code == code) return entity;
+    }
+    throw new IllegalArgumentException("Unknown entity code: " + code);
+  }
+
+  private static Action actionOf(char code) {
+    for (Action action : Action.values()) {
+      if (action.code == code) return action;
+    }
+    throw new IllegalArgumentException("Unknown action code: " + code);
+  }
+
+  private static Long parseId(String value) {
+    return value.isEmpty() ? null : Long.valueOf(value);
+  }
+}
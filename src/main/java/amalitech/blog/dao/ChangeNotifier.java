@@ -0,0 +1,48 @@
+package amalitech.blog.dao;
+
+import amalitech.blog.dao.ChangeEvent.Action;
+import amalitech.blog.dao.ChangeEvent.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Publishes DAO writes on a PostgreSQL NOTIFY channel so that other application
+ * instances can invalidate their in-memory caches.
+ * <p>
+ * Called by the DAOs right after a successful write, on the same connection.
+ * A failed notification is logged and never fails the write itself.
+ * </p>
+ */
+public final class ChangeNotifier {
+
+  /**
+   * Channel the listeners subscribe to.
+   */
+  public static final String CHANNEL = "blog_changes";
+
+  /**
+   * Identifies this JVM, so an instance can ignore its own notifications.
+   */
+  public static final String ORIGIN = UUID.randomUUID().toString().substring(0, 8);
+
+  private static final Logger log = LoggerFactory.getLogger(ChangeNotifier.class);
+
+  private ChangeNotifier() { }
+
+  static void publish(Connection connection, Entity entity, Action action, long id, Long postId, Long userId) {
+    ChangeEvent event = new ChangeEvent(ORIGIN, entity, action, id, postId, userId);
+
+    try (PreparedStatement ps = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+      ps.setString(1, CHANNEL);
+      ps.setString(2, event.encode());
+      ps.execute();
+    } catch (SQLException e) {
+      log.warn("Could not publish change {}", event, e);
+    }
+  }
+}
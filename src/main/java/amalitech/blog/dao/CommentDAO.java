@@ -1,5 +1,7 @@
 package amalitech.blog.dao;
 
+import amalitech.blog.dao.ChangeEvent.Action;
+import amalitech.blog.dao.ChangeEvent.Entity;
 import amalitech.blog.dao.enums.CommentColumn;
 import amalitech.blog.model.Comment;
 import org.slf4j.Logger;
@@ -58,6 +60,8 @@ public class CommentDAO implements DAO<Comment, Long> {
         }
       }
 
+      ChangeNotifier.publish(connection, Entity.COMMENT, Action.CREATE, entity.getId(),
+              entity.getPostId(), entity.getUserId());
       log.info("Comment created successfully - ID: {}, Post: {}, User: {}",
               entity.getId(), entity.getPostId(), entity.getUserId());
       return entity;
@@ -264,7 +268,7 @@ public class CommentDAO implements DAO<Comment, Long> {
                 SET body = ?,
                     updated_at = CURRENT_TIMESTAMP
                 WHERE id = ? AND is_deleted = false
-                RETURNING updated_at
+                RETURNING post_id, user_id, updated_at
             """;
 
     try (Connection connection = DatabaseConnection.getConnection();
@@ -276,7 +280,10 @@ public class CommentDAO implements DAO<Comment, Long> {
       try (ResultSet rs = ps.executeQuery()) {
         if (rs.next()) {
           entity.setId(id);
+          entity.setPostId(rs.getLong("post_id"));
           entity.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+          ChangeNotifier.publish(connection, Entity.COMMENT, Action.UPDATE, id,
+                  rs.getLong("post_id"), rs.getLong("user_id"));
           log.info("Comment updated successfully - ID: {}", id);
           return entity;
         }
@@ -308,6 +315,7 @@ public class CommentDAO implements DAO<Comment, Long> {
                 SET is_deleted = true,
                     deleted_at = CURRENT_TIMESTAMP
                 WHERE id = ? AND is_deleted = false
+                RETURNING post_id, user_id
             """;
 
     try (Connection connection = DatabaseConnection.getConnection();
@@ -315,7 +323,13 @@ public class CommentDAO implements DAO<Comment, Long> {
 
       ps.setLong(1, id);
 
-      boolean deleted = ps.executeUpdate() > 0;
+      boolean deleted;
+      try (ResultSet rs = ps.executeQuery()) {
+        deleted = rs.next();
+        if (deleted)
+          ChangeNotifier.publish(connection, Entity.COMMENT, Action.DELETE, id,
+                  rs.getLong("post_id"), rs.getLong("user_id"));
+      }
 
       if (deleted) {
         log.info("Comment soft-deleted successfully - ID: {}", id);
@@ -1,5 +1,7 @@
 package amalitech.blog.dao;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -7,7 +9,19 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Connections to the database configured in {@code .env}.
+ * <p>
+ * Connections are pooled by HikariCP: at most {@code DB_MAX_CONNECTIONS} are open at once, idle
+ * or in use. Closing one returns it to the pool, so most calls skip the connection handshake;
+ * when all of them are in use {@link #getConnection()} waits for one to be returned.
+ * Callers use them as before, in try-with-resources; the pool rolls back transactions left open
+ * and restores the settings callers changed.
+ * </p>
+ */
 public class DatabaseConnection {
 
   private static final Dotenv dotenv = Dotenv.load();
@@ -18,15 +32,103 @@ public class DatabaseConnection {
 
   private static final Logger log = LoggerFactory.getLogger(DatabaseConnection.class);
 
+  // Connections the application may hold at once; background work is bounded by it
+  private static final int MAX_CONNECTIONS = parsePositive(dotenv.get("DB_MAX_CONNECTIONS"), 10);
+
+  private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+  private static final HikariDataSource POOL = createPool();
+
   private DatabaseConnection() {
   }
 
+  /**
+   * @return a pooled connection; closing it returns it to the pool
+   * @throws SQLException if no connection could be opened, or none was returned within 30 seconds
+   */
   public static Connection getConnection() throws SQLException {
+    return POOL.getConnection();
+  }
+
+  /**
+   * Opens a connection outside the pool and its limit, for sessions keeping server-side state
+   * (e.g. LISTEN). Closing it closes it.
+   */
+  public static Connection getDedicatedConnection() throws SQLException {
     return DriverManager.getConnection(URL, USER, PASSWORD);
   }
 
-  public static void testConnection()throws SQLException{
-    DatabaseConnection.getConnection();
-    log.info("Database connection test successful !");
+  /**
+   * Opens connections until the pool holds {@code count} of them (at most {@link #getMaxConnections()}),
+   * so the first calls do not pay for the handshake.
+   *
+   * @return the number of idle connections
+   */
+  public static int prewarm(int count) throws SQLException {
+    int target = Math.min(count, MAX_CONNECTIONS);
+    // Holding them all at once makes the pool open new ones instead of handing back the same one
+    List<Connection> borrowed = new ArrayList<>(target);
+    try {
+      while (borrowed.size() < target) {
+        borrowed.add(POOL.getConnection());
+      }
+    } finally {
+      borrowed.forEach(DatabaseConnection::closeQuietly);
+    }
+    return getIdleConnections();
+  }
+
+  /**
+   * @return the number of pooled connections open at most ({@code DB_MAX_CONNECTIONS}, 10 by default)
+   */
+  public static int getMaxConnections() {
+    return MAX_CONNECTIONS;
+  }
+
+  /**
+   * @return the number of connections waiting in the pool
+   */
+  public static int getIdleConnections() {
+    return POOL.getHikariPoolMXBean().getIdleConnections();
+  }
+
+  public static void testConnection() throws SQLException {
+    try (Connection connection = DatabaseConnection.getConnection()) {
+      if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS))
+        throw new SQLException("Database connection is not valid");
+      log.info("Database connection test successful !");
+    }
+  }
+
+  private static HikariDataSource createPool() {
+    HikariConfig config = new HikariConfig();
+    config.setPoolName("blog-db");
+    config.setJdbcUrl(URL);
+    config.setUsername(USER);
+    config.setPassword(PASSWORD);
+    config.setMaximumPoolSize(MAX_CONNECTIONS);
+    // Connections are opened on demand and by prewarm(), not all of them up front
+    config.setMinimumIdle(0);
+    // Do not connect while the class loads: testConnection() reports an unreachable database
+    config.setInitializationFailTimeout(-1);
+    return new HikariDataSource(config);
+  }
+
+  private static void closeQuietly(Connection connection) {
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      log.debug("Could not close a connection", e);
+    }
+  }
+
+  private static int parsePositive(String value, int defaultValue) {
+    try {
+      int parsed = value == null ? defaultValue : Integer.parseInt(value.trim());
+      return parsed > 0 ? parsed : defaultValue;
+    } catch (NumberFormatException e) {
+      log.warn("Ignoring invalid DB_MAX_CONNECTIONS '{}'", value);
+      return defaultValue;
+    }
   }
 }
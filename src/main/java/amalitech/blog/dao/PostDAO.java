@@ -1,5 +1,8 @@
 package amalitech.blog.dao;
 
+import amalitech.blog.dao.ChangeEvent.Action;
+import amalitech.blog.dao.ChangeEvent.Entity;
+import amalitech.blog.dao.enums.TagMatch;
 import amalitech.blog.dto.CommentDTO;
 import amalitech.blog.dto.PostDTO;
 import amalitech.blog.model.Post;
@@ -8,10 +11,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.LongConsumer;
 
 /**
  * Data Access Object (DAO) for Post entities.
@@ -23,6 +31,33 @@ import java.util.Map;
  */
 public class PostDAO implements DAO<Post, Long> {
 
+  /**
+   * What a feed card shows for the posts of the {@code %s} subquery: author name, tags and the
+   * number of live comments and reviews, mapped by {@link #mapRowToFeedEntry(ResultSet)}.
+   * Callers add the outer ORDER BY.
+   */
+  private static final String FEED_ENTRY_SELECT = """
+          SELECT
+              p.id, p.author_id, p.title, p.body,
+              p.created_at, p.updated_at, p.is_deleted,
+              COALESCE(NULLIF(u.first_name || ' ' || u.last_name, ' '), u.username) AS author_name,
+              tg.tag_ids, tg.tag_names,
+              (SELECT COUNT(*) FROM comments c
+               WHERE c.post_id = p.id AND c.is_deleted = false) AS comment_count,
+              (SELECT COUNT(*) FROM reviews r
+               WHERE r.post_id = p.id AND r.is_deleted = false) AS review_count
+          FROM (%s) p
+          LEFT JOIN users u ON p.author_id = u.id
+          LEFT JOIN LATERAL (
+              SELECT array_agg(t.id ORDER BY t.name) AS tag_ids,
+                     array_agg(t.name ORDER BY t.name) AS tag_names
+              FROM post_tags pt
+              INNER JOIN tags t ON t.id = pt.tag_id
+              WHERE pt.post_id = p.id
+                AND t.is_deleted = false
+          ) tg ON true
+          """;
+
   private final Logger log = LoggerFactory.getLogger(PostDAO.class);
 
   /**
@@ -55,6 +90,7 @@ public class PostDAO implements DAO<Post, Long> {
         }
       }
 
+      ChangeNotifier.publish(connection, Entity.POST, Action.CREATE, entity.getId(), null, entity.getAuthorId());
       log.info("Post created successfully - ID: {}, Title: {}", entity.getId(), entity.getTitle());
       return entity;
 
@@ -218,6 +254,42 @@ public class PostDAO implements DAO<Post, Long> {
     return posts;
   }
 
+  /**
+   * Streams the IDs of all non-deleted posts to the consumer.
+   * Intended for building in-memory indexes.
+   *
+   * @param consumer receives each post ID
+   * @throws RuntimeException if a database error occurs
+   */
+  public void forEachLiveId(LongConsumer consumer) {
+
+    String sql = """
+                SELECT id
+                FROM posts
+                WHERE is_deleted = false
+            """;
+
+    try (Connection connection = DatabaseConnection.getConnection()) {
+      // The driver only uses a cursor (fetch size) outside of auto-commit mode
+      connection.setAutoCommit(false);
+
+      try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        ps.setFetchSize(10_000);
+
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            consumer.accept(rs.getLong("id"));
+          }
+        }
+      }
+      connection.commit();
+
+    } catch (SQLException e) {
+      log.error("Error scanning post ids", e);
+      throw new RuntimeException("Failed to scan post ids", e);
+    }
+  }
+
   /**
    * Convenience method: first page (1), 100 records, excludes deleted posts.
    *
@@ -245,7 +317,7 @@ public class PostDAO implements DAO<Post, Long> {
                     body = ?,
                     updated_at = CURRENT_TIMESTAMP
                 WHERE id = ? AND is_deleted = false
-                RETURNING updated_at
+                RETURNING author_id, updated_at
             """;
 
     try (Connection connection = DatabaseConnection.getConnection();
@@ -259,6 +331,7 @@ public class PostDAO implements DAO<Post, Long> {
         if (rs.next()) {
           entity.setId(id);
           entity.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+          ChangeNotifier.publish(connection, Entity.POST, Action.UPDATE, id, null, rs.getLong("author_id"));
           log.info("Post updated successfully - ID: {}", id);
           return entity;
         }
@@ -275,6 +348,7 @@ public class PostDAO implements DAO<Post, Long> {
 
   /**
    * Soft-deletes a post by setting is_deleted = true and recording deletion timestamp.
+   * updated_at is bumped too, so the deletion is seen by {@link #findChangedSince(LocalDateTime, int)}.
    *
    * @param id ID of the post to soft-delete
    * @return {@code true} if the post was found and marked deleted, {@code false} otherwise
@@ -285,8 +359,10 @@ public class PostDAO implements DAO<Post, Long> {
     final String DELETE = """
                 UPDATE posts
                 SET is_deleted = true,
-                    deleted_at = CURRENT_TIMESTAMP
+                    deleted_at = CURRENT_TIMESTAMP,
+                    updated_at = CURRENT_TIMESTAMP
                 WHERE id = ? AND is_deleted = false
+                RETURNING author_id
             """;
 
     try (Connection connection = DatabaseConnection.getConnection();
@@ -294,7 +370,12 @@ public class PostDAO implements DAO<Post, Long> {
 
       ps.setLong(1, id);
 
-      boolean deleted = ps.executeUpdate() > 0;
+      boolean deleted;
+      try (ResultSet rs = ps.executeQuery()) {
+        deleted = rs.next();
+        if (deleted)
+          ChangeNotifier.publish(connection, Entity.POST, Action.DELETE, id, null, rs.getLong("author_id"));
+      }
 
       if (deleted) {
         log.info("Post soft-deleted successfully - ID: {}", id);
@@ -346,6 +427,7 @@ public class PostDAO implements DAO<Post, Long> {
 
         PostDTO dto = new PostDTO();
         dto.setPost(post);
+        dto.setAuthorId(post.getAuthorId());
         dto.setAuthorName(rs.getString("author_name"));
 
         // Load supporting data
@@ -362,17 +444,11 @@ public class PostDAO implements DAO<Post, Long> {
   }
 
 
-    /**
-     *
-     * @param page
-     * @param pageSize
-     * @param search
-     * @param tagId
-     * @param authorId
-     * @param includeDeleted
-     * @return
-     */
-
+  /**
+   * Retrieves a page of posts for list views, optionally restricted to a single tag.
+   *
+   * @see #getPostDTOs(int, int, String, Collection, TagMatch, Long, boolean)
+   */
   public List<PostDTO> getPostDTOs(
           int page,
           int pageSize,
@@ -380,93 +456,280 @@ public class PostDAO implements DAO<Post, Long> {
           Long tagId,
           Long authorId,
           boolean includeDeleted) {
+    return getPostDTOs(page, pageSize, search,
+            tagId == null ? List.of() : List.of(tagId), TagMatch.ALL, authorId, includeDeleted);
+  }
+
+  /**
+   * Retrieves a page of posts for list views (author name, tags and engagement counts, no comments),
+   * most recent first.
+   * <p>
+   * Everything, tags included, is loaded in a single query. The tag filter is answered from
+   * post_tags only: {@link TagMatch#ALL} groups the rows of the requested tags by post through
+   * the (tag_id) index, {@link TagMatch#ANY} is a semi-join on the (post_id, tag_id) primary key.
+   * Tags are aggregated only for the rows of the requested page.
+   * </p>
+   *
+   * @param page           1-based page number
+   * @param pageSize       number of records per page (at most 50)
+   * @param search         keyword matched against title and body, ignored if blank
+   * @param tagIds         tags to filter on, ignored if empty
+   * @param match          whether posts need every tag or at least one of them
+   * @param authorId       restricts to an author, ignored if {@code null}
+   * @param includeDeleted if {@code true}, includes soft-deleted posts
+   * @return matching posts for the page
+   * @throws RuntimeException if a database error occurs
+   */
+  public List<PostDTO> getPostDTOs(
+          int page,
+          int pageSize,
+          String search,
+          Collection<Long> tagIds,
+          TagMatch match,
+          Long authorId,
+          boolean includeDeleted) {
 
     int effectivePage = Math.max(1, page);
     int effectiveSize = Math.max(1, Math.min(pageSize, 50));
     int offset = (effectivePage - 1) * effectiveSize;
 
-    StringBuilder sql = new StringBuilder("""
-            SELECT DISTINCT
-                p.id, p.author_id, p.title, p.body,
-                p.created_at, p.updated_at, p.is_deleted,
-                u.username AS author_username,
-                COALESCE(NULLIF(u.first_name || ' ' || u.last_name, ' '), u.username) AS author_name
+    StringBuilder filtered = new StringBuilder("""
+            SELECT id, author_id, title, body, created_at, updated_at, is_deleted
             FROM posts p
-            LEFT JOIN users u ON p.author_id = u.id
             """);
 
     List<Object> params = new ArrayList<>();
     String and = " WHERE ";
 
     if (!includeDeleted) {
-      sql.append(and).append("p.is_deleted = false ");
+      filtered.append(and).append("p.is_deleted = false ");
       and = "AND ";
     }
 
     if (authorId != null) {
-      sql.append(and).append("p.author_id = ? ");
+      filtered.append(and).append("p.author_id = ? ");
       params.add(authorId);
       and = "AND ";
     }
 
-    if (tagId != null) {
-      sql.append(and).append("""
-                EXISTS (SELECT 1 FROM post_tags pt WHERE pt.post_id = p.id AND pt.tag_id = ?)
+    Set<Long> distinctTagIds = tagIds == null ? Set.of() : new LinkedHashSet<>(tagIds);
+    if (!distinctTagIds.isEmpty()) {
+      if (match == TagMatch.ANY) {
+        filtered.append(and).append("""
+                EXISTS (SELECT 1 FROM post_tags pt WHERE pt.post_id = p.id AND pt.tag_id = ANY (?))
                 """);
-      params.add(tagId);
+        params.add(distinctTagIds);
+      } else {
+        filtered.append(and).append("""
+                p.id IN (SELECT pt.post_id FROM post_tags pt
+                         WHERE pt.tag_id = ANY (?)
+                         GROUP BY pt.post_id
+                         HAVING COUNT(*) = ?)
+                """);
+        params.add(distinctTagIds);
+        params.add(distinctTagIds.size());
+      }
       and = "AND ";
     }
 
     if (search != null && !search.trim().isEmpty()) {
       String term = "%" + search.trim().toLowerCase() + "%";
-      sql.append(and).append("""
+      filtered.append(and).append("""
                 (LOWER(p.title) LIKE ? OR LOWER(p.body) LIKE ?)
                 """);
       params.add(term);
       params.add(term);
-      and = "AND ";
     }
 
-    sql.append("""
-             ORDER BY p.created_at DESC
+    filtered.append("""
+             ORDER BY p.created_at DESC, p.id DESC
              LIMIT ? OFFSET ?
             """);
     params.add(effectiveSize);
     params.add(offset);
 
+    String sql = FEED_ENTRY_SELECT.formatted(filtered) + """
+            ORDER BY p.created_at DESC, p.id DESC
+            """;
+
     List<PostDTO> dtos = new ArrayList<>();
 
     try (Connection conn = DatabaseConnection.getConnection();
-         PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+         PreparedStatement ps = conn.prepareStatement(sql)) {
 
       for (int i = 0; i < params.size(); i++) {
-        ps.setObject(i + 1, params.get(i));
+        if (params.get(i) instanceof Collection<?> ids) {
+          ps.setArray(i + 1, conn.createArrayOf("bigint", ids.toArray()));
+        } else {
+          ps.setObject(i + 1, params.get(i));
+        }
       }
 
       try (ResultSet rs = ps.executeQuery()) {
         while (rs.next()) {
-          Post post = mapRowToPost(rs);
-          post.setDeleted(rs.getBoolean("is_deleted"));
+          // Only tags and counts — no comments on list view
+          dtos.add(mapRowToFeedEntry(rs));
+        }
+      }
 
-          PostDTO dto = new PostDTO();
-          dto.setPost(post);
-          dto.setAuthorName(rs.getString("author_name"));
+    } catch (SQLException e) {
+      log.error("Failed to load paginated PostDTOs", e);
+      throw new RuntimeException("Error fetching post list", e);
+    }
 
-          // Only tags — no comments on list view
-          dto.setTags(getTagsForPost(post.getId()));
+    return dtos;
+  }
 
-          dtos.add(dto);
+
+  /**
+   * Loads a range of the feed with everything a feed card shows: author name, tags and the
+   * number of live comments and reviews, in a single query. Used to (re)build the in-memory
+   * feed snapshot and to read the pages beyond it.
+   *
+   * @param offset number of posts to skip
+   * @param limit  max number of posts, most recent first
+   * @return the feed entries
+   * @throws RuntimeException if a database error occurs
+   */
+  public List<PostDTO> getFeedEntries(int offset, int limit) {
+    return getFeedEntries(null, offset, limit);
+  }
+
+  /**
+   * Loads the feed entries of the given posts, most recent first. Soft-deleted or unknown IDs are skipped.
+   *
+   * @param ids post IDs
+   * @return the feed entries
+   * @throws RuntimeException if a database error occurs
+   * @see #getFeedEntries(int, int)
+   */
+  public List<PostDTO> getFeedEntries(Collection<Long> ids) {
+    if (ids == null || ids.isEmpty()) {
+      return new ArrayList<>();
+    }
+    return getFeedEntries(ids, 0, ids.size());
+  }
+
+  private List<PostDTO> getFeedEntries(Collection<Long> ids, int offset, int limit) {
+    String sql = FEED_ENTRY_SELECT.formatted("""
+            SELECT id, author_id, title, body, created_at, updated_at, is_deleted
+            FROM posts
+            WHERE is_deleted = false
+              AND (?::bigint[] IS NULL OR id = ANY (?::bigint[]))
+            ORDER BY created_at DESC, id DESC
+            LIMIT ? OFFSET ?
+            """) + """
+            ORDER BY p.created_at DESC, p.id DESC
+            """;
+
+    List<PostDTO> dtos = new ArrayList<>();
+
+    try (Connection conn = DatabaseConnection.getConnection();
+         PreparedStatement ps = conn.prepareStatement(sql)) {
+
+      Array idArray = ids == null ? null : conn.createArrayOf("bigint", ids.toArray());
+      ps.setArray(1, idArray);
+      ps.setArray(2, idArray);
+      ps.setInt(3, limit);
+      ps.setInt(4, offset);
+
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          dtos.add(mapRowToFeedEntry(rs));
         }
       }
 
     } catch (SQLException e) {
-      log.error("Failed to load paginated PostDTOs", e);
-      throw new RuntimeException("Error fetching post list", e);
+      log.error("Failed to load feed entries", e);
+      throw new RuntimeException("Error fetching feed entries", e);
     }
 
     return dtos;
   }
 
+  /**
+   * Loads the feed entries of the posts created, edited or soft-deleted after a point in time,
+   * deleted ones included, oldest change first. Every write to a post sets its updated_at, so
+   * this is a range scan of idx_posts_updated_at.
+   *
+   * @param since exclusive lower bound of updated_at
+   * @param limit max number of posts
+   * @return the feed entries of the changed posts
+   * @throws RuntimeException if a database error occurs
+   */
+  public List<PostDTO> findChangedSince(LocalDateTime since, int limit) {
+    String sql = FEED_ENTRY_SELECT.formatted("""
+            SELECT id, author_id, title, body, created_at, updated_at, is_deleted
+            FROM posts
+            WHERE updated_at > ?
+            ORDER BY updated_at, id
+            LIMIT ?
+            """) + """
+            ORDER BY p.updated_at, p.id
+            """;
+
+    List<PostDTO> dtos = new ArrayList<>();
+
+    try (Connection conn = DatabaseConnection.getConnection();
+         PreparedStatement ps = conn.prepareStatement(sql)) {
+
+      ps.setTimestamp(1, Timestamp.valueOf(since));
+      ps.setInt(2, limit);
+
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          dtos.add(mapRowToFeedEntry(rs));
+        }
+      }
+
+    } catch (SQLException e) {
+      log.error("Failed to load posts changed since {}", since, e);
+      throw new RuntimeException("Error fetching changed posts", e);
+    }
+
+    return dtos;
+  }
+
+  /**
+   * Returns the most recent updated_at of all posts, deleted ones included: the starting point
+   * of {@link #findChangedSince(LocalDateTime, int)}. Read from idx_posts_updated_at.
+   *
+   * @return the latest change, or {@code null} if there are no posts
+   * @throws RuntimeException if a database error occurs
+   */
+  public LocalDateTime getLatestUpdate() {
+    String sql = """
+            SELECT MAX(updated_at) AS latest FROM posts
+            """;
+
+    try (Connection conn = DatabaseConnection.getConnection();
+         PreparedStatement ps = conn.prepareStatement(sql);
+         ResultSet rs = ps.executeQuery()) {
+
+      Timestamp latest = rs.next() ? rs.getTimestamp("latest") : null;
+      return latest == null ? null : latest.toLocalDateTime();
+
+    } catch (SQLException e) {
+      log.error("Failed to load the latest post update", e);
+      throw new RuntimeException("Error fetching the latest post update", e);
+    }
+  }
+
+  /**
+   * Maps a row of the feed entry queries: the post with its author name, aggregated tags and counts.
+   */
+  private PostDTO mapRowToFeedEntry(ResultSet rs) throws SQLException {
+    Post post = mapRowToPost(rs);
+
+    PostDTO dto = new PostDTO();
+    dto.setPost(post);
+    dto.setAuthorId(post.getAuthorId());
+    dto.setAuthorName(rs.getString("author_name"));
+    dto.setTags(mapAggregatedTags(rs));
+    dto.setCommentCount(rs.getInt("comment_count"));
+    dto.setReviewCount(rs.getInt("review_count"));
+    return dto;
+  }
 
   /**
    * Maps a ResultSet row to a Post object.
@@ -487,6 +750,28 @@ public class PostDAO implements DAO<Post, Long> {
     return post;
   }
 
+  /**
+   * Builds the tags of a row from the aggregated tag_ids / tag_names arrays.
+   */
+  private List<Tag> mapAggregatedTags(ResultSet rs) throws SQLException {
+    List<Tag> tags = new ArrayList<>();
+    Array ids = rs.getArray("tag_ids");
+    Array names = rs.getArray("tag_names");
+    if (ids == null || names == null) {
+      return tags;
+    }
+
+    Long[] tagIds = (Long[]) ids.getArray();
+    String[] tagNames = (String[]) names.getArray();
+    for (int i = 0; i < tagIds.length; i++) {
+      Tag tag = new Tag();
+      tag.setId(tagIds[i]);
+      tag.setName(tagNames[i]);
+      tags.add(tag);
+    }
+    return tags;
+  }
+
   private List<Tag> getTagsForPost(Long postId) {
     String sql = """
             SELECT t.id, t.name
@@ -1,5 +1,7 @@
 package amalitech.blog.dao;
 
+import amalitech.blog.dao.ChangeEvent.Action;
+import amalitech.blog.dao.ChangeEvent.Entity;
 import amalitech.blog.model.PostTags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -7,6 +9,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * Data Access Object (DAO) for the post_tags many-to-many relationship.
@@ -25,9 +28,22 @@ public class PostTagsDAO implements DAO<PostTags, Long> {
    * @param entity the post-tag association to create
    * @return the entity (unchanged, as no generated fields)
    * @throws RuntimeException if a database error occurs
+   * @see #createIfAbsent(PostTags)
    */
   @Override
   public PostTags create(PostTags entity) {
+    createIfAbsent(entity);
+    return entity;
+  }
+
+  /**
+   * Creates a new post-tag association if it does not exist yet.
+   *
+   * @param entity the post-tag association to create
+   * @return {@code true} if a row was inserted, {@code false} if the association already existed
+   * @throws RuntimeException if a database error occurs
+   */
+  public boolean createIfAbsent(PostTags entity) {
 
     final String INSERT = """
                 INSERT INTO post_tags (post_id, tag_id)
@@ -44,6 +60,8 @@ public class PostTagsDAO implements DAO<PostTags, Long> {
       int rows = ps.executeUpdate();
 
       if (rows > 0) {
+        ChangeNotifier.publish(connection, Entity.POST_TAG, Action.CREATE,
+                entity.getTagId(), entity.getPostId(), null);
         log.info("Post-tag association created - Post: {}, Tag: {}",
                 entity.getPostId(), entity.getTagId());
       } else {
@@ -51,7 +69,7 @@ public class PostTagsDAO implements DAO<PostTags, Long> {
                 entity.getPostId(), entity.getTagId());
       }
 
-      return entity;
+      return rows > 0;
 
     } catch (SQLException e) {
       log.error("Error creating post-tag association", e);
@@ -160,32 +178,43 @@ public class PostTagsDAO implements DAO<PostTags, Long> {
    * Removes all the tags related to a post
    *
    * @param postId the post ID
+   * @return IDs of the tags that were detached from the post (empty if none)
    */
-  public void deleteByPost(Long postId) {
+  public List<Long> deleteByPost(Long postId) {
 
     final String DELETE = """
                 DELETE FROM post_tags
                 WHERE post_id = ?
+                RETURNING tag_id
             """;
 
+    List<Long> removedTagIds = new ArrayList<>();
+
     try (Connection connection = DatabaseConnection.getConnection();
          PreparedStatement ps = connection.prepareStatement(DELETE)) {
 
       ps.setLong(1, postId);
 
-      boolean removed = ps.executeUpdate() > 0;
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          removedTagIds.add(rs.getLong("tag_id"));
+        }
+      }
 
-      if (removed) {
+      if (!removedTagIds.isEmpty()) {
+        removedTagIds.forEach(tagId ->
+                ChangeNotifier.publish(connection, Entity.POST_TAG, Action.DELETE, tagId, postId, null));
         log.info("Post-tag association removed - Post: {}", postId);
       } else {
         log.debug("No post-tag association found to remove - Post: {}", postId);
       }
 
-
     } catch (SQLException e) {
       log.error("Error removing post-tag association (post={})", postId, e);
       throw new RuntimeException("Failed to remove tag from post", e);
     }
+
+    return removedTagIds;
   }
 
   /**
@@ -211,6 +240,7 @@ public class PostTagsDAO implements DAO<PostTags, Long> {
       boolean removed = ps.executeUpdate() > 0;
 
       if (removed) {
+        ChangeNotifier.publish(connection, Entity.POST_TAG, Action.DELETE, tagId, postId, null);
         log.info("Post-tag association removed - Post: {}, Tag: {}", postId, tagId);
       } else {
         log.debug("No post-tag association found to remove - Post: {}, Tag: {}", postId, tagId);
@@ -297,39 +327,39 @@ public class PostTagsDAO implements DAO<PostTags, Long> {
   }
 
   /**
+   * Streams every post-tag association to the consumer.
+   * Rows are read through a server-side cursor, so the table is never fully materialised.
+   * Intended for building in-memory indexes.
    *
-   * @param limit max number of tags to return
-   * @return list of top tags IDs (empty if none)
+   * @param consumer receives (postId, tagId) for each association
+   * @throws RuntimeException if a database error occurs
    */
-  public List<Long> findTopTagsId(int limit) {
+  public void forEachAssociation(BiConsumer<Long, Long> consumer) {
 
-    final String SELECT_BY_POST = """
-                SELECT tag_id, COUNT(*) as tag_occurrence
+    final String SELECT_ALL = """
+                SELECT post_id, tag_id
                 FROM post_tags
-                GROUP BY (tag_id)
-                ORDER BY tag_occurrence
-                LIMIT ?
             """;
 
-    List<Long> tagIds = new ArrayList<>();
-
-    try (Connection connection = DatabaseConnection.getConnection();
-         PreparedStatement ps = connection.prepareStatement(SELECT_BY_POST)) {
+    try (Connection connection = DatabaseConnection.getConnection()) {
+      // The driver only uses a cursor (fetch size) outside of auto-commit mode
+      connection.setAutoCommit(false);
 
-      ps.setLong(1, limit);
+      try (PreparedStatement ps = connection.prepareStatement(SELECT_ALL)) {
+        ps.setFetchSize(10_000);
 
-      try (ResultSet rs = ps.executeQuery()) {
-        while (rs.next()) {
-          tagIds.add(rs.getLong("tag_id"));
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            consumer.accept(rs.getLong("post_id"), rs.getLong("tag_id"));
+          }
         }
       }
+      connection.commit();
 
     } catch (SQLException e) {
-      log.error("Error fetching top tags with limit {}", limit, e);
-      throw new RuntimeException("Failed to fetch post tags", e);
+      log.error("Error scanning post-tag associations", e);
+      throw new RuntimeException("Failed to scan post-tag associations", e);
     }
-
-    return tagIds;
   }
 
   private PostTags mapRowToPostTags(ResultSet rs) throws SQLException {
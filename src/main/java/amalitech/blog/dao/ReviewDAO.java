@@ -1,5 +1,9 @@
 package amalitech.blog.dao;
 
+import amalitech.blog.dao.ChangeEvent.Action;
+import amalitech.blog.dao.ChangeEvent.Entity;
+import amalitech.blog.dto.RatingSummaryDTO;
+import amalitech.blog.dto.ReviewUpsertDTO;
 import amalitech.blog.model.Review;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +51,8 @@ public class ReviewDAO implements DAO<Review, Long> {
         }
       }
 
+      ChangeNotifier.publish(connection, Entity.REVIEW, Action.CREATE, entity.getId(),
+              entity.getPostId(), entity.getUserId());
       log.info("Review created successfully - ID: {}, Post: {}, User: {}, Rate: {}",
               entity.getId(), entity.getPostId(), entity.getUserId(), entity.getRate());
       return entity;
@@ -229,6 +235,133 @@ public class ReviewDAO implements DAO<Review, Long> {
 
     return reviews;
   }
+  /**
+   * Computes the rating summary of a post (count, average and 1–5 histogram)
+   * with a single aggregate query over the non-deleted reviews.
+   *
+   * @param postId the post id
+   * @return the summary, with a count of 0 if the post has no review
+   * @throws RuntimeException if a database error occurs
+   */
+  public RatingSummaryDTO getRatingSummary(Long postId) {
+
+    final String SELECT_SUMMARY = """
+                SELECT COUNT(*) FILTER (WHERE rate = 'ONE')   AS one,
+                       COUNT(*) FILTER (WHERE rate = 'TWO')   AS two,
+                       COUNT(*) FILTER (WHERE rate = 'THREE') AS three,
+                       COUNT(*) FILTER (WHERE rate = 'FOUR')  AS four,
+                       COUNT(*) FILTER (WHERE rate = 'FIVE')  AS five
+                FROM reviews
+                WHERE is_deleted = false AND post_id = ?
+            """;
+
+    try (Connection connection = DatabaseConnection.getConnection();
+         PreparedStatement ps = connection.prepareStatement(SELECT_SUMMARY)) {
+
+      ps.setLong(1, postId);
+
+      int[] histogram = new int[5];
+      try (ResultSet rs = ps.executeQuery()) {
+        if (rs.next()) {
+          histogram[0] = rs.getInt("one");
+          histogram[1] = rs.getInt("two");
+          histogram[2] = rs.getInt("three");
+          histogram[3] = rs.getInt("four");
+          histogram[4] = rs.getInt("five");
+        }
+      }
+      return RatingSummaryDTO.fromHistogram(postId, histogram);
+
+    } catch (SQLException e) {
+      log.error("Error computing rating summary for post with id {} ", postId, e);
+      throw new RuntimeException("Failed to compute rating summary", e);
+    }
+  }
+
+  /**
+   * Creates the user's review of a post, or changes its rate if the user already reviewed the post,
+   * and returns the post's new rating summary — all in one statement.
+   * <p>
+   * Relies on the unique index on (post_id, user_id) over non-deleted reviews, so concurrent
+   * submissions by the same user can never produce two reviews. The summary is computed from
+   * the other users' reviews plus the rate just written, as the statement cannot see its own write.
+   * It is read from the statement's snapshot: reviews of other users committed meanwhile are
+   * missing, so it must not be cached.
+   * </p>
+   *
+   * @param entity the review (post, user and rate are used); gets the ID and timestamps of the stored row
+   * @return the stored review, whether it was created, and the post's rating summary
+   * @throws RuntimeException if a database error occurs
+   */
+  public ReviewUpsertDTO upsert(Review entity) {
+
+    final String UPSERT = """
+                WITH upserted AS (
+                    INSERT INTO reviews (post_id, user_id, rate)
+                    VALUES (?, ?, ?::e_review)
+                    ON CONFLICT (post_id, user_id) WHERE is_deleted = false
+                    DO UPDATE SET rate = EXCLUDED.rate,
+                                  updated_at = CURRENT_TIMESTAMP
+                    RETURNING id, post_id, user_id, rate, created_at, updated_at, (xmax = 0) AS inserted
+                ), others AS (
+                    SELECT COUNT(*) FILTER (WHERE r.rate = 'ONE')   AS one,
+                           COUNT(*) FILTER (WHERE r.rate = 'TWO')   AS two,
+                           COUNT(*) FILTER (WHERE r.rate = 'THREE') AS three,
+                           COUNT(*) FILTER (WHERE r.rate = 'FOUR')  AS four,
+                           COUNT(*) FILTER (WHERE r.rate = 'FIVE')  AS five
+                    FROM reviews r
+                    WHERE r.is_deleted = false AND r.post_id = ? AND r.user_id <> ?
+                )
+                SELECT u.id, u.created_at, u.updated_at, u.inserted,
+                       o.one   + (u.rate = 'ONE')::int   AS one,
+                       o.two   + (u.rate = 'TWO')::int   AS two,
+                       o.three + (u.rate = 'THREE')::int AS three,
+                       o.four  + (u.rate = 'FOUR')::int  AS four,
+                       o.five  + (u.rate = 'FIVE')::int  AS five
+                FROM upserted u CROSS JOIN others o
+            """;
+
+    try (Connection connection = DatabaseConnection.getConnection();
+         PreparedStatement ps = connection.prepareStatement(UPSERT)) {
+
+      ps.setLong(1, entity.getPostId());
+      ps.setLong(2, entity.getUserId());
+      ps.setString(3, entity.getRate());
+      ps.setLong(4, entity.getPostId());
+      ps.setLong(5, entity.getUserId());
+
+      try (ResultSet rs = ps.executeQuery()) {
+        if (!rs.next()) {
+          throw new SQLException("Review upsert returned no row");
+        }
+
+        entity.setId(rs.getLong("id"));
+        entity.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        entity.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+
+        int[] histogram = {
+                rs.getInt("one"), rs.getInt("two"), rs.getInt("three"), rs.getInt("four"), rs.getInt("five")
+        };
+
+        ReviewUpsertDTO result = new ReviewUpsertDTO();
+        result.setReview(entity);
+        result.setCreated(rs.getBoolean("inserted"));
+        result.setRatingSummary(RatingSummaryDTO.fromHistogram(entity.getPostId(), histogram));
+
+        ChangeNotifier.publish(connection, Entity.REVIEW, result.isCreated() ? Action.CREATE : Action.UPDATE,
+                entity.getId(), entity.getPostId(), entity.getUserId());
+
+        log.info("Review {} - ID: {}, Post: {}, User: {}, Rate: {}", result.isCreated() ? "created" : "updated",
+                entity.getId(), entity.getPostId(), entity.getUserId(), entity.getRate());
+        return result;
+      }
+
+    } catch (SQLException e) {
+      log.error("Error upserting review (post={}, user={})", entity.getPostId(), entity.getUserId(), e);
+      throw new RuntimeException("Failed to save review", e);
+    }
+  }
+
   /**
    * Updates an existing review (only the rate can be changed).
    * Automatically updates the updated_at timestamp.
@@ -246,7 +379,7 @@ public class ReviewDAO implements DAO<Review, Long> {
                 SET rate = ?::e_review,
                     updated_at = CURRENT_TIMESTAMP
                 WHERE id = ? AND is_deleted = false
-                RETURNING updated_at
+                RETURNING post_id, user_id, updated_at
             """;
 
     try (Connection connection = DatabaseConnection.getConnection();
@@ -258,7 +391,10 @@ public class ReviewDAO implements DAO<Review, Long> {
       try (ResultSet rs = ps.executeQuery()) {
         if (rs.next()) {
           entity.setId(id);
+          entity.setPostId(rs.getLong("post_id"));
           entity.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+          ChangeNotifier.publish(connection, Entity.REVIEW, Action.UPDATE, id,
+                  entity.getPostId(), rs.getLong("user_id"));
           log.info("Review updated successfully - ID: {}, New Rate: {}", id, entity.getRate());
           return entity;
         }
@@ -288,6 +424,7 @@ public class ReviewDAO implements DAO<Review, Long> {
                 SET is_deleted = true,
                     deleted_at = CURRENT_TIMESTAMP
                 WHERE id = ? AND is_deleted = false
+                RETURNING post_id, user_id
             """;
 
     try (Connection connection = DatabaseConnection.getConnection();
@@ -295,7 +432,13 @@ public class ReviewDAO implements DAO<Review, Long> {
 
       ps.setLong(1, id);
 
-      boolean deleted = ps.executeUpdate() > 0;
+      boolean deleted;
+      try (ResultSet rs = ps.executeQuery()) {
+        deleted = rs.next();
+        if (deleted)
+          ChangeNotifier.publish(connection, Entity.REVIEW, Action.DELETE, id,
+                  rs.getLong("post_id"), rs.getLong("user_id"));
+      }
 
       if (deleted) {
         log.info("Review soft-deleted successfully - ID: {}", id);
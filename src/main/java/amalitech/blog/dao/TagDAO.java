@@ -1,5 +1,8 @@
 package amalitech.blog.dao;
 
+import amalitech.blog.dao.ChangeEvent.Action;
+import amalitech.blog.dao.ChangeEvent.Entity;
+import amalitech.blog.dto.TagUsageDTO;
 import amalitech.blog.model.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +48,7 @@ public class TagDAO implements DAO<Tag, Long> {
         }
       }
 
+      ChangeNotifier.publish(connection, Entity.TAG, Action.CREATE, entity.getId(), null, null);
       log.info("Tag created successfully - ID: {}, Name: {}", entity.getId(), entity.getName());
       return entity;
 
@@ -179,6 +183,47 @@ public class TagDAO implements DAO<Tag, Long> {
     return getAll(1, 100);
   }
 
+  /**
+   * Retrieves every non-deleted tag together with the number of non-deleted posts using it.
+   * Intended for building in-memory indexes in one round trip.
+   *
+   * @return all tags with their usage count (unordered, may be empty)
+   * @throws RuntimeException if a database error occurs
+   */
+  public List<TagUsageDTO> getAllWithUsage() {
+
+    final String SELECT_WITH_USAGE = """
+                SELECT t.id, t.name, COUNT(p.id) AS post_count
+                FROM tags t
+                LEFT JOIN post_tags pt ON pt.tag_id = t.id
+                LEFT JOIN posts p ON p.id = pt.post_id AND p.is_deleted = false
+                WHERE t.is_deleted = false
+                GROUP BY t.id, t.name
+            """;
+
+    List<TagUsageDTO> usages = new ArrayList<>();
+
+    try (Connection connection = DatabaseConnection.getConnection();
+         PreparedStatement ps = connection.prepareStatement(SELECT_WITH_USAGE)) {
+
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          TagUsageDTO usage = new TagUsageDTO();
+          usage.setId(rs.getLong("id"));
+          usage.setName(rs.getString("name"));
+          usage.setPostCount(rs.getInt("post_count"));
+          usages.add(usage);
+        }
+      }
+
+    } catch (SQLException e) {
+      log.error("Error fetching tag usage", e);
+      throw new RuntimeException("Failed to fetch tag usage", e);
+    }
+
+    return usages;
+  }
+
   /**
    * Updates an existing tag's name.
    * Automatically updates the updated_at timestamp.
@@ -209,6 +254,7 @@ public class TagDAO implements DAO<Tag, Long> {
         if (rs.next()) {
           entity.setId(id);
           entity.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+          ChangeNotifier.publish(connection, Entity.TAG, Action.UPDATE, id, null, null);
           log.info("Tag updated successfully - ID: {}, Name: {}", id, entity.getName());
           return entity;
         }
@@ -248,6 +294,7 @@ public class TagDAO implements DAO<Tag, Long> {
       boolean deleted = ps.executeUpdate() > 0;
 
       if (deleted) {
+        ChangeNotifier.publish(connection, Entity.TAG, Action.DELETE, id, null, null);
         log.info("Tag soft-deleted successfully - ID: {}", id);
       } else {
         log.warn("Tag not found or already deleted - ID: {}", id);
@@ -1,5 +1,7 @@
 package amalitech.blog.dao;
 
+import amalitech.blog.dao.ChangeEvent.Action;
+import amalitech.blog.dao.ChangeEvent.Entity;
 import amalitech.blog.dao.enums.UserColumn;
 import amalitech.blog.model.User;
 import org.slf4j.Logger;
@@ -293,6 +295,7 @@ public class UserDAO implements DAO<User, Long> {
       }
 
       entity.setId(id);
+      ChangeNotifier.publish(connection, Entity.USER, Action.UPDATE, id, null, id);
       log.info("User {} updated successfully", id);
       return entity;
 
@@ -326,6 +329,7 @@ public class UserDAO implements DAO<User, Long> {
       boolean deleted = ps.executeUpdate() > 0;
 
       if (deleted) {
+        ChangeNotifier.publish(connection, Entity.USER, Action.DELETE, id, null, id);
         log.info("User {} deleted successfully", id);
       } else {
         log.warn("User {} not found or already deleted", id);
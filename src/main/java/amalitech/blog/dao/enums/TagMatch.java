@@ -0,0 +1,8 @@
+package amalitech.blog.dao.enums;
+
+/**
+ * How a set of tags filters posts: posts having every tag, or posts having at least one.
+ */
+public enum TagMatch {
+  ALL, ANY
+}
@@ -17,5 +17,10 @@ public class PostDTO {
   private List<Comment> comments;
   private List<Tag> tags;
   private List<Review> reviews;
+  private int commentCount;
+  private int reviewCount;
+  private int wordCount;
+  // Body is only an excerpt, the full post must be loaded before being displayed
+  private boolean truncated;
 
 }
@@ -0,0 +1,33 @@
+package amalitech.blog.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class RatingSummaryDTO {
+  private Long postId;
+  private int count;
+  private double average;
+  // histogram[0] = number of one-star reviews, ..., histogram[4] = number of five-star reviews
+  private int[] histogram = new int[5];
+
+  /**
+   * Builds a summary from per-rate counts (index 0 = one star).
+   */
+  public static RatingSummaryDTO fromHistogram(Long postId, int[] histogram) {
+    int count = 0;
+    long total = 0;
+    for (int i = 0; i < histogram.length; i++) {
+      count += histogram[i];
+      total += (long) (i + 1) * histogram[i];
+    }
+
+    RatingSummaryDTO summary = new RatingSummaryDTO();
+    summary.setPostId(postId);
+    summary.setCount(count);
+    summary.setAverage(count == 0 ? 0.0 : (double) total / count);
+    summary.setHistogram(histogram);
+    return summary;
+  }
+}
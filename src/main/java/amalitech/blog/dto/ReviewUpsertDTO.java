@@ -0,0 +1,14 @@
+package amalitech.blog.dto;
+
+import amalitech.blog.model.Review;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ReviewUpsertDTO {
+  private Review review;
+  // true if the user had no review on the post yet, false if their review was updated
+  private boolean created;
+  private RatingSummaryDTO ratingSummary;
+}
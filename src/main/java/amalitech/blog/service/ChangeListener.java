@@ -0,0 +1,186 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dao.ChangeEvent;
+import amalitech.blog.dao.ChangeNotifier;
+import amalitech.blog.dao.DatabaseConnection;
+import amalitech.blog.model.Tag;
+import amalitech.blog.service.cache.CacheManager;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Applies the writes made by other application instances to this instance's caches and indexes.
+ * <p>
+ * A daemon thread holds a dedicated connection that LISTENs on {@link ChangeNotifier#CHANNEL}
+ * and dispatches every {@link ChangeEvent} to the matching invalidation. Notifications sent
+ * by this instance are ignored, the services already applied them locally.
+ * </p>
+ * If the connection drops, it is re-established with a back-off, every cache is emptied and the
+ * tag indexes are reloaded, since notifications may have been missed meanwhile.
+ */
+public final class ChangeListener {
+
+  private static final Logger log = LoggerFactory.getLogger(ChangeListener.class);
+  private static final AtomicBoolean STARTED = new AtomicBoolean();
+  private static final int POLL_TIMEOUT_MS = 10_000;
+  private static final long MAX_BACKOFF_MS = 30_000;
+
+  private final TagService tagService;
+  private final PostTagsService postTagsService = new PostTagsService();
+
+  private ChangeListener(TagService tagService) {
+    this.tagService = tagService;
+  }
+
+  /**
+   * Starts listening, once per JVM. Later calls do nothing.
+   *
+   * @param tagService used to read tags created elsewhere
+   */
+  public static void start(TagService tagService) {
+    if (!STARTED.compareAndSet(false, true))
+      return;
+    Thread thread = new Thread(new ChangeListener(tagService)::run, "db-change-listener");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void run() {
+    long backoff = 1_000;
+    boolean reconnecting = false;
+
+    while (!Thread.currentThread().isInterrupted()) {
+      try (Connection connection = DatabaseConnection.getDedicatedConnection();
+           Statement statement = connection.createStatement()) {
+
+        statement.execute("LISTEN " + ChangeNotifier.CHANNEL);
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        log.info("Listening for changes on '{}' (instance {})", ChangeNotifier.CHANNEL, ChangeNotifier.ORIGIN);
+        if (reconnecting) {
+          CacheManager.invalidateAll();
+          FeedSnapshot.getInstance().invalidate();
+          log.info("Caches cleared after reconnecting, notifications may have been missed");
+          reloadIndexes();
+        }
+        backoff = 1_000;
+
+        while (!Thread.currentThread().isInterrupted()) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+          if (notifications == null)
+            continue;
+          for (PGNotification notification : notifications) {
+            handle(notification.getParameter());
+          }
+        }
+      } catch (SQLException e) {
+        log.warn("Change listener connection lost, retrying in {} ms", backoff, e);
+      }
+
+      reconnecting = true;
+      try {
+        Thread.sleep(backoff);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+    }
+  }
+
+  private void reloadIndexes() {
+    try {
+      TagBitmapIndex.getInstance().reload();
+      // The suggestion index reads the names from the popularity index
+      TagPopularityIndex.getInstance().reload();
+      TagSuggestionIndex.getInstance().reload();
+    } catch (RuntimeException e) {
+      log.warn("Could not reload the tag indexes after reconnecting", e);
+    }
+  }
+
+  private void handle(String payload) {
+    try {
+      ChangeEvent event = ChangeEvent.parse(payload);
+      if (ChangeNotifier.ORIGIN.equals(event.origin()))
+        return;
+      log.debug("Remote change: {}", event);
+      apply(event);
+    } catch (RuntimeException e) {
+      // One bad notification must not stop the listener
+      log.warn("Could not apply change notification '{}'", payload, e);
+    }
+  }
+
+  private void apply(ChangeEvent event) {
+    switch (event.entity()) {
+      case POST -> {
+        PostService.invalidateFeed();
+        PostService.invalidateAuthor(event.userId());
+        if (event.action() == ChangeEvent.Action.CREATE)
+          TagBitmapIndex.getInstance().addPost(event.id());
+        else if (event.action() == ChangeEvent.Action.DELETE)
+          TagBitmapIndex.getInstance().removePost(event.id());
+        if (event.action() == ChangeEvent.Action.DELETE) {
+          this.postTagsService.onPostDeleted(event.id());
+          FeedSnapshot.getInstance().remove(event.id());
+        } else {
+          FeedSnapshot.getInstance().refresh(event.id());
+        }
+        PostDetailCache.getInstance().invalidate(event.id());
+      }
+      case POST_TAG -> {
+        PostService.invalidateFeed();
+        FeedSnapshot.getInstance().refreshIfPresent(event.postId());
+        PostDetailCache.getInstance().invalidate(event.postId());
+        if (event.action() == ChangeEvent.Action.CREATE) {
+          TagPopularityIndex.getInstance().adjust(event.id(), 1);
+          TagBitmapIndex.getInstance().addTag(event.postId(), event.id());
+        } else if (event.action() == ChangeEvent.Action.DELETE) {
+          TagPopularityIndex.getInstance().adjust(event.id(), -1);
+          TagBitmapIndex.getInstance().removeTags(event.postId(), List.of(event.id()));
+        }
+      }
+      case TAG -> {
+        if (event.action() == ChangeEvent.Action.CREATE) {
+          Tag tag = this.tagService.get(event.id());
+          TagPopularityIndex.getInstance().add(tag);
+          TagSuggestionIndex.getInstance().add(tag);
+        } else {
+          TagService.evictTag(event.id());
+          FeedSnapshot.getInstance().invalidate();
+          PostService.invalidateFeed();
+        }
+      }
+      case COMMENT -> {
+        PostDetailCache.getInstance().invalidate(event.postId());
+        if (event.action() != ChangeEvent.Action.UPDATE) {
+          UserService.invalidateStats(event.userId());
+          FeedSnapshot.getInstance().refreshIfPresent(event.postId());
+        }
+      }
+      case REVIEW -> {
+        ReviewService.invalidateRatingSummary(event.postId());
+        PostDetailCache.getInstance().invalidate(event.postId());
+        if (event.action() != ChangeEvent.Action.UPDATE) {
+          UserService.invalidateStats(event.userId());
+          FeedSnapshot.getInstance().refreshIfPresent(event.postId());
+        }
+      }
+      case USER -> {
+        UserService.evictUser(event.id());
+        UserService.invalidateStats(event.id());
+        PostDetailCache.getInstance().onAuthorChanged(event.id());
+        // Author names are embedded in feed pages
+        FeedSnapshot.getInstance().invalidate();
+        PostService.invalidateFeed();
+      }
+    }
+  }
+}
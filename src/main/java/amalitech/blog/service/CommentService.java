@@ -5,12 +5,19 @@ import amalitech.blog.dao.enums.CommentColumn;
 import amalitech.blog.model.Comment;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class CommentService {
   private final CommentDAO commentDAO;
+  private final ServiceExecutor executor;
 
   public CommentService(){
-    this.commentDAO = new CommentDAO();
+    this(new CommentDAO());
+  }
+
+  public CommentService(CommentDAO commentDAO){
+    this.commentDAO = commentDAO;
+    this.executor = ServiceExecutor.getInstance();
   }
 
   public List<Comment> getByPostId(Long postId){
@@ -22,16 +29,39 @@ public class CommentService {
   }
 
   public Comment create(Comment entity){
-    return  this.commentDAO.create(entity);
+    Comment created = this.commentDAO.create(entity);
+    UserService.invalidateStats(entity.getUserId());
+    FeedSnapshot.getInstance().refreshIfPresent(entity.getPostId());
+    PostDetailCache.getInstance().onCommentCreated(created);
+    return created;
+  }
+
+  public CompletableFuture<Comment> createAsync(Comment entity){
+    return this.executor.supply(() -> this.create(entity));
   }
 
   public Comment update (Long id, Comment entity){
-    return this.commentDAO.update(id, entity);
+    Comment updated = this.commentDAO.update(id, entity);
+    PostDetailCache.getInstance().onCommentUpdated(updated);
+    return updated;
   }
 
-  public boolean delete (Long id){
-    return this.commentDAO.delete(id);
+  public CompletableFuture<Comment> updateAsync(Long id, Comment entity){
+    return this.executor.supply(() -> this.update(id, entity));
   }
 
+  public boolean delete (Long id){
+    Comment comment = this.commentDAO.get(id);
+    boolean deleted = this.commentDAO.delete(id);
+    if (deleted && comment != null) {
+      UserService.invalidateStats(comment.getUserId());
+      FeedSnapshot.getInstance().refreshIfPresent(comment.getPostId());
+      PostDetailCache.getInstance().onCommentDeleted(comment);
+    }
+    return deleted;
+  }
 
+  public CompletableFuture<Boolean> deleteAsync(Long id){
+    return this.executor.supply(() -> this.delete(id));
+  }
 }
@@ -0,0 +1,105 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dto.PostDTO;
+import amalitech.blog.service.cache.SlabStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap storage of feed entries: entries are encoded with {@link FeedEntryCodec} into a
+ * {@link SlabStore} and only decoded when they are served.
+ * <p>
+ * What stays on the heap per entry is a {@link SlabStore.Ref}, instead of a {@link PostDTO}
+ * with the full body, its timestamps and tag objects. An entry whose slab was overwritten
+ * reads as {@code null}; callers then reload it from the database.
+ * </p>
+ */
+public final class CompactFeedStore {
+
+  /** Entries of the {@link FeedSnapshot}. */
+  static final CompactFeedStore SNAPSHOT = new CompactFeedStore("feed.snapshot", 256 * 1024, 8);
+
+  /** Entries of cached feed pages beyond the snapshot. */
+  static final CompactFeedStore PAGES = new CompactFeedStore("feed.pages", 256 * 1024, 16);
+
+  private final SlabStore store;
+  private final FeedEntryCodec codec;
+
+  CompactFeedStore(String name, int slabSize, int slabCount) {
+    this.store = new SlabStore(name, slabSize, slabCount);
+    this.codec = FeedEntryCodec.getInstance();
+  }
+
+  /**
+   * @return statistics of the stores used by the feed
+   */
+  public static List<String> stats() {
+    return List.of(SNAPSHOT.store.toString(), PAGES.store.toString());
+  }
+
+  /**
+   * @param dto the entry to store
+   * @return where it was stored, {@code null} if it does not fit in a slab
+   */
+  public SlabStore.Ref put(PostDTO dto) {
+    byte[] bytes = this.codec.encode(dto);
+    return this.store.put(bytes, bytes.length);
+  }
+
+  /**
+   * @param ref where the entry was stored
+   * @return a freshly decoded entry, or {@code null} if it was evicted
+   */
+  public PostDTO get(SlabStore.Ref ref) {
+    byte[] bytes = ref == null ? null : this.store.get(ref);
+    return bytes == null ? null : this.codec.decode(bytes);
+  }
+
+  /**
+   * Stores a whole page.
+   *
+   * @param entries the entries, in feed order
+   * @return the stored page, or {@code null} if an entry does not fit in a slab
+   */
+  public Page putPage(List<PostDTO> entries) {
+    List<SlabStore.Ref> refs = new ArrayList<>(entries.size());
+    for (PostDTO dto : entries) {
+      SlabStore.Ref ref = put(dto);
+      if (ref == null)
+        return null;
+      refs.add(ref);
+    }
+    return new Page(List.copyOf(refs));
+  }
+
+  /**
+   * Decodes a page.
+   *
+   * @param page a stored page
+   * @return its entries, or {@code null} if any of them was evicted
+   */
+  public List<PostDTO> getPage(Page page) {
+    List<PostDTO> entries = new ArrayList<>(page.refs().size());
+    for (SlabStore.Ref ref : page.refs()) {
+      PostDTO dto = get(ref);
+      if (dto == null)
+        return null;
+      entries.add(dto);
+    }
+    return entries;
+  }
+
+  /**
+   * @param page a stored page
+   * @return whether every entry of the page can still be read
+   */
+  public boolean contains(Page page) {
+    return page.refs().stream().allMatch(this.store::contains);
+  }
+
+  /**
+   * A page of feed entries held off-heap.
+   */
+  public record Page(List<SlabStore.Ref> refs) { }
+}
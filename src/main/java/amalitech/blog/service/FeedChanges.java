@@ -0,0 +1,26 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dto.PostDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Posts that changed since the previous poll, and where to poll from next, see
+ * {@link PostService#pollFeedChanges(FeedChanges)}.
+ *
+ * @param created    feed entries of the posts created, oldest change first
+ * @param updated    feed entries of older posts that were edited, oldest change first
+ * @param deletedIds posts soft-deleted
+ * @param watermark  latest updated_at seen
+ * @param recent     updated_at of the changes seen shortly before the watermark, by post ID;
+ *                   they are read again by the next poll but not reported twice
+ */
+public record FeedChanges(List<PostDTO> created, List<PostDTO> updated, List<Long> deletedIds,
+                          LocalDateTime watermark, Map<Long, LocalDateTime> recent) {
+
+  public boolean isEmpty() {
+    return this.created.isEmpty() && this.updated.isEmpty() && this.deletedIds.isEmpty();
+  }
+}
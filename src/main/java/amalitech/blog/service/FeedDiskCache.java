@@ -0,0 +1,222 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dto.PostDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The last feed page shown, persisted to a small binary file so the next launch can paint it
+ * before the database answers.
+ * <p>
+ * File layout (big-endian): magic, file format version, {@link FeedEntryCodec#VERSION},
+ * save time, payload length and CRC32, then the payload: the author and tag names used by the
+ * entries, followed by the entries encoded with {@link FeedEntryCodec}. A file with another
+ * version, a bad checksum or a truncated payload is ignored.
+ * </p>
+ * The file is written next to the target and then moved over it, so a crash while saving
+ * leaves the previous file intact. The path defaults to {@code ~/.b-blog/feed-cache.bin} and
+ * can be changed with the {@code bblog.feedCacheFile} system property.
+ */
+public class FeedDiskCache {
+
+  private static final int MAGIC = 0x42424644; // "BBFD"
+  private static final short FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 4 + 2 + 2 + 8 + 4 + 8;
+  private static final int MAX_PAYLOAD = 16 * 1024 * 1024;
+
+  private static final FeedDiskCache INSTANCE = new FeedDiskCache(defaultPath(), FeedEntryCodec.getInstance());
+
+  private final Path file;
+  private final FeedEntryCodec codec;
+  private final Logger log = LoggerFactory.getLogger(FeedDiskCache.class);
+
+  FeedDiskCache(Path file, FeedEntryCodec codec) {
+    this.file = file;
+    this.codec = codec;
+  }
+
+  /**
+   * @return the feed file shared by the whole application
+   */
+  public static FeedDiskCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Reads the persisted feed page.
+   *
+   * @return its entries (bodies are excerpts), or an empty list if there is no usable file
+   */
+  public List<PostDTO> load() {
+    if (!Files.isRegularFile(this.file))
+      return List.of();
+
+    long start = System.nanoTime();
+    try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE || size > HEADER_SIZE + MAX_PAYLOAD)
+        return List.of();
+      // Read into the heap: a mapping would keep the file locked on Windows until it is collected
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0)
+          break;
+      }
+      buffer.flip();
+
+      if (buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION
+              || buffer.getShort() != FeedEntryCodec.VERSION) {
+        log.info("Ignoring feed cache {}: unknown format", this.file);
+        return List.of();
+      }
+      buffer.getLong(); // saved at
+      int length = buffer.getInt();
+      long checksum = buffer.getLong();
+      if (length < 0 || length > buffer.remaining()) {
+        log.info("Ignoring feed cache {}: truncated", this.file);
+        return List.of();
+      }
+
+      ByteBuffer payload = buffer.slice(buffer.position(), length);
+      CRC32 crc = new CRC32();
+      crc.update(payload.duplicate());
+      if (crc.getValue() != checksum) {
+        log.info("Ignoring feed cache {}: checksum mismatch", this.file);
+        return List.of();
+      }
+
+      List<PostDTO> entries = readPayload(payload);
+      log.debug("Feed cache loaded: {} posts in {} µs", entries.size(), (System.nanoTime() - start) / 1_000);
+      return entries;
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not read feed cache {}", this.file, e);
+      return List.of();
+    }
+  }
+
+  /**
+   * Persists a feed page, replacing the previous one.
+   *
+   * @param entries the entries, in the order they are shown
+   */
+  public synchronized void save(List<PostDTO> entries) {
+    try {
+      byte[] payload = writePayload(entries);
+      CRC32 crc = new CRC32();
+      crc.update(payload);
+
+      Files.createDirectories(this.file.toAbsolutePath().getParent());
+      Path tmp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+      try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(MAGIC)
+                .putShort(FORMAT_VERSION)
+                .putShort((short) FeedEntryCodec.VERSION)
+                .putLong(System.currentTimeMillis())
+                .putInt(payload.length)
+                .putLong(crc.getValue())
+                .put(payload)
+                .flip();
+        while (buffer.hasRemaining())
+          channel.write(buffer);
+        channel.force(false);
+      }
+      try {
+        Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      // Only costs the instant feed of the next launch
+      log.warn("Could not write feed cache {}", this.file, e);
+    }
+  }
+
+  private byte[] writePayload(List<PostDTO> entries) throws IOException {
+    Map<Long, String> authors = new LinkedHashMap<>();
+    Map<Long, String> tags = new LinkedHashMap<>();
+    List<byte[]> encoded = new ArrayList<>(entries.size());
+    for (PostDTO dto : entries) {
+      if (dto.getAuthorId() != null && dto.getAuthorName() != null)
+        authors.put(dto.getAuthorId(), dto.getAuthorName());
+      if (dto.getTags() != null)
+        dto.getTags().forEach(tag -> tags.put(tag.getId(), tag.getName()));
+      encoded.add(this.codec.encode(dto));
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      writeNames(out, authors);
+      writeNames(out, tags);
+      out.writeInt(encoded.size());
+      for (byte[] entry : encoded) {
+        out.writeInt(entry.length);
+        out.write(entry);
+      }
+    }
+    if (bytes.size() > MAX_PAYLOAD)
+      throw new IOException("Feed cache payload too large: " + bytes.size() + " bytes");
+    return bytes.toByteArray();
+  }
+
+  private List<PostDTO> readPayload(ByteBuffer payload) {
+    readNames(payload).forEach(this.codec::registerAuthorName);
+    readNames(payload).forEach(this.codec::registerTagName);
+
+    int count = payload.getInt();
+    List<PostDTO> entries = new ArrayList<>(Math.max(0, count));
+    for (int i = 0; i < count; i++) {
+      byte[] entry = new byte[payload.getInt()];
+      payload.get(entry);
+      entries.add(this.codec.decode(entry));
+    }
+    return entries;
+  }
+
+  private static void writeNames(DataOutputStream out, Map<Long, String> names) throws IOException {
+    out.writeInt(names.size());
+    for (Map.Entry<Long, String> name : names.entrySet()) {
+      byte[] utf8 = name.getValue() == null ? new byte[0] : name.getValue().getBytes(StandardCharsets.UTF_8);
+      out.writeLong(name.getKey());
+      out.writeInt(utf8.length);
+      out.write(utf8);
+    }
+  }
+
+  private static Map<Long, String> readNames(ByteBuffer in) {
+    int count = in.getInt();
+    Map<Long, String> names = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      long id = in.getLong();
+      byte[] utf8 = new byte[in.getInt()];
+      in.get(utf8);
+      names.put(id, new String(utf8, StandardCharsets.UTF_8));
+    }
+    return names;
+  }
+
+  private static Path defaultPath() {
+    String configured = System.getProperty("bblog.feedCacheFile");
+    if (configured != null && !configured.isBlank())
+      return Path.of(configured);
+    return Path.of(System.getProperty("user.home"), ".b-blog", "feed-cache.bin");
+  }
+}
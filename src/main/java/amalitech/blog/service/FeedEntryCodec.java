@@ -0,0 +1,304 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dto.PostDTO;
+import amalitech.blog.model.Post;
+import amalitech.blog.model.Tag;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary form of a feed entry (the {@link PostDTO} a feed card shows).
+ * <p>
+ * Numbers are unsigned LEB128 varints, timestamps are microseconds (updated_at as a delta
+ * from created_at), and the body is cut to an excerpt. Author and tag names are not stored
+ * per entry: only their IDs are, and names are kept once in a shared dictionary that is
+ * refreshed every time an entry is encoded. Each dictionary holds at most {@link #MAX_NAMES}
+ * names; once full, names it does not know are written inline with the entry instead.
+ * </p>
+ * Decoded entries have their {@link PostDTO#isTruncated() truncated} flag set when the body
+ * was cut, and carry the word count of the full body.
+ */
+public final class FeedEntryCodec {
+
+  /** Layout version of encoded entries, to be bumped whenever the layout changes. */
+  public static final int VERSION = 2;
+
+  /** Characters of the body kept in an entry, more than a feed card shows. */
+  static final int EXCERPT_LENGTH = 280;
+
+  /** Names kept per dictionary, so their heap use stays bounded however many authors and tags there are. */
+  static final int MAX_NAMES = 4096;
+
+  // Rough heap cost of a dictionary entry besides the name's characters: map node, table slot, Long and String
+  private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+  private static final FeedEntryCodec INSTANCE = new FeedEntryCodec();
+
+  private static final int FLAG_DELETED = 1;
+  private static final int FLAG_TRUNCATED = 2;
+  private static final int FLAG_HAS_AUTHOR = 4;
+  private static final int FLAG_AUTHOR_NAME_INLINE = 8;
+
+  private final Map<Long, String> authorNames = new ConcurrentHashMap<>();
+  private final Map<Long, String> tagNames = new ConcurrentHashMap<>();
+
+  FeedEntryCodec() { }
+
+  /**
+   * @return the codec shared by every feed store, so they share the name dictionaries
+   */
+  public static FeedEntryCodec getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return number of names in the dictionaries and their approximate heap use
+   */
+  public String stats() {
+    return "feed.names: %d authors, %d tags, ~%d KB of heap (at most %d names each)".formatted(
+            this.authorNames.size(), this.tagNames.size(),
+            (heapBytes(this.authorNames) + heapBytes(this.tagNames)) / 1024, MAX_NAMES);
+  }
+
+  /**
+   * Encodes an entry, registering its author and tag names in the dictionary, or writing them
+   * inline if it is full.
+   *
+   * @param dto the entry
+   * @return the encoded bytes
+   */
+  public byte[] encode(PostDTO dto) {
+    Post post = dto.getPost();
+    String body = post.getBody() == null ? "" : post.getBody();
+    String excerpt = excerpt(body);
+    boolean truncated = dto.isTruncated() || excerpt.length() < body.length();
+    int wordCount = dto.getWordCount() > 0 ? dto.getWordCount() : countWords(body);
+
+    Long authorId = dto.getAuthorId() != null ? dto.getAuthorId() : post.getAuthorId();
+    boolean authorNameInline = authorId != null && !remember(this.authorNames, authorId, dto.getAuthorName());
+
+    Output out = new Output(64 + excerpt.length());
+    int flags = (post.isDeleted() ? FLAG_DELETED : 0)
+            | (truncated ? FLAG_TRUNCATED : 0)
+            | (authorId != null ? FLAG_HAS_AUTHOR : 0)
+            | (authorNameInline ? FLAG_AUTHOR_NAME_INLINE : 0);
+    out.writeVarLong(flags);
+    out.writeVarLong(post.getId());
+    if (authorId != null)
+      out.writeVarLong(authorId);
+    if (authorNameInline)
+      out.writeString(dto.getAuthorName());
+
+    long createdAt = toMicros(post.getCreatedAt());
+    out.writeVarLong(createdAt);
+    out.writeVarLong(Math.max(0, toMicros(post.getUpdatedAt()) - createdAt));
+
+    out.writeString(post.getTitle());
+    out.writeString(excerpt);
+    out.writeVarLong(wordCount);
+    out.writeVarLong(dto.getCommentCount());
+    out.writeVarLong(dto.getReviewCount());
+
+    List<Tag> tags = dto.getTags() == null ? List.of() : dto.getTags();
+    out.writeVarLong(tags.size());
+    for (Tag tag : tags) {
+      // The low bit tells whether the name follows
+      boolean inline = !remember(this.tagNames, tag.getId(), tag.getName());
+      out.writeVarLong(tag.getId() << 1 | (inline ? 1 : 0));
+      if (inline)
+        out.writeString(tag.getName());
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Decodes an entry into a new DTO, resolving author and tag names from the dictionary.
+   *
+   * @param bytes an encoded entry
+   * @return the entry; its body is the excerpt
+   */
+  public PostDTO decode(byte[] bytes) {
+    Input in = new Input(bytes);
+    int flags = (int) in.readVarLong();
+
+    Post post = new Post();
+    post.setId(in.readVarLong());
+    if ((flags & FLAG_HAS_AUTHOR) != 0)
+      post.setAuthorId(in.readVarLong());
+    String authorName = (flags & FLAG_AUTHOR_NAME_INLINE) != 0 ? in.readString() : null;
+    long createdAt = in.readVarLong();
+    post.setCreatedAt(fromMicros(createdAt));
+    post.setUpdatedAt(fromMicros(createdAt + in.readVarLong()));
+    post.setTitle(in.readString());
+    post.setBody(in.readString());
+    post.setDeleted((flags & FLAG_DELETED) != 0);
+
+    PostDTO dto = new PostDTO();
+    dto.setPost(post);
+    dto.setAuthorId(post.getAuthorId());
+    if (authorName != null)
+      dto.setAuthorName(authorName);
+    else if (post.getAuthorId() != null)
+      dto.setAuthorName(this.authorNames.get(post.getAuthorId()));
+    dto.setTruncated((flags & FLAG_TRUNCATED) != 0);
+    dto.setWordCount((int) in.readVarLong());
+    dto.setCommentCount((int) in.readVarLong());
+    dto.setReviewCount((int) in.readVarLong());
+
+    int tagCount = (int) in.readVarLong();
+    List<Tag> tags = new ArrayList<>(tagCount);
+    for (int i = 0; i < tagCount; i++) {
+      long idAndFlag = in.readVarLong();
+      Tag tag = new Tag();
+      tag.setId(idAndFlag >>> 1);
+      tag.setName((idAndFlag & 1) != 0 ? in.readString() : this.tagNames.get(tag.getId()));
+      tags.add(tag);
+    }
+    dto.setTags(tags);
+    return dto;
+  }
+
+  /**
+   * Registers names read from elsewhere (e.g. a persisted feed) unless fresher ones are known.
+   */
+  void registerAuthorName(long authorId, String name) {
+    if (name != null && this.authorNames.size() < MAX_NAMES)
+      this.authorNames.putIfAbsent(authorId, name);
+  }
+
+  void registerTagName(long tagId, String name) {
+    if (name != null && this.tagNames.size() < MAX_NAMES)
+      this.tagNames.putIfAbsent(tagId, name);
+  }
+
+  /**
+   * Keeps a name in a dictionary, unless it is full and does not know the ID yet.
+   * A {@code null} name is never written inline: decoding falls back to the dictionary.
+   *
+   * @return {@code false} if the name has to be written inline
+   */
+  private static boolean remember(Map<Long, String> names, Long id, String name) {
+    if (name == null)
+      return true;
+    // Entries are never removed: entries encoded earlier may still refer to them
+    if (names.size() >= MAX_NAMES && !names.containsKey(id))
+      return false;
+    names.put(id, name);
+    return true;
+  }
+
+  private static long heapBytes(Map<Long, String> names) {
+    long bytes = 0;
+    for (String name : names.values()) {
+      bytes += ENTRY_OVERHEAD_BYTES + name.length();
+    }
+    return bytes;
+  }
+
+  /**
+   * Words of a text, counted by whitespace boundaries.
+   */
+  public static int countWords(String text) {
+    int words = 0;
+    boolean inWord = false;
+    for (int i = 0; i < text.length(); i++) {
+      boolean whitespace = Character.isWhitespace(text.charAt(i));
+      if (!whitespace && !inWord)
+        words++;
+      inWord = !whitespace;
+    }
+    return words;
+  }
+
+  private static String excerpt(String body) {
+    if (body.length() <= EXCERPT_LENGTH)
+      return body;
+    int end = EXCERPT_LENGTH;
+    // Do not split a surrogate pair
+    if (Character.isHighSurrogate(body.charAt(end - 1)))
+      end--;
+    return body.substring(0, end);
+  }
+
+  static long toMicros(LocalDateTime time) {
+    if (time == null)
+      return 0;
+    return ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), time);
+  }
+
+  private static LocalDateTime fromMicros(long micros) {
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+            Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+  }
+
+  private static final class Output {
+    private byte[] buffer;
+    private int size;
+
+    Output(int capacity) {
+      this.buffer = new byte[capacity];
+    }
+
+    void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        this.buffer[this.size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      this.buffer[this.size++] = (byte) value;
+    }
+
+    void writeString(String value) {
+      byte[] utf8 = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+      writeVarLong(utf8.length);
+      ensureCapacity(utf8.length);
+      System.arraycopy(utf8, 0, this.buffer, this.size, utf8.length);
+      this.size += utf8.length;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(this.buffer, this.size);
+    }
+
+    private void ensureCapacity(int extra) {
+      if (this.size + extra > this.buffer.length)
+        this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.size + extra));
+    }
+  }
+
+  private static final class Input {
+    private final byte[] buffer;
+    private int position;
+
+    Input(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    long readVarLong() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = this.buffer[this.position++];
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    String readString() {
+      int length = (int) readVarLong();
+      String value = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+      this.position += length;
+      return value;
+    }
+  }
+}
@@ -0,0 +1,365 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dao.PostDAO;
+import amalitech.blog.dto.PostDTO;
+import amalitech.blog.service.cache.SlabStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Precomputed first pages of the feed, denormalized the way the home screen shows them:
+ * author name, tags and comment / review counts.
+ * <p>
+ * Built with a single query from {@link PostDAO#getFeedEntries(int, int)}, then maintained on write:
+ * creating, editing or deleting a post, changing its tags, or commenting on / reviewing a post
+ * in the snapshot reloads just that entry. Reading a page is a slice of an immutable list, so
+ * opening the home screen does not touch the database.
+ * </p>
+ * <p>
+ * Entries are kept off-heap in {@link CompactFeedStore#SNAPSHOT} and decoded per page read;
+ * if one of them has been evicted from the store, the snapshot is rebuilt.
+ * </p>
+ * <p>
+ * Changes that affect many entries at once (an author renaming themselves, a tag being
+ * renamed) simply drop the snapshot; the next read rebuilds it.
+ * </p>
+ * <p>
+ * Entries reloaded concurrently may be applied out of order: an entry older than the one held
+ * (by updated_at) is ignored, and so is one read before its post was removed.
+ * </p>
+ * Writes missed by this instance (e.g. while the change listener was reconnecting) are bounded
+ * with stale-while-revalidate: past a soft TTL since the last full build, reads are still
+ * served from the snapshot while one background rebuild runs, and callers can be called back
+ * with the rebuilt page; past a hard TTL, the read rebuilds it first.
+ */
+public class FeedSnapshot {
+
+  /** Number of posts held, i.e. the first five pages of 20. */
+  static final int CAPACITY = 100;
+
+  static final Duration SOFT_TTL = Duration.ofMinutes(2);
+  static final Duration HARD_TTL = Duration.ofMinutes(10);
+
+  // Removed posts remembered to ignore reads of them finishing late; deletions are final
+  private static final int REMOVED_REMEMBERED = 1_024;
+
+  private static final FeedSnapshot INSTANCE = new FeedSnapshot(new PostDAO(), CompactFeedStore.SNAPSHOT, CAPACITY,
+          SOFT_TTL, HARD_TTL);
+
+  private static final ExecutorService REVALIDATE_EXECUTOR = createRevalidateExecutor();
+
+  // Same order as the feed query: newest first, ties broken by ID
+  private static final Comparator<Entry> FEED_ORDER = Comparator
+          .comparingLong(Entry::createdAt).reversed()
+          .thenComparing(Comparator.comparingLong(Entry::postId).reversed());
+
+  private final PostDAO postDAO;
+  private final CompactFeedStore store;
+  private final int capacity;
+  private final long softTtlNanos;
+  private final long hardTtlNanos;
+  private final Logger log = LoggerFactory.getLogger(FeedSnapshot.class);
+
+  // Replaced on every change; null until built or after invalidate()
+  private volatile State state;
+  // The background rebuild, if one is running
+  private final AtomicReference<CompletableFuture<Void>> revalidation = new AtomicReference<>();
+  // Guarded by this
+  private final Set<Long> removedIds = Collections.newSetFromMap(new LinkedHashMap<>() {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+      return size() > REMOVED_REMEMBERED;
+    }
+  });
+
+  FeedSnapshot(PostDAO postDAO, CompactFeedStore store, int capacity, Duration softTtl, Duration hardTtl) {
+    this.postDAO = postDAO;
+    this.store = store;
+    this.capacity = capacity;
+    this.softTtlNanos = softTtl.toNanos();
+    this.hardTtlNanos = hardTtl.toNanos();
+  }
+
+  /**
+   * @return the snapshot shared by the whole application
+   */
+  public static FeedSnapshot getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns a page of the feed from the snapshot, building it first if needed.
+   *
+   * @param page     1-based page number
+   * @param pageSize number of posts per page
+   * @return the page, or {@code null} if it lies beyond the snapshot and must be read from the database
+   */
+  public List<PostDTO> page(int page, int pageSize) {
+    return page(page, pageSize, null);
+  }
+
+  /**
+   * Same as {@link #page(int, int)}; in addition, if the snapshot is past its soft TTL and is
+   * being rebuilt in the background, {@code onRefreshed} receives the page read from the rebuilt
+   * snapshot. It is called on the rebuild thread, and not at all if the rebuild fails.
+   *
+   * @param page        1-based page number
+   * @param pageSize    number of posts per page
+   * @param onRefreshed receives the refreshed page, may be {@code null}
+   * @return the page, or {@code null} if it lies beyond the snapshot and must be read from the database
+   */
+  public List<PostDTO> page(int page, int pageSize, Consumer<List<PostDTO>> onRefreshed) {
+    for (int attempt = 0; attempt < 2; attempt++) {
+      State current = this.state;
+      if (current == null || age(current) >= this.hardTtlNanos)
+        current = ensureFresh();
+
+      List<Entry> entries = current.entries();
+      int from = (Math.max(page, 1) - 1) * pageSize;
+      int to = from + pageSize;
+      if (to > entries.size() && !current.complete())
+        return null;
+
+      List<PostDTO> decoded = decode(entries.subList(Math.min(from, entries.size()), Math.min(to, entries.size())));
+      if (decoded != null) {
+        if (age(current) >= this.softTtlNanos)
+          revalidate(page, pageSize, onRefreshed);
+        return decoded;
+      }
+      // An entry was evicted from the store, start over from the database
+      invalidate();
+    }
+    return null;
+  }
+
+  private List<PostDTO> decode(List<Entry> entries) {
+    List<PostDTO> decoded = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      PostDTO dto = this.store.get(entry.ref());
+      if (dto == null)
+        return null;
+      decoded.add(dto);
+    }
+    return decoded;
+  }
+
+  /**
+   * Reloads the snapshot from the database.
+   */
+  public synchronized void rebuild() {
+    long start = System.nanoTime();
+    List<PostDTO> loaded = this.postDAO.getFeedEntries(0, this.capacity);
+    List<Entry> entries = new ArrayList<>(loaded.size());
+    for (PostDTO dto : loaded) {
+      Entry entry = toEntry(dto);
+      if (entry != null)
+        entries.add(entry);
+    }
+    this.state = new State(List.copyOf(entries), loaded.size() < this.capacity, System.nanoTime());
+    log.info("Feed snapshot built: {} posts in {} ms", loaded.size(), (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /**
+   * Drops the snapshot; the next read rebuilds it.
+   */
+  public synchronized void invalidate() {
+    this.state = null;
+  }
+
+  private synchronized State ensureFresh() {
+    if (this.state == null || age(this.state) >= this.hardTtlNanos)
+      rebuild();
+    return this.state;
+  }
+
+  private static long age(State state) {
+    return System.nanoTime() - state.builtAt();
+  }
+
+  /**
+   * Starts a background rebuild unless one is running, and calls back with the page once it is done.
+   */
+  private void revalidate(int page, int pageSize, Consumer<List<PostDTO>> onRefreshed) {
+    CompletableFuture<Void> running = this.revalidation.get();
+    if (running == null) {
+      CompletableFuture<Void> started = new CompletableFuture<>();
+      if (this.revalidation.compareAndSet(null, started)) {
+        REVALIDATE_EXECUTOR.execute(() -> {
+          try {
+            rebuild();
+            this.revalidation.set(null);
+            started.complete(null);
+          } catch (RuntimeException e) {
+            log.warn("Feed snapshot revalidation failed, serving the stale one", e);
+            this.revalidation.set(null);
+            started.completeExceptionally(e);
+          }
+        });
+        running = started;
+      } else {
+        running = this.revalidation.get();
+      }
+    }
+    if (onRefreshed != null && running != null) {
+      running.thenRun(() -> {
+        List<PostDTO> refreshed = page(page, pageSize);
+        if (refreshed != null)
+          onRefreshed.accept(refreshed);
+      });
+    }
+  }
+
+  /**
+   * Reloads the entry of a post that was created or changed, inserting it if it now belongs
+   * to the first pages and removing it if it is gone.
+   *
+   * @param postId the post
+   */
+  public void refresh(long postId) {
+    if (this.state == null)
+      return;
+    List<PostDTO> reloaded = this.postDAO.getFeedEntries(List.of(postId));
+    apply(postId, reloaded.isEmpty() ? null : reloaded.get(0));
+  }
+
+  /**
+   * Same as {@link #refresh(long)} with an entry already read, e.g. by change polling. Ignored
+   * if the snapshot holds a more recently updated entry of the post, or the post was removed.
+   *
+   * @param postId the post
+   * @param dto    its current feed entry; {@code null} or soft-deleted to remove it
+   */
+  public synchronized void apply(long postId, PostDTO dto) {
+    boolean removed = dto == null || dto.getPost().isDeleted();
+    if (removed)
+      this.removedIds.add(postId);
+    State current = this.state;
+    if (current == null)
+      return;
+    if (!removed && (this.removedIds.contains(postId) || isOlder(current, postId, dto))) {
+      log.debug("Ignoring an outdated feed entry of post {}", postId);
+      return;
+    }
+    List<Entry> updated = new ArrayList<>(current.entries());
+    updated.removeIf(entry -> entry.postId() == postId);
+    Entry entry = removed ? null : toEntry(dto);
+    if (entry != null)
+      insert(updated, entry, current.complete());
+    publish(updated, current);
+  }
+
+  /**
+   * Reloads the entry of a post only if it is in the snapshot, e.g. after a comment or review
+   * changed its counts.
+   *
+   * @param postId the post
+   */
+  public void refreshIfPresent(Long postId) {
+    if (postId != null && contains(postId))
+      refresh(postId);
+  }
+
+  /**
+   * Removes a deleted post.
+   *
+   * @param postId the post
+   */
+  public synchronized void remove(long postId) {
+    this.removedIds.add(postId);
+    State current = this.state;
+    if (current == null)
+      return;
+    List<Entry> updated = new ArrayList<>(current.entries());
+    if (updated.removeIf(entry -> entry.postId() == postId))
+      publish(updated, current);
+  }
+
+  // Whether the snapshot holds an entry of the post updated after the given one
+  private static boolean isOlder(State current, long postId, PostDTO dto) {
+    long updatedAt = FeedEntryCodec.toMicros(dto.getPost().getUpdatedAt());
+    return current.entries().stream().anyMatch(entry -> entry.postId() == postId && entry.updatedAt() > updatedAt);
+  }
+
+  private boolean contains(long postId) {
+    State current = this.state;
+    return current != null && current.entries().stream().anyMatch(entry -> entry.postId() == postId);
+  }
+
+  // Entries too large for a slab are left out, they are read from the database
+  private Entry toEntry(PostDTO dto) {
+    SlabStore.Ref ref = this.store.put(dto);
+    if (ref == null)
+      return null;
+    return new Entry(dto.getPost().getId(), FeedEntryCodec.toMicros(dto.getPost().getCreatedAt()),
+            FeedEntryCodec.toMicros(dto.getPost().getUpdatedAt()), ref);
+  }
+
+  /**
+   * Inserts an entry at its place in feed order. Older posts than the last held one are left
+   * out unless the snapshot holds every post.
+   */
+  private static void insert(List<Entry> updated, Entry entry, boolean complete) {
+    int position = 0;
+    while (position < updated.size() && FEED_ORDER.compare(updated.get(position), entry) < 0)
+      position++;
+    if (position < updated.size() || complete)
+      updated.add(position, entry);
+  }
+
+  // Caller holds the monitor; the new state keeps the build time of the one it was derived from
+  private void publish(List<Entry> updated, State current) {
+    boolean complete = current.complete();
+    if (updated.size() > this.capacity) {
+      updated.subList(this.capacity, updated.size()).clear();
+      complete = false;
+    }
+    if (!complete && updated.size() < this.capacity * 3 / 4) {
+      // Deletions ate too much of the pages it covers; refill on the next read
+      this.state = null;
+      return;
+    }
+    this.state = new State(List.copyOf(updated), complete, current.builtAt());
+  }
+
+  /**
+   * @param entries  immutable, in feed order
+   * @param complete whether entries hold every live post, i.e. fewer than capacity exist
+   * @param builtAt  {@link System#nanoTime()} of the last full build
+   */
+  private record State(List<Entry> entries, boolean complete, long builtAt) { }
+
+  /**
+   * @param postId    the post
+   * @param createdAt creation time in microseconds, for ordering
+   * @param updatedAt last update in microseconds, to tell which of two reads of the post is newer
+   * @param ref       the encoded entry
+   */
+  private record Entry(long postId, long createdAt, long updatedAt, SlabStore.Ref ref) { }
+
+  private static ExecutorService createRevalidateExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "feed-revalidate");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
@@ -2,28 +2,101 @@ package amalitech.blog.service;
 
 import de.mkammerer.argon2.Argon2;
 import de.mkammerer.argon2.Argon2Factory;
+import de.mkammerer.argon2.Argon2Helper;
+import io.github.cdimascio.dotenv.Dotenv;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-class PasswordHashService {
-  private static final int TIME_COST = 3;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Argon2id password hashing. Creating one loads the native Argon2 library, share instances.
+ * <p>
+ * Every hash or verification needs its memory cost in native memory (128 MB for new hashes),
+ * so they run on a few dedicated worker threads and are admitted against a memory budget
+ * ({@code ARGON2_MEMORY_BUDGET_MB}, 512 by default): the others wait in a bounded queue, and
+ * past {@value #QUEUE_CAPACITY} waiting requests new ones are rejected. A burst of logins
+ * costs queueing time, never more memory than the budget. Callers block until their request
+ * completed; Argon2 runs in native code, which would pin the carrier of a virtual thread.
+ * </p>
+ * The time cost of new hashes is calibrated once, on a thread of its own, so that a hash takes about
+ * {@code ARGON2_TARGET_MILLIS} (500 by default, 0 to skip) on this host, and is never below
+ * {@value #MIN_TIME_COST}. Hashes store their own parameters: existing ones still verify.
+ */
+public class PasswordHashService {
+
+  private static final Logger log = LoggerFactory.getLogger(PasswordHashService.class);
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+  private static final int MIN_TIME_COST = 3;
   private static final int MEMORY_COST = 131072; // 128 MB (in KB)
   private static final int PARALLELISM = 2;
+  private static final int QUEUE_CAPACITY = 64;
 
   private final Argon2 argon2;
+  private final ThreadPoolExecutor workers;
+  private final int memoryBudgetKb;
+  private final Semaphore memoryBudget; // One permit per KB
+  private volatile int timeCost = MIN_TIME_COST;
+
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final LongAdder hashNanos = new LongAdder();
 
   public PasswordHashService() {
+    this(settings());
+  }
+
+  private PasswordHashService(Dotenv settings) {
+    this(parseAtLeast(settings, "ARGON2_MEMORY_BUDGET_MB", 512, 1) * 1024,
+            parseAtLeast(settings, "ARGON2_TARGET_MILLIS", 500, 0));
+  }
+
+  /**
+   * @param memoryBudgetKb native memory the running requests may use at once, in KB
+   * @param targetMillis   time a new hash should take on this host; 0 keeps {@value #MIN_TIME_COST}
+   */
+  PasswordHashService(int memoryBudgetKb, long targetMillis) {
     this.argon2 = Argon2Factory.create(
             Argon2Factory.Argon2Types.ARGON2id
     );
+    this.memoryBudgetKb = Math.max(memoryBudgetKb, MEMORY_COST);
+    this.memoryBudget = new Semaphore(this.memoryBudgetKb, true);
+    // As many workers as new hashes fit in the budget, each using PARALLELISM cores
+    int workerCount = Math.max(1, Math.min(this.memoryBudgetKb / MEMORY_COST,
+            Runtime.getRuntime().availableProcessors() / PARALLELISM));
+    this.workers = new ThreadPoolExecutor(workerCount, workerCount, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+      Thread thread = new Thread(runnable, "argon2-" + THREAD_COUNTER.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.workers.allowCoreThreadTimeOut(true);
+
+    // On its own thread: the first login must not queue behind it on a worker
+    if (targetMillis > 0)
+      Thread.ofPlatform().daemon().name("argon2-calibration").start(() -> calibrate(targetMillis));
   }
 
   public String hash(char[] password) {
     try {
-      return argon2.hash(
-              TIME_COST,
+      return run(MEMORY_COST, () -> argon2.hash(
+              this.timeCost,
               MEMORY_COST,
               PARALLELISM,
               password
-      );
+      ));
     } finally {
       argon2.wipeArray(password);
     }
@@ -31,9 +104,136 @@ class PasswordHashService {
 
   public boolean verify(char[] password, String hash) {
     try {
-      return argon2.verify(hash, password);
+      return run(memoryCostOf(hash), () -> argon2.verify(hash, password));
     } finally {
       argon2.wipeArray(password);
     }
   }
+
+  /**
+   * @return time cost of new hashes, calibrated for this host once the calibration completed
+   */
+  public int getTimeCost() {
+    return this.timeCost;
+  }
+
+  /**
+   * @return requests waiting for a worker
+   */
+  public int getQueueLength() {
+    return this.workers.getQueue().size();
+  }
+
+  public long getCompletedCount() {
+    return this.completed.sum();
+  }
+
+  /**
+   * @return requests rejected because the queue was full
+   */
+  public long getRejectedCount() {
+    return this.rejected.sum();
+  }
+
+  /**
+   * @return average time a request waited for a worker and memory, in milliseconds
+   */
+  public double getAverageWaitMillis() {
+    long count = this.completed.sum();
+    return count == 0 ? 0 : this.waitNanos.sum() / 1e6 / count;
+  }
+
+  /**
+   * @return average time of a hash or verification, in milliseconds
+   */
+  public double getAverageHashMillis() {
+    long count = this.completed.sum();
+    return count == 0 ? 0 : this.hashNanos.sum() / 1e6 / count;
+  }
+
+  private <T> T run(int memoryKb, Supplier<T> job) {
+    long submitted = System.nanoTime();
+    Future<T> result;
+    try {
+      result = this.workers.submit((Callable<T>) () -> admitted(memoryKb, submitted, job));
+    } catch (RejectedExecutionException e) {
+      this.rejected.increment();
+      log.warn("Rejected a password hash: {} requests already waiting", QUEUE_CAPACITY);
+      throw new RuntimeException("Failed to hash password: too many requests in progress, try again", e);
+    }
+
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      result.cancel(false);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Failed to hash password: interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException)
+        throw runtimeException;
+      throw new RuntimeException("Failed to hash password", e.getCause());
+    }
+  }
+
+  // Runs on a worker once the request's memory is available
+  private <T> T admitted(int memoryKb, long submitted, Supplier<T> job) {
+    int permits = Math.min(memoryKb, this.memoryBudgetKb); // A request larger than the budget runs alone
+    this.memoryBudget.acquireUninterruptibly(permits);
+    long started = System.nanoTime();
+    try {
+      return job.get();
+    } finally {
+      this.memoryBudget.release(permits);
+      this.waitNanos.add(started - submitted);
+      this.hashNanos.add(System.nanoTime() - started);
+      this.completed.increment();
+    }
+  }
+
+  // Hashes with increasing time costs, within the memory budget but outside the workers and the metrics
+  private void calibrate(long targetMillis) {
+    this.memoryBudget.acquireUninterruptibly(MEMORY_COST);
+    try {
+      int iterations = Argon2Helper.findIterations(this.argon2, targetMillis, MEMORY_COST, PARALLELISM,
+              (tried, millis) -> log.debug("Argon2 calibration: time cost {} took {} ms", tried, millis));
+      this.timeCost = Math.max(iterations, MIN_TIME_COST);
+      log.info("Argon2 time cost set to {} for a target of {} ms", this.timeCost, targetMillis);
+    } catch (RuntimeException e) {
+      log.warn("Argon2 calibration failed, keeping time cost {}", this.timeCost, e);
+    } finally {
+      this.memoryBudget.release(MEMORY_COST);
+    }
+  }
+
+  /**
+   * Memory cost of an encoded hash ({@code $argon2id$v=19$m=131072,t=3,p=2$...}), in KB.
+   */
+  private static int memoryCostOf(String hash) {
+    int start = hash == null ? -1 : hash.indexOf("$m=");
+    if (start < 0)
+      return MEMORY_COST;
+    int end = start + 3;
+    while (end < hash.length() && Character.isDigit(hash.charAt(end)))
+      end++;
+    try {
+      return Integer.parseInt(hash, start + 3, end, 10);
+    } catch (NumberFormatException e) {
+      return MEMORY_COST;
+    }
+  }
+
+  private static Dotenv settings() {
+    return Dotenv.configure().ignoreIfMissing().load();
+  }
+
+  private static int parseAtLeast(Dotenv settings, String name, int defaultValue, int minimum) {
+    String value = settings.get(name);
+    try {
+      int parsed = value == null ? defaultValue : Integer.parseInt(value.trim());
+      return parsed >= minimum ? parsed : defaultValue;
+    } catch (NumberFormatException e) {
+      log.warn("Ignoring invalid {} '{}'", name, value);
+      return defaultValue;
+    }
+  }
 }
@@ -0,0 +1,298 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dto.PostDTO;
+import amalitech.blog.model.Comment;
+import amalitech.blog.model.Post;
+import amalitech.blog.model.Review;
+import amalitech.blog.service.cache.Cache;
+import amalitech.blog.service.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Everything the post detail screen shows for a post (post, author name, tags, comments and
+ * reviews), kept as one aggregate per post.
+ * <p>
+ * Each aggregate depends on its post, comments and reviews, which it holds, and on its author
+ * and tags, which it shares with other posts. Writes made by this instance patch the aggregate
+ * in place (a new comment is appended, an edited review replaced, ...) so it stays exact
+ * without a reload; changes to an author or a tag drop the aggregates depending on them,
+ * found through reverse indexes; writes known only by ID (e.g. from another instance) drop
+ * the aggregate of the post.
+ * </p>
+ * Aggregates are handed out as copies, callers may modify them.
+ */
+public class PostDetailCache {
+
+  // Comment order of the detail screen, oldest first
+  static final Comparator<Comment> COMMENT_ORDER = Comparator
+          .comparing(Comment::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+          .thenComparing(Comment::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+  private static final PostDetailCache INSTANCE = new PostDetailCache(CacheManager.getOrCreate("post.detail",
+          () -> Cache.<Long, PostDTO>builder("post.detail")
+                  .maximumSize(500)
+                  .expireAfterWrite(Duration.ofMinutes(30))
+                  .build()));
+
+  private final Cache<Long, PostDTO> cache;
+
+  // Reverse dependencies: posts whose aggregate shows a tag / an author name.
+  // Posts evicted by size or age linger until that tag or author changes, which only costs a no-op invalidation.
+  private final Map<Long, Set<Long>> postsByTag = new ConcurrentHashMap<>();
+  private final Map<Long, Set<Long>> postsByAuthor = new ConcurrentHashMap<>();
+  // Bumped on every tag or author change, to catch the ones racing with a load
+  private final AtomicLong sharedChanges = new AtomicLong();
+
+  PostDetailCache(Cache<Long, PostDTO> cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * @return the cache shared by the whole application
+   */
+  public static PostDetailCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the aggregate of a post, loading it on a miss.
+   *
+   * @param postId the post
+   * @param loader reads the aggregate from the database, returning {@code null} if the post does not exist
+   * @return a copy of the aggregate, or {@code null} if the post does not exist
+   */
+  public PostDTO get(long postId, Function<Long, PostDTO> loader) {
+    long changes = this.sharedChanges.get();
+    PostDTO detail = this.cache.get(postId, id -> {
+      PostDTO loaded = loader.apply(id);
+      if (loaded != null)
+        index(loaded);
+      return loaded;
+    });
+    if (this.sharedChanges.get() != changes) {
+      // A tag or author changed while loading, maybe before the dependencies were indexed
+      this.cache.invalidate(postId);
+    }
+    return detail == null ? null : copy(detail);
+  }
+
+  /**
+   * Drops the aggregate of a post, e.g. after a change known only by ID.
+   */
+  public void invalidate(Long postId) {
+    if (postId != null)
+      this.cache.invalidate(postId);
+  }
+
+  public void onPostUpdated(Post updated) {
+    if (updated == null || updated.getId() == null)
+      return;
+    patch(updated.getId(), detail -> {
+      Post post = copy(detail.getPost());
+      post.setTitle(updated.getTitle());
+      post.setBody(updated.getBody());
+      post.setUpdatedAt(updated.getUpdatedAt());
+      detail.setPost(post);
+      detail.setWordCount(FeedEntryCodec.countWords(post.getBody() == null ? "" : post.getBody()));
+    });
+  }
+
+  /**
+   * Drops the aggregates showing a tag that was renamed or deleted.
+   */
+  public void onTagChanged(Long tagId) {
+    dropDependents(this.postsByTag, tagId);
+  }
+
+  /**
+   * Drops the aggregates showing the name of an author.
+   */
+  public void onAuthorChanged(Long userId) {
+    dropDependents(this.postsByAuthor, userId);
+  }
+
+  public void onCommentCreated(Comment created) {
+    if (created == null || created.getPostId() == null)
+      return;
+    Comment comment = copy(created);
+    patchComments(created.getPostId(), comments -> {
+      comments.add(comment);
+      comments.sort(COMMENT_ORDER);
+    });
+  }
+
+  public void onCommentUpdated(Comment updated) {
+    if (updated == null || updated.getPostId() == null)
+      return;
+    patchComments(updated.getPostId(), comments -> comments.replaceAll(comment -> {
+      if (!comment.getId().equals(updated.getId()))
+        return comment;
+      Comment edited = copy(comment);
+      edited.setBody(updated.getBody());
+      edited.setUpdatedAt(updated.getUpdatedAt());
+      return edited;
+    }));
+  }
+
+  /**
+   * Removes a deleted comment. Its replies stay, as they do in the database.
+   */
+  public void onCommentDeleted(Comment deleted) {
+    if (deleted == null || deleted.getPostId() == null)
+      return;
+    patchComments(deleted.getPostId(), comments -> comments.removeIf(comment -> comment.getId().equals(deleted.getId())));
+  }
+
+  /**
+   * Adds a new review or replaces the user's previous one.
+   */
+  public void onReviewSaved(Review saved) {
+    if (saved == null || saved.getPostId() == null)
+      return;
+    patchReviews(saved.getPostId(), reviews -> {
+      int index = indexOf(reviews, review -> review.getId().equals(saved.getId()));
+      if (index >= 0)
+        reviews.set(index, copy(saved, reviews.get(index)));
+      else
+        reviews.add(copy(saved, null));
+    });
+  }
+
+  public void onReviewDeleted(Review deleted) {
+    if (deleted == null || deleted.getPostId() == null)
+      return;
+    patchReviews(deleted.getPostId(), reviews -> reviews.removeIf(review -> review.getId().equals(deleted.getId())));
+  }
+
+  private void index(PostDTO detail) {
+    long postId = detail.getPost().getId();
+    if (detail.getAuthorId() != null)
+      this.postsByAuthor.computeIfAbsent(detail.getAuthorId(), id -> ConcurrentHashMap.newKeySet()).add(postId);
+    if (detail.getTags() != null)
+      detail.getTags().forEach(tag ->
+              this.postsByTag.computeIfAbsent(tag.getId(), id -> ConcurrentHashMap.newKeySet()).add(postId));
+  }
+
+  private void dropDependents(Map<Long, Set<Long>> dependents, Long id) {
+    if (id == null)
+      return;
+    // Bump first: a load finishing after this point re-checks and drops itself
+    this.sharedChanges.incrementAndGet();
+    Set<Long> postIds = dependents.remove(id);
+    if (postIds != null)
+      postIds.forEach(this.cache::invalidate);
+  }
+
+  // Patches run under the cache's segment lock and work on a copy, readers keep seeing the previous aggregate
+  private void patch(long postId, Consumer<PostDTO> change) {
+    this.cache.patch(postId, current -> {
+      PostDTO updated = shallowCopy(current);
+      change.accept(updated);
+      return updated;
+    });
+  }
+
+  private void patchComments(long postId, Consumer<List<Comment>> change) {
+    patch(postId, detail -> {
+      List<Comment> comments = new ArrayList<>(detail.getComments());
+      change.accept(comments);
+      detail.setComments(List.copyOf(comments));
+      detail.setCommentCount(comments.size());
+    });
+  }
+
+  private void patchReviews(long postId, Consumer<List<Review>> change) {
+    patch(postId, detail -> {
+      List<Review> reviews = new ArrayList<>(detail.getReviews());
+      change.accept(reviews);
+      detail.setReviews(List.copyOf(reviews));
+      detail.setReviewCount(reviews.size());
+    });
+  }
+
+  private static <T> int indexOf(List<T> list, Predicate<T> predicate) {
+    for (int i = 0; i < list.size(); i++) {
+      if (predicate.test(list.get(i)))
+        return i;
+    }
+    return -1;
+  }
+
+  private static PostDTO shallowCopy(PostDTO detail) {
+    PostDTO copy = new PostDTO();
+    copy.setPost(detail.getPost());
+    copy.setAuthorId(detail.getAuthorId());
+    copy.setAuthorName(detail.getAuthorName());
+    copy.setTags(detail.getTags());
+    copy.setComments(detail.getComments());
+    copy.setReviews(detail.getReviews());
+    copy.setCommentCount(detail.getCommentCount());
+    copy.setReviewCount(detail.getReviewCount());
+    copy.setWordCount(detail.getWordCount());
+    return copy;
+  }
+
+  // The cached post, comments and reviews are never modified, so callers get their own
+  private static PostDTO copy(PostDTO detail) {
+    PostDTO copy = shallowCopy(detail);
+    copy.setPost(copy(detail.getPost()));
+    copy.setTags(new ArrayList<>(detail.getTags()));
+    List<Comment> comments = new ArrayList<>(detail.getComments().size());
+    detail.getComments().forEach(comment -> comments.add(copy(comment)));
+    copy.setComments(comments);
+    List<Review> reviews = new ArrayList<>(detail.getReviews().size());
+    detail.getReviews().forEach(review -> reviews.add(copy(review, null)));
+    copy.setReviews(reviews);
+    return copy;
+  }
+
+  private static Post copy(Post post) {
+    Post copy = new Post();
+    copy.setId(post.getId());
+    copy.setAuthorId(post.getAuthorId());
+    copy.setTitle(post.getTitle());
+    copy.setBody(post.getBody());
+    copy.setCreatedAt(post.getCreatedAt());
+    copy.setUpdatedAt(post.getUpdatedAt());
+    copy.setDeletedAt(post.getDeletedAt());
+    copy.setDeleted(post.isDeleted());
+    return copy;
+  }
+
+  private static Comment copy(Comment comment) {
+    Comment copy = new Comment();
+    copy.setId(comment.getId());
+    copy.setPostId(comment.getPostId());
+    copy.setUserId(comment.getUserId());
+    copy.setBody(comment.getBody());
+    copy.setParentCommentId(comment.getParentCommentId());
+    copy.setCreatedAt(comment.getCreatedAt());
+    copy.setUpdatedAt(comment.getUpdatedAt());
+    return copy;
+  }
+
+  /**
+   * Copies a review; fields the write did not return are taken from the review it replaces.
+   */
+  private static Review copy(Review review, Review previous) {
+    Review copy = new Review();
+    copy.setId(review.getId());
+    copy.setPostId(review.getPostId());
+    copy.setUserId(review.getUserId() != null || previous == null ? review.getUserId() : previous.getUserId());
+    copy.setRate(review.getRate());
+    copy.setCreatedAt(review.getCreatedAt() != null || previous == null ? review.getCreatedAt() : previous.getCreatedAt());
+    copy.setUpdatedAt(review.getUpdatedAt());
+    return copy;
+  }
+}
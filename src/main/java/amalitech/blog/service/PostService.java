@@ -1,39 +1,97 @@
 package amalitech.blog.service;
 
 import amalitech.blog.dao.PostDAO;
+import amalitech.blog.dao.enums.TagMatch;
 import amalitech.blog.dto.PostDTO;
+import amalitech.blog.model.Comment;
 import amalitech.blog.model.Post;
+import amalitech.blog.model.Review;
 import amalitech.blog.model.Tag;
+import amalitech.blog.model.User;
+import amalitech.blog.service.cache.Cache;
+import amalitech.blog.service.cache.CacheManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class PostService {
 
+  /**
+   * Posts per page of the home feed, the page warmed at startup.
+   */
+  public static final int FEED_PAGE_SIZE = 20;
+
+  // Feed pages beyond the snapshot, keyed by page~pageSize and held off-heap; any post write can change any page.
+  // Stale-while-revalidate: served as is for 1 minute, then refreshed in the background, reloaded after 5.
+  private static final Cache<String, CompactFeedStore.Page> FEED_CACHE = CacheManager.getOrCreate("post.feed",
+          () -> Cache.<String, CompactFeedStore.Page>builder("post.feed")
+                  .maximumSize(64)
+                  .expireAfterWrite(Duration.ofMinutes(5))
+                  .refreshAfterWrite(Duration.ofMinutes(1))
+                  .refreshJitter(0.2)
+                  .build());
+
+  // Bumped with every invalidateFeed(): a post written here or elsewhere
+  private static final AtomicLong FEED_VERSION = new AtomicLong();
+
+  // Posts of an author, bounded by the total number of posts held
+  private static final Cache<Long, List<Post>> POSTS_BY_AUTHOR_CACHE = CacheManager.getOrCreate("post.byAuthor",
+          () -> Cache.<Long, List<Post>>builder("post.byAuthor")
+                  .maximumWeight(10_000, (authorId, posts) -> posts.size())
+                  .expireAfterWrite(Duration.ofMinutes(5))
+                  .refreshJitter(0.2)
+                  .build());
+
+  // Changes committed out of updated_at order (a write's timestamp is its transaction start) are
+  // caught by re-reading this much before the watermark; applying a change twice is harmless
+  private static final Duration CHANGE_POLL_OVERLAP = Duration.ofSeconds(5);
+  private static final int CHANGE_POLL_LIMIT = 500;
+
   private final PostDAO postDAO;
   private final TagService tagService;
   private final PostTagsService postTagsService;
   private final UserService userService;
   private final ReviewService reviewService;
   private final CommentService commentService;
+  private final TagBitmapIndex tagBitmapIndex;
+  private final FeedSnapshot feedSnapshot;
+  private final PostDetailCache postDetailCache;
+  private final ServiceExecutor executor;
+  private final Prefetcher prefetcher;
   private final Logger log = LoggerFactory.getLogger(PostService.class);
-  private Map<String, List<PostDTO>> cachedPostDTOs = new HashMap<>();
-  private final Map<Long, List<Post>> cachedPostByAuthor = new HashMap<>();
 
   public PostService(){
-    this.postDAO = new PostDAO();
-    this.tagService = new TagService();
-    this.postTagsService = new PostTagsService();
-    this.userService = new UserService();
-    this.reviewService = new ReviewService();
-    this.commentService = new CommentService();
+    this(new PostDAO(), new TagService(), new PostTagsService(), new UserService(), new ReviewService(),
+            new CommentService());
+  }
+
+  public PostService(PostDAO postDAO, TagService tagService, PostTagsService postTagsService,
+                     UserService userService, ReviewService reviewService, CommentService commentService){
+    this.postDAO = postDAO;
+    this.tagService = tagService;
+    this.postTagsService = postTagsService;
+    this.userService = userService;
+    this.reviewService = reviewService;
+    this.commentService = commentService;
+    this.tagBitmapIndex = TagBitmapIndex.getInstance();
+    this.feedSnapshot = FeedSnapshot.getInstance();
+    this.postDetailCache = PostDetailCache.getInstance();
+    this.executor = ServiceExecutor.getInstance();
+    this.prefetcher = Prefetcher.getInstance();
   }
 
   public Post create(Post post, Set<String> tags){
 
     Post newPost =  this.postDAO.create(post);
     log.debug("post created with id: {}", newPost.getId());
+    this.tagBitmapIndex.addPost(newPost.getId());
 
     tags.forEach(name -> {
       log.debug("Tag name: {}", name);
@@ -43,78 +101,324 @@ public class PostService {
       log.debug("Tag created name: {}", t.getName());
       this.postTagsService.create(newPost.getId(), t.getId());
     });
-    this.cachedPostDTOs = new HashMap<>();
-    this.cachedPostByAuthor.remove(post.getAuthorId());
+    this.feedSnapshot.refresh(newPost.getId());
+    invalidateFeed();
+    invalidateAuthor(post.getAuthorId());
     return  newPost;
   }
 
+  /**
+   * {@link #create(Post, Set)} on the {@link ServiceExecutor}.
+   */
+  public CompletableFuture<Post> createAsync(Post post, Set<String> tags){
+    return this.executor.supply(() -> this.create(post, tags));
+  }
+
   public Post update(Long id, Post post){
-    this.cachedPostByAuthor.remove(post.getAuthorId());
-    return this.postDAO.update(id, post);
+    Post updated = this.postDAO.update(id, post);
+    this.postDetailCache.onPostUpdated(updated);
+    this.feedSnapshot.refresh(id);
+    invalidateFeed();
+    invalidateAuthor(post.getAuthorId());
+    return updated;
+  }
+
+  public CompletableFuture<Post> updateAsync(Long id, Post post){
+    return this.executor.supply(() -> this.update(id, post));
   }
 
   public void delete(Long id){
-    this.postDAO.delete(id);
+    Post post = this.postDAO.get(id);
+    if (this.postDAO.delete(id)) {
+      this.tagBitmapIndex.removePost(id);
+      this.postTagsService.onPostDeleted(id);
+      this.feedSnapshot.remove(id);
+      this.postDetailCache.invalidate(id);
+      invalidateFeed();
+      if (post != null)
+        invalidateAuthor(post.getAuthorId());
+    }
+  }
+
+  public CompletableFuture<Void> deleteAsync(Long id){
+    return this.executor.run(() -> this.delete(id));
+  }
+
+  /**
+   * Drops every cached feed page, e.g. after a post's tags changed.
+   */
+  static void invalidateFeed(){
+    FEED_VERSION.incrementAndGet();
+    FEED_CACHE.invalidateAll();
+  }
+
+  /**
+   * @return a number that changes whenever a post is written, by this instance or another one;
+   * results derived from the posts (e.g. cached search results) are stale once it changed
+   */
+  public static long getFeedVersion(){
+    return FEED_VERSION.get();
+  }
+
+  /**
+   * Drops the cached posts and stats of an author.
+   */
+  static void invalidateAuthor(Long authorId){
+    if (authorId == null)
+      return;
+    POSTS_BY_AUTHOR_CACHE.invalidate(authorId);
+    UserService.invalidateStats(authorId);
   }
 
   public List<PostDTO> loadFeed() {
-    return this.loadFeed(1, 20);
+    return this.loadFeed(1, FEED_PAGE_SIZE);
   }
-    public List<PostDTO> loadFeed(int page, int pageSize){
+
+  /**
+   * Feed page hydrated post by post. The author, tags, reviews and comments of every post on the
+   * page are independent lookups and all run concurrently, within the connection budget.
+   */
+  public List<PostDTO> loadFeed(int page, int pageSize){
     List<Post> posts = this.postDAO.getAll(page, pageSize);
-    List<PostDTO> postDetails = new ArrayList<>();
+    try (TaskScope scope = new TaskScope(this.executor)) {
+      List<Supplier<PostDTO>> postDetails = new ArrayList<>(posts.size());
+      posts.forEach(post -> postDetails.add(this.hydrate(scope, post)));
+      scope.join();
+      List<PostDTO> hydrated = new ArrayList<>(postDetails.size());
+      postDetails.forEach(dto -> hydrated.add(dto.get()));
+      return hydrated;
+    }
+  }
 
-    posts.forEach(post -> {
+  private Supplier<PostDTO> hydrate(TaskScope scope, Post post){
+    Supplier<User> author = scope.fork(() -> this.userService.get(post.getAuthorId()));
+    Supplier<List<Tag>> tags = scope.fork(() -> {
+      // Tags by ID are served by the tag cache
+      List<Tag> postTags = new ArrayList<>();
+      this.postTagsService.getTagsIdByPostId(post.getId()).forEach(a -> postTags.add(this.tagService.get(a)));
+      return postTags;
+    });
+    Supplier<List<Review>> reviews = scope.fork(() -> this.reviewService.getByPostId(post.getId()));
+    Supplier<Integer> commentCount = scope.fork(() -> this.commentService.getByPostId(post.getId()).size());
+    return () -> {
       PostDTO dto = new PostDTO();
       dto.setPost(post);
-      var author = this.userService.get(post.getAuthorId());
-      dto.setAuthorId(author.getId());
-      dto.setAuthorName(author.getFirstName() + " " + author.getLastName());
-
-      List<Long> tagsId = this.postTagsService.getTagsIdByPostId(post.getId());
-      List<Tag> tags = new ArrayList<>();
-      tagsId.forEach(a -> tags.add(this.tagService.get(a)) );
-      dto.setTags(tags);
-
-      dto.setReviews(this.reviewService.getByPostId(post.getId()));
-      this.commentService.getByPostId(post.getId());
-      postDetails.add(dto);
-    });
-      this.cachedPostDTOs = new HashMap<>();
-    return  postDetails;
+      dto.setAuthorId(author.get().getId());
+      dto.setAuthorName(author.get().getFirstName() + " " + author.get().getLastName());
+      dto.setTags(tags.get());
+      dto.setReviews(reviews.get());
+      dto.setReviewCount(dto.getReviews().size());
+      dto.setCommentCount(commentCount.get());
+      return dto;
+    };
   }
 
   public List<PostDTO> loadFeed(boolean withPerformance) {
     return loadFeed(1, 20, withPerformance);
   }
 
+  /**
+   * Feed page with author, tags and engagement counts. The first pages are a range read of the
+   * in-memory {@link FeedSnapshot}; later pages are read in one query and cached off-heap.
+   * Entries of both carry an excerpt of the body, see {@link PostDTO#isTruncated()}.
+   */
   public List<PostDTO> loadFeed(int page, int pageSize, boolean withPerformance){
     if (!withPerformance)
       return loadFeed();
-    if(this.cachedPostDTOs.get(this.makeCacheKeyforLoadFeed(page, pageSize))!= null)
-      return this.cachedPostDTOs.get(this.makeCacheKeyforLoadFeed(page, pageSize));
+    return loadFeed(page, pageSize, null);
+  }
+
+  /**
+   * Stale-while-revalidate feed page: the page is always returned right away, from memory unless
+   * it is missing or past its hard TTL. If it is past its soft TTL, one background refresh runs
+   * and {@code onRefreshed} receives the refreshed page, on a background thread.
+   *
+   * @param onRefreshed receives the refreshed page, may be {@code null}
+   */
+  public List<PostDTO> loadFeed(int page, int pageSize, Consumer<List<PostDTO>> onRefreshed){
+    List<PostDTO> snapshotPage = this.feedSnapshot.page(page, pageSize, onRefreshed);
+    if (snapshotPage != null)
+      return snapshotPage;
+    int offset = (Math.max(page, 1) - 1) * pageSize;
+    String key = this.makeCacheKeyforLoadFeed(page, pageSize);
+    Consumer<CompactFeedStore.Page> onPageRefreshed = onRefreshed == null ? null : refreshed -> {
+      List<PostDTO> entries = CompactFeedStore.PAGES.getPage(refreshed);
+      if (entries != null)
+        onRefreshed.accept(entries);
+    };
+    CompactFeedStore.Page cached = FEED_CACHE.get(key,
+            k -> CompactFeedStore.PAGES.putPage(this.postDAO.getFeedEntries(offset, pageSize)), onPageRefreshed);
+    List<PostDTO> entries = cached == null ? null : CompactFeedStore.PAGES.getPage(cached);
+    if (entries == null) {
+      // Evicted from the off-heap store since it was cached
+      FEED_CACHE.invalidate(key);
+      entries = this.postDAO.getFeedEntries(offset, pageSize);
+    }
+    return entries;
+  }
 
-    var res = this.postDAO.getPostDTOs(page, pageSize, null, null, null, false );
-    this.cachedPostDTOs.put(makeCacheKeyforLoadFeed(page, pageSize), res);
-    return res;
+  /**
+   * {@link #loadFeed(int, int, Consumer)} on the {@link ServiceExecutor}.
+   */
+  public CompletableFuture<List<PostDTO>> loadFeedAsync(int page, int pageSize, Consumer<List<PostDTO>> onRefreshed){
+    return this.executor.supply(() -> this.loadFeed(page, pageSize, onRefreshed));
+  }
+
+  /**
+   * Reads the posts created, edited or deleted since the previous poll and merges them into the
+   * cached feed: the snapshot is patched with the entries read, cached pages are dropped, and
+   * cached details of edited and deleted posts are patched or dropped. One indexed range scan
+   * from the watermark instead of reloading the feed.
+   *
+   * @param previous the result of the previous poll; {@code null} for the first poll, which
+   *                 only reads the current watermark
+   * @return the changes, oldest first, to pass to the next poll
+   */
+  public FeedChanges pollFeedChanges(FeedChanges previous){
+    if (previous == null)
+      return new FeedChanges(List.of(), List.of(), List.of(), this.postDAO.getLatestUpdate(), Map.of());
+    // No post existed at the previous poll: every post is a change
+    LocalDateTime watermark = previous.watermark() != null ? previous.watermark() : LocalDateTime.of(1970, 1, 1, 0, 0);
+    LocalDateTime since = watermark.minus(CHANGE_POLL_OVERLAP);
+    List<PostDTO> rows = this.postDAO.findChangedSince(since, CHANGE_POLL_LIMIT);
+    for (PostDTO row : rows) {
+      if (row.getPost().getUpdatedAt().isAfter(watermark))
+        watermark = row.getPost().getUpdatedAt();
+    }
+
+    List<PostDTO> created = new ArrayList<>();
+    List<PostDTO> updated = new ArrayList<>();
+    List<Long> deletedIds = new ArrayList<>();
+    Map<Long, LocalDateTime> recent = new HashMap<>();
+    LocalDateTime recentFrom = watermark.minus(CHANGE_POLL_OVERLAP);
+    for (PostDTO row : rows) {
+      Post post = row.getPost();
+      if (post.getUpdatedAt().isAfter(recentFrom))
+        recent.put(post.getId(), post.getUpdatedAt());
+      if (post.getUpdatedAt().equals(previous.recent().get(post.getId())))
+        continue; // Reported by the previous poll
+      this.feedSnapshot.apply(post.getId(), row);
+      if (post.isDeleted()) {
+        deletedIds.add(post.getId());
+        this.postDetailCache.invalidate(post.getId());
+      } else if (post.getCreatedAt().isAfter(since)) {
+        created.add(row);
+      } else {
+        updated.add(row);
+        this.postDetailCache.onPostUpdated(post);
+      }
+    }
+    FeedChanges changes = new FeedChanges(created, updated, deletedIds, watermark, recent);
+    if (!changes.isEmpty())
+      invalidateFeed();
+    return changes;
+  }
+
+  public CompletableFuture<FeedChanges> pollFeedChangesAsync(FeedChanges previous){
+    return this.executor.supply(() -> this.pollFeedChanges(previous));
+  }
+
+  /**
+   * Warms the feed page the user is about to scroll to, in the background and at low priority
+   * (see {@link Prefetcher}). Replaces the pending feed prefetch.
+   */
+  public void prefetchFeed(int page, int pageSize){
+    this.prefetcher.prefetch("post.feed", () -> this.loadFeed(page, pageSize, null));
+  }
+
+  /**
+   * The feed page persisted by the previous {@link #persistFeed(List)}, read from disk only.
+   * Meant to be shown while the fresh feed loads; bodies are excerpts.
+   */
+  public List<PostDTO> loadPersistedFeed(){
+    return FeedDiskCache.getInstance().load();
+  }
+
+  /**
+   * Persists a feed page for the next launch. Blocks on disk I/O, call it off the FX thread.
+   */
+  public void persistFeed(List<PostDTO> posts){
+    FeedDiskCache.getInstance().save(posts);
+  }
+
+  /**
+   * Feed page restricted to posts matching a tag combination, most recent first.
+   * Candidate IDs come from the in-memory tag bitmap index; only the page itself is read from the database.
+   */
+  public List<PostDTO> loadFeed(TagFilter filter, int page, int pageSize){
+    int offset = (Math.max(page, 1) - 1) * pageSize;
+    List<Long> ids = this.tagBitmapIndex.candidates(filter, offset, pageSize);
+    return this.postDAO.getFeedEntries(ids);
+  }
+
+  public CompletableFuture<List<PostDTO>> loadFeedAsync(TagFilter filter, int page, int pageSize){
+    return this.executor.supply(() -> this.loadFeed(filter, page, pageSize));
+  }
+
+  public List<PostDTO> search(String query, int page, int pageSize){
+    return this.postDAO.getPostDTOs(page, pageSize, query, null, null, false);
+  }
+
+  /**
+   * Keyword search restricted to posts having all (or any) of the given tags, in a single query.
+   */
+  public List<PostDTO> search(String query, Collection<Long> tagIds, TagMatch match, int page, int pageSize){
+    return this.postDAO.getPostDTOs(page, pageSize, query, tagIds, match, null, false);
   }
 
   public PostDTO loadById(Long id){
-    Post post = this.postDAO.get(id);
+    return this.loadDetail(id);
+  }
 
-    PostDTO dto = new PostDTO();
-    dto.setPost(post);
-    var author = this.userService.get(post.getAuthorId());
-    dto.setAuthorName(author.getFirstName() + " " + author.getLastName());
-    List<Long> tagsId = this.postTagsService.getTagsIdByPostId(post.getId());
-    List<Tag> tags = new ArrayList<>();
-    tagsId.forEach(a -> tags.add(this.tagService.get(a)) );
-    dto.setTags(tags);
+  /**
+   * Everything the post detail screen shows: the full post, author name, tags, comments (oldest
+   * first) and reviews. Served from {@link PostDetailCache}, which the services keep exact on write.
+   *
+   * @return the post's details, or {@code null} if it does not exist
+   */
+  public PostDTO loadDetail(Long id){
+    return this.postDetailCache.get(id, postId -> {
+      // The post with its author and tags, its comments and its reviews are read concurrently
+      try (TaskScope scope = new TaskScope(this.executor)) {
+        Supplier<List<PostDTO>> entries = scope.fork(() -> this.postDAO.getFeedEntries(List.of(postId)));
+        Supplier<List<Comment>> postComments = scope.fork(() -> this.commentService.getByPostId(postId));
+        Supplier<List<Review>> postReviews = scope.fork(() -> this.reviewService.getByPostId(postId));
+        scope.join();
+        if (entries.get().isEmpty())
+          return null;
+        PostDTO dto = entries.get().get(0);
+        String body = dto.getPost().getBody();
+        dto.setWordCount(FeedEntryCodec.countWords(body == null ? "" : body));
 
-    dto.setReviews(this.reviewService.getByPostId(post.getId()));
-    this.commentService.getByPostId(post.getId());
+        List<Comment> comments = new ArrayList<>(postComments.get());
+        comments.sort(PostDetailCache.COMMENT_ORDER);
+        dto.setComments(List.copyOf(comments));
+        dto.setCommentCount(comments.size());
+        dto.setReviews(List.copyOf(postReviews.get()));
+        dto.setReviewCount(dto.getReviews().size());
+        dto.setTags(List.copyOf(dto.getTags()));
+        return dto;
+      }
+    });
+  }
+
+  public CompletableFuture<PostDTO> loadDetailAsync(Long id){
+    return this.executor.supply(() -> this.loadDetail(id));
+  }
 
-    return  dto;
+  /**
+   * Warms the details of a post the user is likely to open (e.g. a hovered card), in the
+   * background and at low priority. Replaces the pending detail prefetch.
+   */
+  public void prefetchDetail(Long id){
+    this.prefetcher.prefetch("post.detail", () -> this.loadDetail(id));
+  }
+
+  /**
+   * Cancels the pending detail prefetch, e.g. when the user no longer points at the post.
+   */
+  public void cancelDetailPrefetch(){
+    this.prefetcher.cancel("post.detail");
   }
 
   public Post getById(Long id){
@@ -129,11 +433,7 @@ public class PostService {
     if(!withPerformance)
       return this.postDAO.getByAuthorId(id);
 
-    if ( cachedPostByAuthor.get(id) == null) {
-      var posts = this.postDAO.getByAuthorId(id);
-      cachedPostByAuthor.put(id, posts);
-    }
-    return this.cachedPostByAuthor.get(id);
+    return POSTS_BY_AUTHOR_CACHE.get(id, this.postDAO::getByAuthorId);
   }
 
   private String makeCacheKeyforLoadFeed(int page, int pageSize){
@@ -9,9 +9,17 @@ import java.util.List;
 
 public class PostTagsService {
   private final PostTagsDAO postTagsDAO;
+  private final TagPopularityIndex popularityIndex;
+  private final TagBitmapIndex bitmapIndex;
   private final Logger log = LoggerFactory.getLogger(PostTagsService.class);
   public PostTagsService(){
-    this.postTagsDAO = new PostTagsDAO();
+    this(new PostTagsDAO());
+  }
+
+  public PostTagsService(PostTagsDAO postTagsDAO){
+    this.postTagsDAO = postTagsDAO;
+    this.popularityIndex = TagPopularityIndex.getInstance();
+    this.bitmapIndex = TagBitmapIndex.getInstance();
   }
 
   public PostTags create (Long postId, Long tagId){
@@ -21,7 +29,10 @@ public class PostTagsService {
     postTags.setPostId(postId);
     postTags.setTagId(tagId);
 
-    this.postTagsDAO.create(postTags);
+    if (this.postTagsDAO.createIfAbsent(postTags)) {
+      this.popularityIndex.adjust(tagId, 1);
+      this.bitmapIndex.addTag(postId, tagId);
+    }
     return postTags;
   }
   public List<Long> getTagsIdByPostId(Long postId){
@@ -33,10 +44,16 @@ public class PostTagsService {
   }
 
   public void deletePostTags(Long postId){
-    this.postTagsDAO.deleteByPost(postId);
+    List<Long> removedTagIds = this.postTagsDAO.deleteByPost(postId);
+    removedTagIds.forEach(tagId -> this.popularityIndex.adjust(tagId, -1));
+    this.bitmapIndex.removeTags(postId, removedTagIds);
   }
 
-  public List<Long> getTopTagsId(int limit){
-    return this.postTagsDAO.findTopTagsId(limit);
+  /**
+   * Stops counting the tags of a soft-deleted post: its post_tags rows stay, but a deleted
+   * post no longer uses them.
+   */
+  public void onPostDeleted(Long postId){
+    this.postTagsDAO.findTagIdsByPost(postId).forEach(tagId -> this.popularityIndex.adjust(tagId, -1));
   }
 }
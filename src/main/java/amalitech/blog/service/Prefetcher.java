@@ -0,0 +1,148 @@
+package amalitech.blog.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Warms caches ahead of the navigation the user is likely to make next.
+ * <p>
+ * Prefetches are low priority: each one waits a short delay (so intents that change right away,
+ * like a pointer passing over cards, cost nothing), then runs only if no foreground call is
+ * waiting for a connection and one of the few prefetch slots is free; otherwise it is dropped.
+ * Each prefetch belongs to an intent (e.g. "the hovered post"): a new prefetch for the same
+ * intent, or {@link #cancel(String)}, cancels the previous one if it has not started yet. Started
+ * prefetches run to completion, they only fill caches the foreground reads.
+ * </p>
+ */
+public final class Prefetcher {
+
+  private static final Logger log = LoggerFactory.getLogger(Prefetcher.class);
+
+  private static final int PENDING = 0;
+  private static final int RUNNING = 1;
+  private static final int CANCELLED = 2;
+
+  private static final Prefetcher INSTANCE = new Prefetcher(ServiceExecutor.getInstance(), 2, 150);
+
+  private final ServiceExecutor executor;
+  private final Semaphore budget;
+  private final long delayMillis;
+  private final Map<String, Prefetch> pendingByIntent = new ConcurrentHashMap<>();
+
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder cancelled = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  /**
+   * @param executor    runs the prefetches, which take its connection permits like any call
+   * @param budget      prefetches running at once
+   * @param delayMillis delay before a prefetch starts, during which it can be cancelled
+   */
+  Prefetcher(ServiceExecutor executor, int budget, long delayMillis) {
+    this.executor = executor;
+    this.budget = new Semaphore(budget);
+    this.delayMillis = delayMillis;
+  }
+
+  /**
+   * @return the prefetcher shared by the whole application
+   */
+  public static Prefetcher getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Schedules a prefetch, cancelling the pending one of the same intent.
+   *
+   * @param intent what the user is about to do, e.g. {@code "post.detail"}
+   * @param warm   the blocking load filling the cache; its failures are only logged
+   */
+  public void prefetch(String intent, Runnable warm) {
+    Prefetch prefetch = new Prefetch(intent, warm);
+    Prefetch previous = this.pendingByIntent.put(intent, prefetch);
+    if (previous != null)
+      previous.cancel();
+    this.executor.execute(prefetch);
+  }
+
+  /**
+   * Cancels the pending prefetch of an intent, e.g. when the pointer left the hovered card.
+   */
+  public void cancel(String intent) {
+    Prefetch pending = this.pendingByIntent.remove(intent);
+    if (pending != null)
+      pending.cancel();
+  }
+
+  public long getCompletedCount() {
+    return this.completed.sum();
+  }
+
+  public long getCancelledCount() {
+    return this.cancelled.sum();
+  }
+
+  /**
+   * @return prefetches skipped because the foreground was busy or the budget was used
+   */
+  public long getDroppedCount() {
+    return this.dropped.sum();
+  }
+
+  private final class Prefetch implements Runnable {
+    private final String intent;
+    private final Runnable warm;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private volatile Thread thread;
+
+    Prefetch(String intent, Runnable warm) {
+      this.intent = intent;
+      this.warm = warm;
+    }
+
+    void cancel() {
+      if (this.state.compareAndSet(PENDING, CANCELLED)) {
+        cancelled.increment();
+        // Only ever interrupts the delay: once running, the state is no longer PENDING
+        Thread sleeping = this.thread;
+        if (sleeping != null)
+          sleeping.interrupt();
+      }
+    }
+
+    @Override
+    public void run() {
+      this.thread = Thread.currentThread();
+      try {
+        Thread.sleep(delayMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+      pendingByIntent.remove(this.intent, this);
+      if (executor.getQueueLength() > 0 || !budget.tryAcquire()) {
+        if (this.state.compareAndSet(PENDING, CANCELLED))
+          dropped.increment();
+        return;
+      }
+      try {
+        if (!this.state.compareAndSet(PENDING, RUNNING))
+          return;
+        executor.callWithPermit(() -> {
+          this.warm.run();
+          return null;
+        });
+        completed.increment();
+      } catch (RuntimeException e) {
+        log.debug("Prefetch for {} failed", this.intent, e);
+      } finally {
+        budget.release();
+      }
+    }
+  }
+}
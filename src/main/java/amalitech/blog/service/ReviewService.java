@@ -1,15 +1,34 @@
 package amalitech.blog.service;
 
 import amalitech.blog.dao.ReviewDAO;
+import amalitech.blog.dto.RatingSummaryDTO;
+import amalitech.blog.dto.ReviewUpsertDTO;
 import amalitech.blog.model.Review;
+import amalitech.blog.service.cache.Cache;
+import amalitech.blog.service.cache.CacheManager;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class ReviewService {
 
+  // Entries are dropped whenever a review of the post changes
+  private static final Cache<Long, RatingSummaryDTO> RATING_SUMMARY_CACHE = CacheManager.getOrCreate("review.ratingSummary",
+          () -> Cache.<Long, RatingSummaryDTO>builder("review.ratingSummary")
+                  .maximumSize(5_000)
+                  .expireAfterWrite(Duration.ofMinutes(10))
+                  .build());
+
   private final ReviewDAO reviewDAO;
+  private final ServiceExecutor executor;
   public ReviewService (){
-    this.reviewDAO = new ReviewDAO();
+    this(new ReviewDAO());
+  }
+
+  public ReviewService(ReviewDAO reviewDAO){
+    this.reviewDAO = reviewDAO;
+    this.executor = ServiceExecutor.getInstance();
   }
 
   public List<Review> getByPostId(Long postId){
@@ -20,16 +39,70 @@ public class ReviewService {
     return this.reviewDAO.getByUserId(userId);
   }
 
+  /**
+   * Count, average and histogram of the ratings of a post, computed once and then served from memory.
+   */
+  public RatingSummaryDTO getRatingSummary(Long postId){
+    return RATING_SUMMARY_CACHE.get(postId, this.reviewDAO::getRatingSummary);
+  }
+
+  public CompletableFuture<RatingSummaryDTO> getRatingSummaryAsync(Long postId){
+    return this.executor.supply(() -> this.getRatingSummary(postId));
+  }
+
   public Review create(Review review){
-    return this.reviewDAO.create(review);
+    Review created = this.reviewDAO.create(review);
+    RATING_SUMMARY_CACHE.invalidate(review.getPostId());
+    UserService.invalidateStats(review.getUserId());
+    FeedSnapshot.getInstance().refreshIfPresent(review.getPostId());
+    PostDetailCache.getInstance().onReviewSaved(created);
+    return created;
+  }
+
+  /**
+   * Creates or replaces the user's review of the post in one round trip. The returned summary is
+   * for immediate display only: it misses reviews of other users committed concurrently, so the
+   * cached one is dropped and read again after the commit.
+   */
+  public ReviewUpsertDTO rate(Review review){
+    ReviewUpsertDTO result = this.reviewDAO.upsert(review);
+    RATING_SUMMARY_CACHE.invalidate(review.getPostId());
+    PostDetailCache.getInstance().onReviewSaved(result.getReview());
+    if (result.isCreated()) {
+      UserService.invalidateStats(review.getUserId());
+      FeedSnapshot.getInstance().refreshIfPresent(review.getPostId());
+    }
+    return result;
+  }
+
+  public CompletableFuture<ReviewUpsertDTO> rateAsync(Review review){
+    return this.executor.supply(() -> this.rate(review));
   }
 
   public Review update(Long id, Review review){
-    return this.reviewDAO.update(id, review);
+    Review updated = this.reviewDAO.update(id, review);
+    if (updated != null) {
+      RATING_SUMMARY_CACHE.invalidate(updated.getPostId());
+      PostDetailCache.getInstance().onReviewSaved(updated);
+    }
+    return updated;
+  }
+
+  static void invalidateRatingSummary(Long postId){
+    if (postId != null)
+      RATING_SUMMARY_CACHE.invalidate(postId);
   }
 
   public boolean delete(Long id){
-    return this.reviewDAO.delete(id);
+    Review review = this.reviewDAO.get(id);
+    boolean deleted = this.reviewDAO.delete(id);
+    if (deleted && review != null) {
+      RATING_SUMMARY_CACHE.invalidate(review.getPostId());
+      UserService.invalidateStats(review.getUserId());
+      FeedSnapshot.getInstance().refreshIfPresent(review.getPostId());
+      PostDetailCache.getInstance().onReviewDeleted(review);
+    }
+    return deleted;
   }
 
 }
@@ -0,0 +1,134 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dao.DatabaseConnection;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs the asynchronous service methods, one virtual thread per call.
+ * <p>
+ * Threads are cheap but connections are not: at most
+ * {@link DatabaseConnection#getMaxConnections()} calls run at once, the others wait for a
+ * permit (parking their virtual thread, not a platform thread). Calls are independent, so
+ * loads started together overlap up to that budget.
+ * </p>
+ * Futures complete on the virtual thread; UI code hands them back to the FX thread itself.
+ * Calls fan out their independent queries through a {@link TaskScope}.
+ */
+public final class ServiceExecutor {
+
+  private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+          Thread.ofVirtual().name("service-", 0).factory());
+  private final Semaphore permits;
+
+  // Set while the current thread runs a call holding a permit
+  private final ThreadLocal<Boolean> holdsPermit = new ThreadLocal<>();
+
+  /**
+   * A blocking wait.
+   */
+  @FunctionalInterface
+  interface Wait {
+    void await() throws InterruptedException;
+  }
+
+  ServiceExecutor(int maxConcurrentCalls) {
+    this.permits = new Semaphore(maxConcurrentCalls, true);
+  }
+
+  /**
+   * @return the executor shared by every service
+   */
+  public static ServiceExecutor getInstance() {
+    return Shared.INSTANCE;
+  }
+
+  /**
+   * Runs a service call on a virtual thread once a connection permit is available.
+   *
+   * @param call the blocking call
+   * @return its result; completes exceptionally with what the call threw
+   */
+  public <T> CompletableFuture<T> supply(Supplier<T> call) {
+    return CompletableFuture.supplyAsync(() -> callWithPermit(call), this.executor);
+  }
+
+  /**
+   * Same as {@link #supply(Supplier)} for calls without a result.
+   */
+  public CompletableFuture<Void> run(Runnable call) {
+    return supply(() -> {
+      call.run();
+      return null;
+    });
+  }
+
+  /**
+   * Runs a call on a virtual thread without taking a connection permit, for calls that mostly
+   * wait on something else (e.g. password hashing). Their database calls go through
+   * {@link #callWithPermit(Supplier)}.
+   */
+  <T> CompletableFuture<T> supplyWithoutPermit(Supplier<T> call) {
+    return CompletableFuture.supplyAsync(call, this.executor);
+  }
+
+  /**
+   * Runs a call on the current thread once a connection permit is available.
+   */
+  <T> T callWithPermit(Supplier<T> call) {
+    try {
+      this.permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while waiting for a connection");
+    }
+    this.holdsPermit.set(Boolean.TRUE);
+    try {
+      return call.get();
+    } finally {
+      this.holdsPermit.remove();
+      this.permits.release();
+    }
+  }
+
+  /**
+   * Blocks until {@code wait} returns. A caller holding a permit gives it back meanwhile and
+   * takes one again afterwards: a call waiting for its own parts must not keep them from running.
+   */
+  void awaitWithoutPermit(Wait wait) throws InterruptedException {
+    if (this.holdsPermit.get() == null) {
+      wait.await();
+      return;
+    }
+    this.permits.release();
+    try {
+      wait.await();
+    } finally {
+      this.permits.acquireUninterruptibly();
+    }
+  }
+
+  /**
+   * Starts a task on its own virtual thread, without taking a permit.
+   */
+  void execute(Runnable task) {
+    this.executor.execute(task);
+  }
+
+  /**
+   * @return calls currently waiting for a permit
+   */
+  public int getQueueLength() {
+    return this.permits.getQueueLength();
+  }
+
+  // Created on first use, not when the class loads: the budget is read from the database settings
+  private static final class Shared {
+    static final ServiceExecutor INSTANCE = new ServiceExecutor(DatabaseConnection.getMaxConnections());
+  }
+}
@@ -0,0 +1,51 @@
+package amalitech.blog.service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Boolean combination of tags used to filter the feed,
+ * e.g. {@code allOf(java, performance)} or {@code and(anyOf(x, y), not(tag(z)))}.
+ */
+public sealed interface TagFilter {
+
+  static TagFilter tag(Long tagId) {
+    return new HasTag(tagId);
+  }
+
+  static TagFilter allOf(Collection<Long> tagIds) {
+    return new All(tagIds.stream().map(TagFilter::tag).toList());
+  }
+
+  static TagFilter anyOf(Collection<Long> tagIds) {
+    return new Any(tagIds.stream().map(TagFilter::tag).toList());
+  }
+
+  static TagFilter and(TagFilter... filters) {
+    return new All(List.of(filters));
+  }
+
+  static TagFilter or(TagFilter... filters) {
+    return new Any(List.of(filters));
+  }
+
+  static TagFilter not(TagFilter filter) {
+    return new Not(filter);
+  }
+
+  /** Posts having the tag. */
+  record HasTag(Long tagId) implements TagFilter {
+  }
+
+  /** Posts matching every operand (all posts if there is none). */
+  record All(List<TagFilter> operands) implements TagFilter {
+  }
+
+  /** Posts matching at least one operand (no post if there is none). */
+  record Any(List<TagFilter> operands) implements TagFilter {
+  }
+
+  /** Posts not matching the operand. */
+  record Not(TagFilter operand) implements TagFilter {
+  }
+}
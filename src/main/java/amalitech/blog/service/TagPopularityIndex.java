@@ -0,0 +1,161 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dao.TagDAO;
+import amalitech.blog.dto.TagUsageDTO;
+import amalitech.blog.model.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory usage count per tag with an always sorted ranking.
+ * <p>
+ * Loaded once from {@link TagDAO} (names and counts in a single query), then kept up to date
+ * incrementally whenever a post_tags row is inserted or deleted. Reading the top K tags walks
+ * the first K entries of the ranking, so it does not depend on how many posts exist.
+ * </p>
+ */
+public class TagPopularityIndex {
+
+  private static final TagPopularityIndex INSTANCE = new TagPopularityIndex(new TagDAO());
+
+  private static final Comparator<TagCount> BY_POPULARITY = Comparator
+          .comparingInt((TagCount t) -> t.count).reversed()
+          .thenComparing(t -> t.name)
+          .thenComparing(t -> t.id);
+
+  private final TagDAO tagDAO;
+  private final Logger log = LoggerFactory.getLogger(TagPopularityIndex.class);
+  private final Map<Long, TagCount> byId = new ConcurrentHashMap<>();
+  private final TreeSet<TagCount> ranking = new TreeSet<>(BY_POPULARITY);
+  private volatile boolean loaded;
+
+  TagPopularityIndex(TagDAO tagDAO) {
+    this.tagDAO = tagDAO;
+  }
+
+  /**
+   * @return the index shared by the whole application
+   */
+  public static TagPopularityIndex getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Loads all tags and their usage counts, unless already loaded.
+   */
+  public synchronized void ensureLoaded() {
+    if (this.loaded)
+      return;
+
+    this.tagDAO.getAllWithUsage().forEach(usage -> {
+      TagCount tagCount = new TagCount(usage.getId(), usage.getName(), usage.getPostCount());
+      this.byId.put(tagCount.id, tagCount);
+      this.ranking.add(tagCount);
+    });
+    this.loaded = true;
+    log.debug("Tag popularity index loaded: {} tags", this.byId.size());
+  }
+
+  /**
+   * Reloads all tags and their usage counts if they were loaded, e.g. when changes may have been missed.
+   */
+  public synchronized void reload() {
+    if (!this.loaded)
+      return;
+    this.byId.clear();
+    this.ranking.clear();
+    this.loaded = false;
+    ensureLoaded();
+  }
+
+  /**
+   * Returns the K most used tags, most used first.
+   *
+   * @param limit K
+   * @return tag ids, names and post counts
+   */
+  public synchronized List<TagUsageDTO> top(int limit) {
+    ensureLoaded();
+    List<TagUsageDTO> top = new ArrayList<>(Math.max(limit, 0));
+    Iterator<TagCount> it = this.ranking.iterator();
+    while (it.hasNext() && top.size() < limit) {
+      top.add(it.next().toDTO());
+    }
+    return top;
+  }
+
+  /**
+   * @return every known tag with its usage count
+   */
+  public synchronized List<TagUsageDTO> all() {
+    ensureLoaded();
+    List<TagUsageDTO> all = new ArrayList<>(this.byId.size());
+    this.ranking.forEach(t -> all.add(t.toDTO()));
+    return all;
+  }
+
+  /**
+   * @param tagId the tag
+   * @return number of posts using the tag, 0 if unknown
+   */
+  public int count(Long tagId) {
+    TagCount tagCount = this.byId.get(tagId);
+    return tagCount == null ? 0 : tagCount.count;
+  }
+
+  /**
+   * Registers a newly created tag with no usage yet.
+   */
+  public synchronized void add(Tag tag) {
+    if (!this.loaded || tag == null || tag.getId() == null || this.byId.containsKey(tag.getId()))
+      return;
+    TagCount tagCount = new TagCount(tag.getId(), tag.getName(), 0);
+    this.byId.put(tagCount.id, tagCount);
+    this.ranking.add(tagCount);
+  }
+
+  /**
+   * Records that a post_tags row was inserted (+1) or deleted (-1) for the tag.
+   */
+  public synchronized void adjust(Long tagId, int delta) {
+    if (!this.loaded)
+      return;
+    TagCount tagCount = this.byId.get(tagId);
+    if (tagCount == null) {
+      log.debug("Usage change for unknown tag {} ignored", tagId);
+      return;
+    }
+    // Re-insert so the ranking stays ordered
+    this.ranking.remove(tagCount);
+    tagCount.count = Math.max(0, tagCount.count + delta);
+    this.ranking.add(tagCount);
+  }
+
+  private static final class TagCount {
+    private final Long id;
+    private final String name;
+    private volatile int count;
+
+    private TagCount(Long id, String name, int count) {
+      this.id = id;
+      this.name = name;
+      this.count = count;
+    }
+
+    private TagUsageDTO toDTO() {
+      TagUsageDTO dto = new TagUsageDTO();
+      dto.setId(this.id);
+      dto.setName(this.name);
+      dto.setPostCount(this.count);
+      return dto;
+    }
+  }
+}
@@ -1,36 +1,110 @@
 package amalitech.blog.service;
 
 import amalitech.blog.dao.TagDAO;
+import amalitech.blog.dto.TagUsageDTO;
 import amalitech.blog.model.Tag;
+import amalitech.blog.service.cache.Cache;
+import amalitech.blog.service.cache.CacheManager;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class TagService {
+
+  // Tags are looked up by id for every post of a feed page
+  private static final Cache<Long, Tag> TAG_BY_ID_CACHE = CacheManager.getOrCreate("tag.byId",
+          () -> Cache.<Long, Tag>builder("tag.byId")
+                  .maximumSize(10_000)
+                  .expireAfterWrite(Duration.ofMinutes(30))
+                  .build());
+
+  // Exact tag name -> id, so name lookups share the instances of TAG_BY_ID_CACHE
+  private static final Cache<String, Long> TAG_ID_BY_NAME_CACHE = CacheManager.getOrCreate("tag.idByName",
+          () -> Cache.<String, Long>builder("tag.idByName")
+                  .maximumSize(10_000)
+                  .expireAfterWrite(Duration.ofMinutes(30))
+                  .build());
+
   private final TagDAO tagDAO;
   private final PostTagsService postTagsService;
+  private final TagSuggestionIndex suggestionIndex;
+  private final TagPopularityIndex popularityIndex;
+  private final ServiceExecutor executor;
 
   public TagService(){
-    this.tagDAO = new TagDAO();
-    this.postTagsService = new PostTagsService();
+    this(new TagDAO(), new PostTagsService());
+  }
+
+  public TagService(TagDAO tagDAO, PostTagsService postTagsService){
+    this.tagDAO = tagDAO;
+    this.postTagsService = postTagsService;
+    this.suggestionIndex = TagSuggestionIndex.getInstance();
+    this.popularityIndex = TagPopularityIndex.getInstance();
+    this.executor = ServiceExecutor.getInstance();
   }
   public List<Tag> getAll(){
     return this.tagDAO.getAll();
   }
 
 
+  /**
+   * Read-through lookup served from the shared identity cache. The returned instance is shared; do not modify it.
+   */
   public Tag get(Long id){
-    return this.tagDAO.get(id);
+    return TAG_BY_ID_CACHE.get(id, this.tagDAO::get);
+  }
+
+  /**
+   * Same as {@link #get(Long)}, by exact tag name.
+   */
+  public Tag getByName(String name){
+    Long id = TAG_ID_BY_NAME_CACHE.get(name, key -> {
+      Tag tag = this.tagDAO.get(key);
+      if (tag == null)
+        return null;
+      TAG_BY_ID_CACHE.put(tag.getId(), tag);
+      return tag.getId();
+    });
+    return id == null ? null : this.get(id);
   }
 
   public Tag create(String name){
-    Tag exist = this.tagDAO.get(name);
+    Tag exist = this.getByName(name);
     Tag t = new Tag();
     t.setName(name);
     if (exist != null){
       return exist;
     }
-   return this.tagDAO.create(t);
+    Tag created = this.tagDAO.create(t);
+    TAG_BY_ID_CACHE.put(created.getId(), created);
+    TAG_ID_BY_NAME_CACHE.put(created.getName(), created.getId());
+    this.popularityIndex.add(created);
+    this.suggestionIndex.add(created);
+    return created;
+  }
+
+  /**
+   * Suggests existing tag names for what the user is typing, most used first.
+   * Served from memory; returns nothing until {@link #loadSuggestions()} has completed.
+   */
+  public List<String> suggest(String prefix, int limit){
+    return this.suggestionIndex.suggest(prefix, limit);
+  }
+
+  /**
+   * Drops a tag renamed or deleted elsewhere (e.g. by another application instance).
+   */
+  static void evictTag(Long id){
+    TAG_BY_ID_CACHE.invalidate(id);
+    PostDetailCache.getInstance().onTagChanged(id);
+    // The old name is unknown here; name mappings are cheap to rebuild
+    TAG_ID_BY_NAME_CACHE.invalidateAll();
+  }
+
+  public void loadSuggestions(){
+    this.suggestionIndex.ensureLoaded();
   }
 
   public void updatePostTags(Long postId, List<String> tags){
@@ -39,12 +113,36 @@ public class TagService {
       Tag tag = this.create(tagName);
       this.postTagsService.create(postId, tag.getId());
     });
+    // Feed pages show the tags of each post
+    FeedSnapshot.getInstance().refresh(postId);
+    PostService.invalidateFeed();
+    PostDetailCache.getInstance().invalidate(postId);
+  }
+
+  public CompletableFuture<Void> updatePostTagsAsync(Long postId, List<String> tags){
+    return this.executor.run(() -> this.updatePostTags(postId, tags));
   }
 
   public List<Tag> getTop(int limit){
     List<Tag> tags = new ArrayList<>(limit);
-    this.postTagsService.getTopTagsId(limit).forEach(e -> tags.add(this.get(e)));
+    this.popularityIndex.top(limit).forEach(usage -> {
+      Tag tag = new Tag();
+      tag.setId(usage.getId());
+      tag.setName(usage.getName());
+      tags.add(tag);
+    });
     return tags;
   }
 
+  /**
+   * Most used tags with their post counts, served from the in-memory popularity index.
+   */
+  public List<TagUsageDTO> getTopUsage(int limit){
+    return this.popularityIndex.top(limit);
+  }
+
+  public CompletableFuture<List<TagUsageDTO>> getTopUsageAsync(int limit){
+    return this.executor.supply(() -> this.getTopUsage(limit));
+  }
+
 }
@@ -0,0 +1,159 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dto.TagUsageDTO;
+import amalitech.blog.model.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * In-memory prefix index over all tag names, used for tag autocomplete.
+ * <p>
+ * Tag names are kept in a sorted array (lower-cased keys) so a prefix lookup is two
+ * binary searches followed by a scan of the matching range, ranked by the usage counts
+ * of {@link TagPopularityIndex}. The index is loaded once and patched when tags are
+ * created; lookups never touch the database.
+ * </p>
+ * Readers work on an immutable snapshot, so lookups are lock-free.
+ */
+public class TagSuggestionIndex {
+
+  private static final TagSuggestionIndex INSTANCE = new TagSuggestionIndex(TagPopularityIndex.getInstance());
+
+  private final TagPopularityIndex popularityIndex;
+  private final Logger log = LoggerFactory.getLogger(TagSuggestionIndex.class);
+  private volatile Entry[] entries;
+
+  TagSuggestionIndex(TagPopularityIndex popularityIndex) {
+    this.popularityIndex = popularityIndex;
+  }
+
+  /**
+   * @return the index shared by the whole application
+   */
+  public static TagSuggestionIndex getInstance() {
+    return INSTANCE;
+  }
+
+  public boolean isLoaded() {
+    return this.entries != null;
+  }
+
+  /**
+   * Loads all tag names, unless already loaded.
+   */
+  public synchronized void ensureLoaded() {
+    if (this.entries == null)
+      this.entries = load();
+  }
+
+  /**
+   * Reloads all tag names if they were loaded, e.g. when changes may have been missed.
+   * Lookups keep using the current names until the new ones are ready.
+   */
+  public synchronized void reload() {
+    if (this.entries != null)
+      this.entries = load();
+  }
+
+  private Entry[] load() {
+    long start = System.nanoTime();
+    List<TagUsageDTO> usages = this.popularityIndex.all();
+    Entry[] loaded = new Entry[usages.size()];
+    for (int i = 0; i < loaded.length; i++) {
+      TagUsageDTO usage = usages.get(i);
+      loaded[i] = new Entry(key(usage.getName()), usage.getName(), usage.getId());
+    }
+    Arrays.sort(loaded, (a, b) -> a.key.compareTo(b.key));
+    log.debug("Tag suggestion index loaded: {} tags in {} ms", loaded.length, (System.nanoTime() - start) / 1_000_000);
+    return loaded;
+  }
+
+  /**
+   * Returns the most used tag names starting with the given prefix (case-insensitive).
+   * Returns nothing while the index is still loading.
+   *
+   * @param prefix what the user typed so far
+   * @param limit  max number of suggestions
+   * @return tag names, most used first
+   */
+  public List<String> suggest(String prefix, int limit) {
+    Entry[] snapshot = this.entries;
+    if (snapshot == null || prefix == null || prefix.isBlank() || limit <= 0)
+      return List.of();
+
+    String key = key(prefix);
+    int from = lowerBound(snapshot, key);
+    int to = lowerBound(snapshot, key + Character.MAX_VALUE);
+
+    // Keep the best `limit` entries of the range, ordered by usage desc
+    List<Entry> best = new ArrayList<>(limit + 1);
+    List<Integer> bestUsage = new ArrayList<>(limit + 1);
+    for (int i = from; i < to; i++) {
+      Entry candidate = snapshot[i];
+      int usage = this.popularityIndex.count(candidate.id);
+      int pos = best.size();
+      while (pos > 0 && bestUsage.get(pos - 1) < usage) {
+        pos--;
+      }
+      if (pos < limit) {
+        best.add(pos, candidate);
+        bestUsage.add(pos, usage);
+        if (best.size() > limit) {
+          best.remove(limit);
+          bestUsage.remove(limit);
+        }
+      }
+    }
+
+    List<String> names = new ArrayList<>(best.size());
+    best.forEach(e -> names.add(e.name));
+    return names;
+  }
+
+  /**
+   * Adds a newly created tag. No-op if the index is not loaded yet or already knows the name.
+   *
+   * @param tag the created tag
+   */
+  public synchronized void add(Tag tag) {
+    Entry[] current = this.entries;
+    if (current == null || tag == null || tag.getName() == null)
+      return;
+
+    String key = key(tag.getName());
+    int pos = lowerBound(current, key);
+    if (pos < current.length && current[pos].key.equals(key))
+      return;
+
+    Entry[] updated = new Entry[current.length + 1];
+    System.arraycopy(current, 0, updated, 0, pos);
+    updated[pos] = new Entry(key, tag.getName(), tag.getId());
+    System.arraycopy(current, pos, updated, pos + 1, current.length - pos);
+    this.entries = updated;
+  }
+
+  private static int lowerBound(Entry[] sorted, String key) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sorted[mid].key.compareTo(key) < 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  private static String key(String name) {
+    return name.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private record Entry(String key, String name, Long id) {
+  }
+}
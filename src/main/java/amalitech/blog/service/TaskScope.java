@@ -0,0 +1,124 @@
+package amalitech.blog.service;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future.State;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent parts of one service call concurrently and waits for all of them,
+ * like {@code StructuredTaskScope.ShutdownOnFailure} (still a preview API in Java 21).
+ * <p>
+ * Each part runs on its own virtual thread and takes a permit of the {@link ServiceExecutor},
+ * so fanning out never opens more connections than the budget. {@link #join()} returns once
+ * every part completed: the call takes as long as its slowest part, not the sum of them. The
+ * first part to fail cancels (interrupts) the others and its exception is rethrown by
+ * {@code join}. Closing the scope cancels the parts still running, e.g. when {@code join} was
+ * interrupted.
+ * </p>
+ * A scope belongs to the thread that opened it:
+ * <pre>{@code
+ * try (TaskScope scope = new TaskScope()) {
+ *   Supplier<List<Comment>> comments = scope.fork(() -> commentService.getByPostId(id));
+ *   Supplier<List<Review>> reviews = scope.fork(() -> reviewService.getByPostId(id));
+ *   scope.join();
+ *   ... comments.get(), reviews.get()
+ * }
+ * }</pre>
+ */
+public final class TaskScope implements AutoCloseable {
+
+  private final ServiceExecutor executor;
+  private final List<Part<?>> parts = new CopyOnWriteArrayList<>(); // Also read by the parts, to cancel each other
+  private final Semaphore completed = new Semaphore(0);
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  public TaskScope() {
+    this(ServiceExecutor.getInstance());
+  }
+
+  TaskScope(ServiceExecutor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Starts a part of the call.
+   *
+   * @param task the blocking part
+   * @return its result, available once {@link #join()} returned
+   */
+  public <T> Supplier<T> fork(Supplier<T> task) {
+    Part<T> part = new Part<>(() -> this.executor.callWithPermit(task));
+    this.parts.add(part);
+    if (this.failure.get() != null)
+      part.cancel(false);
+    else
+      this.executor.execute(part);
+    return part;
+  }
+
+  /**
+   * Waits for every part forked so far.
+   *
+   * @throws RuntimeException the exception of the first part that failed, wrapped if it was checked
+   * @throws CancellationException if the waiting thread was interrupted; the parts are cancelled
+   */
+  public void join() {
+    try {
+      this.executor.awaitWithoutPermit(() -> this.completed.acquire(this.parts.size()));
+      this.completed.release(this.parts.size());
+    } catch (InterruptedException e) {
+      cancelAll();
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while waiting for " + this.parts.size() + " subtasks");
+    }
+    Throwable cause = this.failure.get();
+    if (cause instanceof RuntimeException runtimeException)
+      throw runtimeException;
+    if (cause instanceof Error error)
+      throw error;
+    if (cause != null)
+      throw new RuntimeException("Failed to complete a subtask", cause);
+  }
+
+  @Override
+  public void close() {
+    cancelAll();
+  }
+
+  private void cancelAll() {
+    this.parts.forEach(part -> part.cancel(true));
+  }
+
+  private void onDone(Part<?> part) {
+    if (part.state() == State.FAILED && this.failure.compareAndSet(null, part.exceptionNow())) {
+      // Shut down: the call fails anyway, do not keep its connections busy
+      cancelAll();
+    }
+    this.completed.release();
+  }
+
+  private final class Part<T> extends FutureTask<T> implements Supplier<T> {
+
+    Part(Callable<T> callable) {
+      super(callable);
+    }
+
+    @Override
+    protected void done() {
+      onDone(this);
+    }
+
+    @Override
+    public T get() {
+      if (state() != State.SUCCESS)
+        throw new IllegalStateException("Subtask read before join() or not successful: " + state());
+      return resultNow();
+    }
+  }
+}
@@ -6,60 +6,135 @@ import amalitech.blog.dao.UserDAO;
 import amalitech.blog.dao.enums.CommentColumn;
 import amalitech.blog.dao.enums.UserColumn;
 import amalitech.blog.model.User;
+import amalitech.blog.service.cache.Cache;
+import amalitech.blog.service.cache.CacheManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class UserService {
+
+  // Post / comment / review counts per user, invalidated by the services writing those rows
+  private static final Cache<Long, Map<String, Integer>> STATS_CACHE = CacheManager.getOrCreate("user.stats",
+          () -> Cache.<Long, Map<String, Integer>>builder("user.stats")
+                  .maximumSize(1_000)
+                  .expireAfterWrite(Duration.ofMinutes(10))
+                  .refreshAfterWrite(Duration.ofMinutes(1))
+                  .refreshJitter(0.2)
+                  .build());
+
+  // Canonical user instances by id, always without their password hash
+  private static final Cache<Long, User> USER_BY_ID_CACHE = CacheManager.getOrCreate("user.byId",
+          () -> Cache.<Long, User>builder("user.byId")
+                  .maximumSize(10_000)
+                  .expireAfterWrite(Duration.ofMinutes(30))
+                  .build());
+
+  // Username, as matched by the database, -> id, so username lookups share the instances of USER_BY_ID_CACHE
+  private static final Cache<String, Long> USER_ID_BY_USERNAME_CACHE = CacheManager.getOrCreate("user.idByUsername",
+          () -> Cache.<String, Long>builder("user.idByUsername")
+                  .maximumSize(10_000)
+                  .expireAfterWrite(Duration.ofMinutes(30))
+                  .build());
+
   private final PasswordHashService passwordHashService;
   private final UserDAO userDAO;
   private final PostDAO postDAO;
   private final CommentDAO commentDAO;
   private final ReviewService reviewService;
+  private final ServiceExecutor executor;
   private final Logger log = LoggerFactory.getLogger(UserService.class);
 
   public UserService(){
-    this.passwordHashService = new PasswordHashService();
-    this.userDAO = new UserDAO();
-    this.postDAO = new PostDAO();
-    this.commentDAO = new CommentDAO();
-    this.reviewService = new ReviewService();
+    this(new PasswordHashService(), new UserDAO(), new PostDAO(), new CommentDAO(), new ReviewService());
+  }
+
+  public UserService(PasswordHashService passwordHashService, UserDAO userDAO, PostDAO postDAO,
+                     CommentDAO commentDAO, ReviewService reviewService){
+    this.passwordHashService = passwordHashService;
+    this.userDAO = userDAO;
+    this.postDAO = postDAO;
+    this.commentDAO = commentDAO;
+    this.reviewService = reviewService;
+    this.executor = ServiceExecutor.getInstance();
   }
 
   public User create(User user){
-    String hashedPassword = this.passwordHashService.hash(user.getPassword().toCharArray());
-    user.setPassword(hashedPassword);
+    hashPassword(user);
     return this.userDAO.create(user);
   }
 
+  /**
+   * Read-through lookup served from the shared identity cache.
+   * The returned instance is shared and has no password; do not modify it.
+   */
   public User get(Long id){
-    return this.userDAO.get(id);
+    return USER_BY_ID_CACHE.get(id, key -> withoutPassword(this.userDAO.get(key)));
+  }
+
+  /**
+   * Same as {@link #get(Long)}, by username. The username is matched exactly, as the database does.
+   */
+  public User getByUsername(String username){
+    if (username == null)
+      return null;
+    Long id = USER_ID_BY_USERNAME_CACHE.get(username, key -> {
+      User user = withoutPassword(this.userDAO.findOneBy(key, UserColumn.USERNAME).orElse(null));
+      if (user == null)
+        return null;
+      USER_BY_ID_CACHE.put(user.getId(), user);
+      return user.getId();
+    });
+    return id == null ? null : this.get(id);
   }
 
   public User login(String username, String password){
-    Optional<User> user = this.userDAO.findOneBy(username, UserColumn.USERNAME);
-    if (user.isPresent()){
-      boolean match = this.passwordHashService.verify(password.toCharArray(), user.get().getPassword());
-      user.get().setPassword(null);
-      if (match)
-        return user.get();
-    }
-    return null;
+    return checkPassword(this.userDAO.findOneBy(username, UserColumn.USERNAME), password);
+  }
+
+  /**
+   * {@link #login(String, String)} on the {@link ServiceExecutor}. Verifying the password is
+   * deliberately slow, so only the lookup holds a connection permit.
+   */
+  public CompletableFuture<User> loginAsync(String username, String password){
+    return this.executor.supplyWithoutPermit(() -> checkPassword(
+            this.executor.callWithPermit(() -> this.userDAO.findOneBy(username, UserColumn.USERNAME)), password));
+  }
+
+  /**
+   * {@link #create(User)} on the {@link ServiceExecutor}; only the insert holds a connection permit.
+   */
+  public CompletableFuture<User> createAsync(User user){
+    return this.executor.supplyWithoutPermit(() -> {
+      hashPassword(user);
+      return this.executor.callWithPermit(() -> this.userDAO.create(user));
+    });
   }
 
   public User update(Long id, User user){
     User oldUser = this.userDAO.get(id);
     user.setPassword(oldUser.getPassword());
-    return this.userDAO.update(id, user);
+    User updated = this.userDAO.update(id, user);
+    evictUser(id, oldUser.getUsername());
+    PostDetailCache.getInstance().onAuthorChanged(id);
+    // Author names are embedded in feed pages
+    FeedSnapshot.getInstance().invalidate();
+    PostService.invalidateFeed();
+    return updated;
+  }
+
+  public CompletableFuture<User> updateAsync(Long id, User user){
+    return this.executor.supply(() -> this.update(id, user));
   }
 
   public User updatePassword(Long userId, String oldPassword, String newPassword){
-    log.info("Update Password | new: {}", newPassword);
-    log.info("Update Password | old: {}", oldPassword);
-    User user = this.get(userId);
+    // The hash is never cached, read it from the database
+    User user = this.userDAO.get(userId);
     if (this.passwordHashService.verify(oldPassword.toCharArray(), user.getPassword())) {
       user.setPassword(this.passwordHashService.hash(newPassword.toCharArray()));
       return this.userDAO.update(userId, user);
@@ -67,8 +142,19 @@ public class UserService {
     throw new RuntimeException("Invalid password");
   }
 
+  public CompletableFuture<User> updatePasswordAsync(Long userId, String oldPassword, String newPassword){
+    return this.executor.supply(() -> this.updatePassword(userId, oldPassword, newPassword));
+  }
+
   public boolean delete (Long id){
-    return  this.userDAO.delete(id);
+    boolean deleted = this.userDAO.delete(id);
+    evictUser(id);
+    invalidateStats(id);
+    return deleted;
+  }
+
+  public CompletableFuture<Boolean> deleteAsync(Long id){
+    return this.executor.supply(() -> this.delete(id));
   }
 
   public Map<String, Integer> getUserStats(Long userId){
@@ -89,6 +175,80 @@ public class UserService {
     if (!withPerformance)
       return this.getUserStats(userId);
 
-    return this.userDAO.getUserStats(userId);
+    return STATS_CACHE.get(userId, this.userDAO::getUserStats);
+  }
+
+  public CompletableFuture<Map<String, Integer>> getUserStatsAsync(Long userId){
+    return this.executor.supply(() -> this.getUserStats(userId));
+  }
+
+  private void hashPassword(User user){
+    user.setPassword(this.passwordHashService.hash(user.getPassword().toCharArray()));
+  }
+
+  private User checkPassword(Optional<User> user, String password){
+    if (user.isPresent()){
+      boolean match = this.passwordHashService.verify(password.toCharArray(), user.get().getPassword());
+      user.get().setPassword(null);
+      if (match) {
+        cacheUser(user.get());
+        return user.get();
+      }
+    }
+    return null;
+  }
+
+  private static void cacheUser(User user){
+    User cached = withoutPassword(user);
+    USER_BY_ID_CACHE.put(cached.getId(), cached);
+    if (cached.getUsername() != null)
+      USER_ID_BY_USERNAME_CACHE.put(cached.getUsername(), cached.getId());
+  }
+
+  /**
+   * Drops a user changed elsewhere (e.g. by another application instance).
+   */
+  static void evictUser(Long id){
+    User cached = USER_BY_ID_CACHE.getIfPresent(id);
+    if (cached != null) {
+      evictUser(id, cached.getUsername());
+    } else {
+      // The username is unknown here: drop every username mapping, they are cheap to rebuild
+      USER_BY_ID_CACHE.invalidate(id);
+      USER_ID_BY_USERNAME_CACHE.invalidateAll();
+    }
+  }
+
+  private static void evictUser(Long id, String username){
+    USER_BY_ID_CACHE.invalidate(id);
+    if (username != null)
+      USER_ID_BY_USERNAME_CACHE.invalidate(username);
+  }
+
+  /**
+   * Copy of the user without the password hash, the only form that may be cached.
+   */
+  private static User withoutPassword(User user){
+    if (user == null)
+      return null;
+    User copy = new User();
+    copy.setId(user.getId());
+    copy.setFirstName(user.getFirstName());
+    copy.setLastName(user.getLastName());
+    copy.setUsername(user.getUsername());
+    copy.setEmail(user.getEmail());
+    copy.setCreatedAt(user.getCreatedAt());
+    copy.setUpdatedAt(user.getUpdatedAt());
+    copy.setDeletedAt(user.getDeletedAt());
+    copy.setDeleted(user.isDeleted());
+    return copy;
+  }
+
+  /**
+   * Must be called whenever a post, comment or review of the user is created or deleted.
+   */
+  static void invalidateStats(Long userId){
+    if (userId != null)
+      STATS_CACHE.invalidate(userId);
   }
 }
@@ -0,0 +1,673 @@
+package amalitech.blog.service.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntBiFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded, thread-safe in-memory cache used by the service layer.
+ * <p>
+ * Keys are spread over independently locked segments. Each segment evicts with a
+ * segmented LRU: new entries enter a probation area and are only promoted to the
+ * protected area (80% of the segment) when read again, so a burst of one-off lookups
+ * cannot flush the entries that are actually reused.
+ * </p>
+ * <p>
+ * Entries can expire a fixed time after they were written, and can be refreshed in the
+ * background once they are older than the refresh delay: readers keep getting the current
+ * value while the new one is loaded. With a refresh jitter, each entry's refresh point is
+ * moved earlier by a random part of that delay, so entries written together are not all
+ * reloaded at once. Together this is stale-while-revalidate: the refresh delay is the soft
+ * TTL, after which readers get the stale value and can ask to be called back with the new
+ * one, and the expiry is the hard TTL, after which readers wait for a synchronous load.
+ * Values are never {@code null}; a loader returning {@code null} simply caches nothing.
+ * </p>
+ * <p>
+ * Loads are coalesced with a {@link SingleFlight}: however many threads miss the same key at
+ * the same time, the loader runs once and they all share its result. Threads arriving after
+ * the key was invalidated start a new load instead of joining one that may predate the write,
+ * and the older load's value is not cached. Invalidating a key only affects the loads of that key.
+ * </p>
+ * Create instances through {@link #builder(String)}, usually via {@link CacheManager}.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class Cache<K, V> {
+
+  private static final Logger log = LoggerFactory.getLogger(Cache.class);
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+  /**
+   * Runs background refreshes for every cache.
+   */
+  private static final ExecutorService REFRESH_EXECUTOR = createRefreshExecutor();
+
+  private final String name;
+  private final Segment<K, V>[] segments;
+  private final long expireAfterWriteNanos;
+  private final long refreshAfterWriteNanos;
+  private final double refreshJitter;
+  private final SingleFlight<Load<K>, V> loads = new SingleFlight<>();
+  private final ToIntBiFunction<? super K, ? super V> weigher;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder loadSuccesses = new LongAdder();
+  private final LongAdder loadFailures = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  @SuppressWarnings("unchecked")
+  private Cache(Builder<K, V> builder) {
+    this.name = builder.name;
+    this.expireAfterWriteNanos = builder.expireAfterWrite == null ? 0 : builder.expireAfterWrite.toNanos();
+    this.refreshAfterWriteNanos = builder.refreshAfterWrite == null ? 0 : builder.refreshAfterWrite.toNanos();
+    this.refreshJitter = builder.refreshJitter;
+    this.weigher = builder.weigher;
+
+    // Small caches get fewer segments so each one can still hold a few entries
+    long segmentBound = Math.min(builder.concurrencyLevel, Math.max(1, builder.maximumWeight / 4));
+    int segmentCount = Integer.highestOneBit((int) Math.max(1, segmentBound));
+    long perSegment = Math.max(1, builder.maximumWeight / segmentCount);
+    this.segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      this.segments[i] = new Segment<>(perSegment, this.expireAfterWriteNanos, this.evictions);
+    }
+  }
+
+  /**
+   * @param name used in logs and statistics
+   * @return a builder for a new cache
+   */
+  public static <K, V> Builder<K, V> builder(String name) {
+    return new Builder<>(name);
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * @param key the key
+   * @return the cached value, or {@code null} if absent or expired
+   */
+  public V getIfPresent(K key) {
+    Entry<K, V> entry = segmentFor(key).get(key, System.nanoTime());
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return entry.value;
+  }
+
+  /**
+   * Returns the cached value, loading it on a miss. If the value is due for a refresh,
+   * it is still returned and a reload is started in the background.
+   *
+   * @param key    the key
+   * @param loader computes the value; called without any lock held
+   * @return the value, or {@code null} if the loader returned {@code null}
+   * @throws RuntimeException whatever the loader throws
+   */
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    return get(key, loader, null);
+  }
+
+  /**
+   * Same as {@link #get(Object, Function)}; in addition, if the returned value is stale and a
+   * background refresh is running, {@code onRefreshed} receives the new value once it has
+   * replaced the stale one. It is called on the refresh thread, and not at all if the refresh
+   * fails or the key is invalidated meanwhile.
+   *
+   * @param key         the key
+   * @param loader      computes the value; called without any lock held
+   * @param onRefreshed receives the refreshed value, may be {@code null}
+   * @return the value, or {@code null} if the loader returned {@code null}
+   * @throws RuntimeException whatever the loader throws
+   */
+  public V get(K key, Function<? super K, ? extends V> loader, Consumer<? super V> onRefreshed) {
+    Segment<K, V> segment = segmentFor(key);
+    long now = System.nanoTime();
+    Entry<K, V> entry = segment.get(key, now);
+
+    if (entry != null) {
+      hits.increment();
+      if (now - entry.refreshAtNanos >= 0) {
+        CompletableFuture<V> refresh = entry.refresh.get();
+        if (refresh == null) {
+          CompletableFuture<V> started = new CompletableFuture<>();
+          if (entry.refresh.compareAndSet(null, started)) {
+            refreshAsync(segment, entry, loader, started);
+            refresh = started;
+          } else {
+            refresh = entry.refresh.get();
+          }
+        }
+        if (onRefreshed != null && refresh != null) {
+          refresh.thenAccept(value -> {
+            if (value != null)
+              onRefreshed.accept(value);
+          });
+        }
+      }
+      return entry.value;
+    }
+
+    misses.increment();
+    Flight flight = segment.beginLoad(key);
+    try {
+      return loads.execute(new Load<>(key, flight), load -> {
+        V value;
+        try {
+          value = loader.apply(key);
+        } catch (RuntimeException e) {
+          loadFailures.increment();
+          throw e;
+        }
+        loadSuccesses.increment();
+        if (value != null) {
+          // Not cached if the key was invalidated while loading: the value may predate the write
+          segment.putIfNotInvalidated(newEntry(key, value), flight);
+        }
+        return value;
+      });
+    } finally {
+      segment.endLoad(key, flight);
+    }
+  }
+
+  /**
+   * Stores a value, replacing any previous one.
+   */
+  public void put(K key, V value) {
+    if (value == null) {
+      invalidate(key);
+      return;
+    }
+    segmentFor(key).put(newEntry(key, value));
+  }
+
+  public void invalidate(K key) {
+    segmentFor(key).remove(key);
+  }
+
+  /**
+   * Atomically replaces a cached value by {@code patch}'s result, or removes it if the result
+   * is {@code null}. The patch runs under the segment lock and must be quick. If the key is not
+   * cached, loads in flight for it are not cached either, since they may predate the change.
+   *
+   * @param key   the key
+   * @param patch computes the new value from the cached one
+   * @return whether a cached value was patched
+   */
+  public boolean patch(K key, UnaryOperator<V> patch) {
+    return segmentFor(key).patch(key, System.nanoTime(), current -> {
+      V value = patch.apply(current.value);
+      return value == null ? null : newEntry(key, value);
+    });
+  }
+
+  /**
+   * Removes every entry whose key matches.
+   */
+  public void invalidateIf(Predicate<? super K> keyPredicate) {
+    for (Segment<K, V> segment : segments) {
+      segment.removeIf(keyPredicate);
+    }
+  }
+
+  public void invalidateAll() {
+    invalidateIf(key -> true);
+  }
+
+  /**
+   * @return number of entries currently cached (expired entries not yet cleaned up included)
+   */
+  public long size() {
+    long size = 0;
+    for (Segment<K, V> segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  public CacheStats stats() {
+    return new CacheStats(name, hits.sum(), misses.sum(), loads.coalescedCount(), loadSuccesses.sum(),
+            loadFailures.sum(), evictions.sum(), size());
+  }
+
+  /**
+   * Reloads a stale entry in the background. {@code done} completes with the new value once it
+   * replaced the stale one, or with {@code null} otherwise; in that case a later read may retry.
+   */
+  private void refreshAsync(Segment<K, V> segment, Entry<K, V> stale, Function<? super K, ? extends V> loader,
+                            CompletableFuture<V> done) {
+    Flight flight = segment.beginLoad(stale.key);
+    CompletableFuture<V> refresh = loads.executeAsync(new Load<>(stale.key, flight),
+            load -> loader.apply(load.key()), REFRESH_EXECUTOR);
+    refresh.whenComplete((value, error) -> {
+      segment.endLoad(stale.key, flight);
+      if (error != null) {
+        loadFailures.increment();
+        stale.refresh.set(null);
+        done.complete(null);
+        log.warn("Cache '{}': refresh failed for key {}", name, stale.key, error);
+        return;
+      }
+      loadSuccesses.increment();
+      if (value == null || !segment.replace(stale, newEntry(stale.key, value), flight)) {
+        stale.refresh.set(null);
+        done.complete(null);
+        return;
+      }
+      done.complete(value);
+    });
+  }
+
+  private Entry<K, V> newEntry(K key, V value) {
+    long now = System.nanoTime();
+    return new Entry<>(key, value, Math.max(1, weigher.applyAsInt(key, value)), now, refreshAt(now));
+  }
+
+  /**
+   * When an entry written now becomes due for a background refresh ({@code Long.MAX_VALUE} distance if never).
+   * Without an explicit refresh delay, a jitter makes entries refresh shortly before they expire.
+   */
+  private long refreshAt(long writeNanos) {
+    long base = refreshAfterWriteNanos > 0 ? refreshAfterWriteNanos : (refreshJitter > 0 ? expireAfterWriteNanos : 0);
+    if (base <= 0)
+      return writeNanos + Long.MAX_VALUE;
+    long early = (long) (base * refreshJitter * ThreadLocalRandom.current().nextDouble());
+    return writeNanos + base - early;
+  }
+
+  private Segment<K, V> segmentFor(K key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return segments[h & (segments.length - 1)];
+  }
+
+  private static ExecutorService createRefreshExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "cache-refresh-" + THREAD_COUNTER.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Identifies a load: loads started before and after an invalidation of their key are never shared.
+   */
+  private record Load<K>(K key, Flight flight) {
+  }
+
+  /**
+   * The loads in flight for one key, until that key is invalidated. Guarded by the segment lock.
+   */
+  private static final class Flight {
+    private int loaders;
+    private boolean invalidated;
+  }
+
+  private static final class Entry<K, V> {
+    private final K key;
+    private final V value;
+    private final int weight;
+    private final long writeNanos;
+    private final long refreshAtNanos;
+    // The background refresh of this entry, if one is running
+    private final AtomicReference<CompletableFuture<V>> refresh = new AtomicReference<>();
+
+    private Entry(K key, V value, int weight, long writeNanos, long refreshAtNanos) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.writeNanos = writeNanos;
+      this.refreshAtNanos = refreshAtNanos;
+    }
+  }
+
+  /**
+   * One lock-protected shard of the cache with its own segmented LRU.
+   * Both maps are in insertion order, and entries are re-inserted to move them to the tail (most recent).
+   */
+  private static final class Segment<K, V> {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<K, V>> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Entry<K, V>> protectedArea = new LinkedHashMap<>();
+    private final long maxWeight;
+    private final long maxProtectedWeight;
+    private final long expireAfterWriteNanos;
+    private final LongAdder evictions;
+    private long probationWeight;
+    private long protectedWeight;
+    // Loads in flight by key; invalidating a key marks its loads, whose values may predate the write
+    private final HashMap<K, Flight> flights = new HashMap<>();
+
+    private Segment(long maxWeight, long expireAfterWriteNanos, LongAdder evictions) {
+      this.maxWeight = maxWeight;
+      this.maxProtectedWeight = maxWeight * 8 / 10;
+      this.expireAfterWriteNanos = expireAfterWriteNanos;
+      this.evictions = evictions;
+    }
+
+    private boolean isExpired(Entry<K, V> entry, long now) {
+      return expireAfterWriteNanos > 0 && now - entry.writeNanos >= expireAfterWriteNanos;
+    }
+
+    private Entry<K, V> get(K key, long now) {
+      lock.lock();
+      try {
+        Entry<K, V> entry = protectedArea.get(key);
+        if (entry != null) {
+          if (isExpired(entry, now)) {
+            removeEntry(key);
+            return null;
+          }
+          protectedArea.remove(key);
+          protectedArea.put(key, entry);
+          return entry;
+        }
+
+        entry = probation.get(key);
+        if (entry == null)
+          return null;
+        if (isExpired(entry, now)) {
+          removeEntry(key);
+          return null;
+        }
+        // Second access: promote, demoting the least recently used protected entries if needed
+        probation.remove(key);
+        probationWeight -= entry.weight;
+        protectedArea.put(key, entry);
+        protectedWeight += entry.weight;
+        while (protectedWeight > maxProtectedWeight && protectedArea.size() > 1) {
+          Iterator<Map.Entry<K, Entry<K, V>>> it = protectedArea.entrySet().iterator();
+          Entry<K, V> demoted = it.next().getValue();
+          it.remove();
+          protectedWeight -= demoted.weight;
+          probation.put(demoted.key, demoted);
+          probationWeight += demoted.weight;
+        }
+        return entry;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void put(Entry<K, V> entry) {
+      lock.lock();
+      try {
+        removeEntry(entry.key);
+        probation.put(entry.key, entry);
+        probationWeight += entry.weight;
+        evictIfNeeded();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Registers a load of {@code key}; loads registered until the key is invalidated share one flight.
+     */
+    private Flight beginLoad(K key) {
+      lock.lock();
+      try {
+        Flight flight = flights.computeIfAbsent(key, k -> new Flight());
+        flight.loaders++;
+        return flight;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void endLoad(K key, Flight flight) {
+      lock.lock();
+      try {
+        if (--flight.loaders == 0 && flights.get(key) == flight)
+          flights.remove(key);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void invalidateFlight(K key) {
+      Flight flight = flights.remove(key);
+      if (flight != null)
+        flight.invalidated = true;
+    }
+
+    private void putIfNotInvalidated(Entry<K, V> entry, Flight flight) {
+      lock.lock();
+      try {
+        if (!flight.invalidated)
+          put(entry);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Replaces {@code current} by {@code replacement}, unless it was removed or replaced meanwhile.
+     */
+    private boolean replace(Entry<K, V> current, Entry<K, V> replacement, Flight flight) {
+      lock.lock();
+      try {
+        if (flight.invalidated)
+          return false;
+        if (protectedArea.get(current.key) == current) {
+          protectedArea.put(current.key, replacement);
+          protectedWeight += replacement.weight - current.weight;
+        } else if (probation.get(current.key) == current) {
+          probation.put(current.key, replacement);
+          probationWeight += replacement.weight - current.weight;
+        } else {
+          return false;
+        }
+        evictIfNeeded();
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private boolean patch(K key, long now, Function<Entry<K, V>, Entry<K, V>> patch) {
+      lock.lock();
+      try {
+        Entry<K, V> current = protectedArea.get(key);
+        if (current == null)
+          current = probation.get(key);
+        Entry<K, V> replacement = current == null || isExpired(current, now) ? null : patch.apply(current);
+        if (replacement == null) {
+          removeEntry(key);
+          invalidateFlight(key);
+          return false;
+        }
+        if (protectedArea.containsKey(key)) {
+          protectedArea.put(key, replacement);
+          protectedWeight += replacement.weight - current.weight;
+        } else {
+          probation.put(key, replacement);
+          probationWeight += replacement.weight - current.weight;
+        }
+        evictIfNeeded();
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void remove(K key) {
+      lock.lock();
+      try {
+        removeEntry(key);
+        invalidateFlight(key);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void removeIf(Predicate<? super K> keyPredicate) {
+      lock.lock();
+      try {
+        probation.values().removeIf(entry -> {
+          boolean matches = keyPredicate.test(entry.key);
+          if (matches) probationWeight -= entry.weight;
+          return matches;
+        });
+        protectedArea.values().removeIf(entry -> {
+          boolean matches = keyPredicate.test(entry.key);
+          if (matches) protectedWeight -= entry.weight;
+          return matches;
+        });
+        flights.entrySet().removeIf(flight -> {
+          boolean matches = keyPredicate.test(flight.getKey());
+          if (matches) flight.getValue().invalidated = true;
+          return matches;
+        });
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private int size() {
+      lock.lock();
+      try {
+        return probation.size() + protectedArea.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void removeEntry(K key) {
+      Entry<K, V> removed = probation.remove(key);
+      if (removed != null) {
+        probationWeight -= removed.weight;
+        return;
+      }
+      removed = protectedArea.remove(key);
+      if (removed != null)
+        protectedWeight -= removed.weight;
+    }
+
+    /**
+     * Evicts from the probation head first, then from the protected head.
+     */
+    private void evictIfNeeded() {
+      while (probationWeight + protectedWeight > maxWeight) {
+        LinkedHashMap<K, Entry<K, V>> victims = probation.isEmpty() ? protectedArea : probation;
+        Iterator<Map.Entry<K, Entry<K, V>>> it = victims.entrySet().iterator();
+        if (!it.hasNext())
+          break;
+        Entry<K, V> victim = it.next().getValue();
+        it.remove();
+        if (victims == probation)
+          probationWeight -= victim.weight;
+        else
+          protectedWeight -= victim.weight;
+        evictions.increment();
+      }
+    }
+  }
+
+  /**
+   * Configures a {@link Cache}. Without a bound the cache holds at most 1,000 entries.
+   */
+  public static final class Builder<K, V> {
+    private final String name;
+    private long maximumWeight = 1_000;
+    private ToIntBiFunction<? super K, ? super V> weigher = (key, value) -> 1;
+    private Duration expireAfterWrite;
+    private Duration refreshAfterWrite;
+    private double refreshJitter;
+    private int concurrencyLevel = 8;
+
+    private Builder(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Bounds the number of entries.
+     */
+    public Builder<K, V> maximumSize(long maximumSize) {
+      this.maximumWeight = maximumSize;
+      this.weigher = (key, value) -> 1;
+      return this;
+    }
+
+    /**
+     * Bounds the total weight of the entries, e.g. the number of rows held by cached lists.
+     */
+    public Builder<K, V> maximumWeight(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher) {
+      this.maximumWeight = maximumWeight;
+      this.weigher = weigher;
+      return this;
+    }
+
+    /**
+     * Entries are dropped once they are older than this.
+     */
+    public Builder<K, V> expireAfterWrite(Duration expireAfterWrite) {
+      this.expireAfterWrite = expireAfterWrite;
+      return this;
+    }
+
+    /**
+     * Entries older than this are reloaded in the background on their next read.
+     */
+    public Builder<K, V> refreshAfterWrite(Duration refreshAfterWrite) {
+      this.refreshAfterWrite = refreshAfterWrite;
+      return this;
+    }
+
+    /**
+     * Moves each entry's refresh point earlier by a random fraction (0 to {@code jitter}) of the
+     * refresh delay. Without {@link #refreshAfterWrite(Duration)}, the expiry delay is used, so
+     * frequently read entries are reloaded in the background before they expire.
+     */
+    public Builder<K, V> refreshJitter(double jitter) {
+      if (jitter < 0 || jitter >= 1)
+        throw new IllegalArgumentException("Refresh jitter must be in [0, 1)");
+      this.refreshJitter = jitter;
+      return this;
+    }
+
+    /**
+     * Number of independently locked segments (rounded down to a power of two).
+     */
+    public Builder<K, V> concurrencyLevel(int concurrencyLevel) {
+      this.concurrencyLevel = concurrencyLevel;
+      return this;
+    }
+
+    public Cache<K, V> build() {
+      if (maximumWeight <= 0)
+        throw new IllegalArgumentException("Cache '" + name + "' needs a positive bound");
+      return new Cache<>(this);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package amalitech.blog.service.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of named caches.
+ * <p>
+ * Services are instantiated by many controllers, so caches are registered here once and
+ * shared by every instance: a write through one service instance invalidates what the
+ * others read.
+ * </p>
+ */
+public final class CacheManager {
+
+  private static final Map<String, Cache<?, ?>> CACHES = new ConcurrentHashMap<>();
+
+  private CacheManager() { }
+
+  /**
+   * Returns the cache registered under the name, creating it on first use.
+   *
+   * @param name    unique cache name
+   * @param factory builds the cache if it does not exist yet
+   * @return the shared cache
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> Cache<K, V> getOrCreate(String name, Supplier<Cache<K, V>> factory) {
+    return (Cache<K, V>) CACHES.computeIfAbsent(name, n -> factory.get());
+  }
+
+  /**
+   * Empties every registered cache (e.g. after bulk changes made outside the services).
+   */
+  public static void invalidateAll() {
+    CACHES.values().forEach(Cache::invalidateAll);
+  }
+
+  /**
+   * @return statistics of every registered cache, sorted by name
+   */
+  public static List<CacheStats> stats() {
+    List<CacheStats> stats = new ArrayList<>();
+    CACHES.values().forEach(cache -> stats.add(cache.stats()));
+    stats.sort((a, b) -> a.name().compareTo(b.name()));
+    return stats;
+  }
+}
@@ -0,0 +1,29 @@
+package amalitech.blog.service.cache;
+
+/**
+ * Snapshot of a cache's counters since it was created.
+ *
+ * @param name             cache name
+ * @param hitCount         reads served from the cache
+ * @param missCount        reads that found nothing (or an expired entry)
+ * @param coalescedCount   loads that joined an identical load already in flight
+ * @param loadSuccessCount values computed by a loader, refreshes included
+ * @param loadFailureCount loader calls that threw
+ * @param evictionCount    entries dropped to respect the size / weight bound
+ * @param size             entries currently held
+ */
+public record CacheStats(String name, long hitCount, long missCount, long coalescedCount, long loadSuccessCount,
+                         long loadFailureCount, long evictionCount, long size) {
+
+  public double hitRate() {
+    long requests = hitCount + missCount;
+    return requests == 0 ? 1.0 : (double) hitCount / requests;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%-24s hits=%d misses=%d hitRate=%.1f%% coalesced=%d loads=%d failures=%d evictions=%d size=%d",
+            name, hitCount, missCount, hitRate() * 100, coalescedCount, loadSuccessCount, loadFailureCount,
+            evictionCount, size);
+  }
+}
@@ -0,0 +1,107 @@
+package amalitech.blog.service.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent calls for the same key into a single execution.
+ * <p>
+ * The first caller for a key runs the loader; callers arriving while it is in flight
+ * wait for and share its result (or its exception). Once the call completes the key is
+ * forgotten, so the next call runs the loader again — caching is left to the caller.
+ * </p>
+ *
+ * @param <K> key type, identifying the operation and its arguments
+ * @param <V> result type
+ */
+public final class SingleFlight<K, V> {
+
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * Runs the loader for the key on the calling thread, or waits for the call already in flight.
+   *
+   * @param key    the key
+   * @param loader computes the result
+   * @return the result shared by every concurrent caller
+   * @throws RuntimeException whatever the loader threw
+   */
+  public V execute(K key, Function<? super K, ? extends V> loader) {
+    CompletableFuture<V> call = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+    if (existing != null) {
+      coalesced.increment();
+      return await(existing);
+    }
+
+    try {
+      V value = loader.apply(key);
+      call.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      call.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, call);
+    }
+  }
+
+  /**
+   * Same as {@link #execute(Object, Function)}, but the loader runs on the executor.
+   * If a call is already in flight for the key, its future is returned.
+   */
+  public CompletableFuture<V> executeAsync(K key, Function<? super K, ? extends V> loader, Executor executor) {
+    CompletableFuture<V> call = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+    if (existing != null) {
+      coalesced.increment();
+      return existing;
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          call.complete(loader.apply(key));
+        } catch (RuntimeException | Error e) {
+          call.completeExceptionally(e);
+        } finally {
+          inFlight.remove(key, call);
+        }
+      });
+    } catch (RuntimeException e) {
+      inFlight.remove(key, call);
+      call.completeExceptionally(e);
+    }
+    return call;
+  }
+
+  /**
+   * @return number of calls that joined another call instead of running the loader
+   */
+  public long coalescedCount() {
+    return coalesced.sum();
+  }
+
+  private static <V> V await(CompletableFuture<V> call) {
+    try {
+      return call.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException("Interrupted while waiting for an in-flight call", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException runtimeException)
+        throw runtimeException;
+      if (cause instanceof Error error)
+        throw error;
+      throw new CompletionException(cause);
+    }
+  }
+}
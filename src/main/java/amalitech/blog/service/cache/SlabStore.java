@@ -0,0 +1,126 @@
+package amalitech.blog.service.cache;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded off-heap byte store made of a ring of direct {@link ByteBuffer} slabs.
+ * <p>
+ * Records are appended to the current slab; when it is full the store moves on to the next
+ * one, overwriting the oldest slab and every record in it. Each slab carries a generation
+ * number, bumped before it is reused, so a {@link Ref} to an overwritten record is detected
+ * instead of returning foreign bytes. The heap only holds the refs, not the records.
+ * </p>
+ * Writes are serialized; reads are lock-free and validate the generation after copying, behind
+ * an acquire fence.
+ */
+public final class SlabStore {
+
+  private final String name;
+  private final ByteBuffer[] slabs;
+  private final AtomicIntegerArray generations;
+  private final int slabSize;
+  private final LongAdder evictedSlabs = new LongAdder();
+
+  // Guarded by this
+  private int current;
+  private int position;
+
+  /**
+   * @param name      name used in statistics
+   * @param slabSize  bytes per slab, also the largest record accepted
+   * @param slabCount number of slabs; the budget is slabSize * slabCount bytes
+   */
+  public SlabStore(String name, int slabSize, int slabCount) {
+    if (slabSize <= 0 || slabCount <= 0)
+      throw new IllegalArgumentException("slabSize and slabCount must be positive");
+    this.name = name;
+    this.slabSize = slabSize;
+    this.slabs = new ByteBuffer[slabCount];
+    this.generations = new AtomicIntegerArray(slabCount);
+    for (int i = 0; i < slabCount; i++) {
+      this.slabs[i] = ByteBuffer.allocateDirect(slabSize);
+    }
+  }
+
+  /**
+   * Copies a record into the store.
+   *
+   * @param record bytes to store
+   * @param length number of bytes of record to store
+   * @return where the record was stored, or {@code null} if it is larger than a slab
+   */
+  public synchronized Ref put(byte[] record, int length) {
+    if (length > this.slabSize)
+      return null;
+    if (this.position + length > this.slabSize) {
+      this.current = (this.current + 1) % this.slabs.length;
+      this.position = 0;
+      // Invalidate the records of the slab before overwriting them. The increment is a volatile
+      // read-modify-write: the writes below cannot move before it
+      this.generations.incrementAndGet(this.current);
+      this.evictedSlabs.increment();
+    }
+    Ref ref = new Ref(this.current, this.generations.get(this.current), this.position, length);
+    this.slabs[this.current].put(this.position, record, 0, length);
+    this.position += length;
+    return ref;
+  }
+
+  /**
+   * Copies a record out of the store.
+   *
+   * @param ref where the record was stored
+   * @return the record, or {@code null} if its slab has been reused since
+   */
+  public byte[] get(Ref ref) {
+    if (this.generations.get(ref.slab()) != ref.generation())
+      return null;
+    byte[] record = new byte[ref.length()];
+    this.slabs[ref.slab()].get(ref.offset(), record);
+    // The copy's plain reads must complete before the generation is read again, or a slab reused
+    // while copying could go unnoticed (a seqlock read, like StampedLock.validate)
+    VarHandle.acquireFence();
+    // The slab may have been reused while copying
+    return this.generations.get(ref.slab()) == ref.generation() ? record : null;
+  }
+
+  /**
+   * @param ref where the record was stored
+   * @return whether the record can still be read
+   */
+  public boolean contains(Ref ref) {
+    return this.generations.get(ref.slab()) == ref.generation();
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * @return off-heap bytes reserved by the store
+   */
+  public long capacityBytes() {
+    return (long) this.slabSize * this.slabs.length;
+  }
+
+  /**
+   * @return number of times a slab was overwritten, dropping the records it held
+   */
+  public long evictedSlabs() {
+    return this.evictedSlabs.sum();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%-22s off-heap=%,d KiB slabs=%d evicted=%d",
+            this.name, capacityBytes() / 1024, this.slabs.length, evictedSlabs());
+  }
+
+  /**
+   * Location of a record: slab index and generation, offset and length inside the slab.
+   */
+  public record Ref(int slab, int generation, int offset, int length) { }
+}
@@ -0,0 +1,122 @@
+package amalitech.blog.utils;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * When each phase of the application start ran, relative to the start of the process.
+ * Phases may overlap: the timeline shows which one the start waited for.
+ * <p>
+ * The first phase, {@code launch}, is the time the JVM (and JavaFX) took before the timeline was
+ * created. Milestones such as "interactive" are phases of zero duration.
+ * </p>
+ */
+public class StartupTimeline {
+
+  /**
+   * @param name           what ran
+   * @param startMillis    when it started, since the start of the process
+   * @param durationMillis how long it took
+   * @param thread         the thread it ran on
+   * @param failed         whether it threw
+   */
+  public record Phase(String name, long startMillis, long durationMillis, String thread, boolean failed) {
+
+    public long endMillis() {
+      return this.startMillis + this.durationMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-22s start = %5d ms | duration = %5d ms | end = %5d ms | %s%s",
+              name, startMillis, durationMillis, endMillis(), thread, failed ? " | FAILED" : "");
+    }
+  }
+
+  private final long originNanos;
+  private final ConcurrentLinkedQueue<Phase> phases = new ConcurrentLinkedQueue<>();
+
+  public StartupTimeline() {
+    long now = System.nanoTime();
+    long launchNanos = ProcessHandle.current().info().startInstant()
+            .map(started -> Duration.between(started, Instant.now()).toNanos())
+            .filter(nanos -> nanos > 0)
+            .orElse(0L);
+    this.originNanos = now - launchNanos;
+    this.phases.add(new Phase("launch", 0, millis(launchNanos), Thread.currentThread().getName(), false));
+  }
+
+  /**
+   * Runs a phase on the calling thread.
+   */
+  public <T> T record(String name, Supplier<T> phase) {
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      T result = phase.get();
+      failed = false;
+      return result;
+    } finally {
+      add(name, start, failed);
+    }
+  }
+
+  /**
+   * Records a phase started elsewhere, from now until the future completes.
+   *
+   * @return {@code future}
+   */
+  public <T> CompletableFuture<T> track(String name, CompletableFuture<T> future) {
+    long start = System.nanoTime();
+    future.whenComplete((value, error) -> add(name, start, error != null));
+    return future;
+  }
+
+  /**
+   * Records a milestone, e.g. the first window shown.
+   */
+  public void mark(String name) {
+    add(name, System.nanoTime(), false);
+  }
+
+  /**
+   * @return the phases recorded so far, by start
+   */
+  public List<Phase> getPhases() {
+    List<Phase> sorted = new ArrayList<>(this.phases);
+    sorted.sort(Comparator.comparingLong(Phase::startMillis));
+    return sorted;
+  }
+
+  /**
+   * @return the end of the last phase, since the start of the process
+   */
+  public long getTotalMillis() {
+    return this.phases.stream().mapToLong(Phase::endMillis).max().orElse(0);
+  }
+
+  /**
+   * Logs every phase, one per line.
+   */
+  public void log(Logger log) {
+    getPhases().forEach(phase -> log.info("{}", phase));
+    log.info("Startup completed in {} ms", getTotalMillis());
+  }
+
+  private void add(String name, long startNanos, boolean failed) {
+    this.phases.add(new Phase(name, millis(startNanos - this.originNanos), millis(System.nanoTime() - startNanos),
+            Thread.currentThread().getName(), failed));
+  }
+
+  private static long millis(long nanos) {
+    return nanos / 1_000_000;
+  }
+}
@@ -3,10 +3,13 @@ module amalitech.blog {
   requires javafx.fxml;
   requires static lombok;
   requires java.sql;
+  requires org.postgresql.jdbc;
+  requires com.zaxxer.hikari;
   requires io.github.cdimascio.dotenv.java;
   requires org.slf4j;
   requires de.mkammerer.argon2.nolibs;
   requires com.sun.jna;
+  requires roaringbitmap;
 
 
   opens amalitech.blog to javafx.fxml;
@@ -0,0 +1,51 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dao.ChangeEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChangeEventTest {
+
+  @Test
+  void roundTripsEveryEntityAndAction() {
+    for (ChangeEvent.Entity entity : ChangeEvent.Entity.values()) {
+      for (ChangeEvent.Action action : ChangeEvent.Action.values()) {
+        ChangeEvent event = new ChangeEvent("3f2a91c0", entity, action, 42L, 9L, 7L);
+
+        assertEquals(event, ChangeEvent.parse(event.encode()));
+      }
+    }
+  }
+
+  @Test
+  void encodesMissingIdsAsEmptyFields() {
+    ChangeEvent event = new ChangeEvent("3f2a91c0", ChangeEvent.Entity.POST, ChangeEvent.Action.UPDATE, 42L, null, 7L);
+
+    assertEquals("3f2a91c0;P;U;42;;7", event.encode());
+    ChangeEvent parsed = ChangeEvent.parse(event.encode());
+    assertNull(parsed.postId());
+    assertEquals(7L, parsed.userId());
+  }
+
+  @Test
+  void roundTripsAnEventWithoutRelatedIds() {
+    ChangeEvent event = new ChangeEvent("3f2a91c0", ChangeEvent.Entity.TAG, ChangeEvent.Action.CREATE, 5L, null, null);
+
+    assertEquals(event, ChangeEvent.parse(event.encode()));
+  }
+
+  @Test
+  void rejectsMalformedPayloads() {
+    assertThrows(IllegalArgumentException.class, () -> ChangeEvent.parse(""));
+    assertThrows(IllegalArgumentException.class, () -> ChangeEvent.parse("3f2a91c0;P;U;42;"));
+    assertThrows(IllegalArgumentException.class, () -> ChangeEvent.parse("3f2a91c0;P;U;42;;7;1"));
+    assertThrows(IllegalArgumentException.class, () -> ChangeEvent.parse("3f2a91c0;Z;U;42;;7"));
+    assertThrows(IllegalArgumentException.class, () -> ChangeEvent.parse("3f2a91c0;P;Z;42;;7"));
+    assertThrows(IllegalArgumentException.class, () -> ChangeEvent.parse("3f2a91c0;PP;U;42;;7"));
+    assertThrows(IllegalArgumentException.class, () -> ChangeEvent.parse("3f2a91c0;P;U;;;7"));
+    assertThrows(IllegalArgumentException.class, () -> ChangeEvent.parse("3f2a91c0;P;U;42;x;7"));
+  }
+}
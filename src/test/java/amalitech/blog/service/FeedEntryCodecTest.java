@@ -0,0 +1,141 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dto.PostDTO;
+import amalitech.blog.model.Post;
+import amalitech.blog.model.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeedEntryCodecTest {
+
+  private final FeedEntryCodec codec = new FeedEntryCodec();
+
+  @Test
+  void roundTripsAnEntry() {
+    PostDTO dto = entry("Short body, kept whole");
+    dto.setCommentCount(3);
+    dto.setReviewCount(2);
+
+    PostDTO decoded = this.codec.decode(this.codec.encode(dto));
+
+    assertEquals(42L, decoded.getPost().getId());
+    assertEquals(7L, decoded.getAuthorId());
+    assertEquals("alice", decoded.getAuthorName());
+    assertEquals("Title", decoded.getPost().getTitle());
+    assertEquals("Short body, kept whole", decoded.getPost().getBody());
+    assertEquals(dto.getPost().getCreatedAt(), decoded.getPost().getCreatedAt());
+    assertEquals(dto.getPost().getUpdatedAt(), decoded.getPost().getUpdatedAt());
+    assertEquals(4, decoded.getWordCount());
+    assertEquals(3, decoded.getCommentCount());
+    assertEquals(2, decoded.getReviewCount());
+    assertEquals(1, decoded.getTags().size());
+    assertEquals(5L, decoded.getTags().get(0).getId());
+    assertEquals("java", decoded.getTags().get(0).getName());
+    assertFalse(decoded.isTruncated());
+    assertFalse(decoded.getPost().isDeleted());
+  }
+
+  @Test
+  void keepsTimestampsBeforeTheEpoch() {
+    PostDTO dto = entry("body");
+    dto.getPost().setCreatedAt(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 123_456_000));
+    dto.getPost().setUpdatedAt(dto.getPost().getCreatedAt());
+
+    PostDTO decoded = this.codec.decode(this.codec.encode(dto));
+
+    assertEquals(dto.getPost().getCreatedAt(), decoded.getPost().getCreatedAt());
+  }
+
+  @Test
+  void cutsLongBodiesAndKeepsTheFullWordCount() {
+    String body = "word ".repeat(100);
+    PostDTO decoded = this.codec.decode(this.codec.encode(entry(body)));
+
+    assertTrue(decoded.isTruncated());
+    assertEquals(FeedEntryCodec.EXCERPT_LENGTH, decoded.getPost().getBody().length());
+    assertEquals(body.substring(0, FeedEntryCodec.EXCERPT_LENGTH), decoded.getPost().getBody());
+    assertEquals(100, decoded.getWordCount());
+  }
+
+  @Test
+  void doesNotSplitASurrogatePairAtTheCut() {
+    // The emoji's high surrogate is the last character kept, its low surrogate the first one cut
+    String body = "a".repeat(FeedEntryCodec.EXCERPT_LENGTH - 1) + "😀" + " and more";
+    PostDTO decoded = this.codec.decode(this.codec.encode(entry(body)));
+
+    String excerpt = decoded.getPost().getBody();
+    assertTrue(decoded.isTruncated());
+    assertEquals(FeedEntryCodec.EXCERPT_LENGTH - 1, excerpt.length());
+    assertFalse(Character.isHighSurrogate(excerpt.charAt(excerpt.length() - 1)));
+  }
+
+  @Test
+  void keepsTheTruncatedFlagOfAnExcerpt() {
+    PostDTO dto = entry("Already an excerpt");
+    dto.setTruncated(true);
+
+    assertTrue(this.codec.decode(this.codec.encode(dto)).isTruncated());
+  }
+
+  @Test
+  void writesNamesInlineOnceTheDictionariesAreFull() {
+    for (long id = 1_000; id < 1_000 + FeedEntryCodec.MAX_NAMES; id++) {
+      this.codec.registerAuthorName(id, "author " + id);
+      this.codec.registerTagName(id, "tag " + id);
+    }
+
+    PostDTO decoded = this.codec.decode(this.codec.encode(entry("body")));
+
+    assertEquals("alice", decoded.getAuthorName());
+    assertEquals("java", decoded.getTags().get(0).getName());
+    assertTrue(this.codec.stats().contains(FeedEntryCodec.MAX_NAMES + " authors, " + FeedEntryCodec.MAX_NAMES + " tags"));
+  }
+
+  @Test
+  void keepsUpdatingNamesTheDictionariesAlreadyHold() {
+    byte[] original = this.codec.encode(entry("body"));
+    for (long id = 1_000; id < 1_000 + FeedEntryCodec.MAX_NAMES; id++) {
+      this.codec.registerAuthorName(id, "author " + id);
+    }
+
+    PostDTO renamed = entry("body");
+    renamed.setAuthorName("alice b.");
+    this.codec.encode(renamed);
+
+    assertEquals("alice b.", this.codec.decode(original).getAuthorName());
+  }
+
+  @Test
+  void countsWordsByWhitespace() {
+    assertEquals(0, FeedEntryCodec.countWords(""));
+    assertEquals(0, FeedEntryCodec.countWords("  \n\t "));
+    assertEquals(3, FeedEntryCodec.countWords("  one two\n\tthree "));
+  }
+
+  private static PostDTO entry(String body) {
+    Post post = new Post();
+    post.setId(42L);
+    post.setAuthorId(7L);
+    post.setTitle("Title");
+    post.setBody(body);
+    post.setCreatedAt(LocalDateTime.of(2024, 5, 1, 10, 30, 15, 250_000_000));
+    post.setUpdatedAt(LocalDateTime.of(2024, 5, 2, 8, 0));
+
+    Tag tag = new Tag();
+    tag.setId(5L);
+    tag.setName("java");
+
+    PostDTO dto = new PostDTO();
+    dto.setPost(post);
+    dto.setAuthorId(7L);
+    dto.setAuthorName("alice");
+    dto.setTags(List.of(tag));
+    return dto;
+  }
+}
@@ -0,0 +1,102 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dao.PostDAO;
+import amalitech.blog.dto.PostDTO;
+import amalitech.blog.model.Post;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FeedSnapshotTest {
+
+  private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+  private final List<PostDTO> rows = new ArrayList<>();
+  private final FeedSnapshot snapshot = new FeedSnapshot(new PostDAO() {
+    @Override
+    public List<PostDTO> getFeedEntries(int offset, int limit) {
+      return rows.stream().skip(offset).limit(limit).toList();
+    }
+  }, new CompactFeedStore("test", 64 * 1024, 4), 10, Duration.ofMinutes(2), Duration.ofMinutes(10));
+
+  @Test
+  void appliesANewerEntry() {
+    this.rows.add(entry(1, "first", 0));
+    titles();
+
+    this.snapshot.apply(1, entry(1, "edited", 5));
+
+    assertEquals(List.of("edited"), titles());
+  }
+
+  @Test
+  void ignoresAnOlderEntryAppliedLast() {
+    this.rows.add(entry(1, "first", 0));
+    titles();
+
+    // Two reloads of the post finishing out of order
+    this.snapshot.apply(1, entry(1, "second edit", 10));
+    this.snapshot.apply(1, entry(1, "first edit", 5));
+
+    assertEquals(List.of("second edit"), titles());
+  }
+
+  @Test
+  void appliesAnEntryUpdatedAtTheSameTime() {
+    this.rows.add(entry(1, "first", 0));
+    titles();
+
+    // e.g. its comment count changed, the post itself did not
+    PostDTO recounted = entry(1, "first", 0);
+    recounted.setCommentCount(3);
+    this.snapshot.apply(1, recounted);
+
+    assertEquals(3, this.snapshot.page(1, 10).get(0).getCommentCount());
+  }
+
+  @Test
+  void doesNotBringBackARemovedPost() {
+    this.rows.add(entry(2, "kept", 0));
+    this.rows.add(entry(1, "deleted", 0));
+    titles();
+
+    this.snapshot.remove(1);
+    // Read before the post was deleted
+    this.snapshot.apply(1, entry(1, "deleted", 0));
+
+    assertEquals(List.of("kept"), titles());
+  }
+
+  @Test
+  void insertsANewPostInFeedOrder() {
+    this.rows.add(entry(2, "second", 0));
+    this.rows.add(entry(1, "first", 0));
+    titles();
+
+    this.snapshot.apply(3, entry(3, "third", 0));
+
+    assertEquals(List.of("third", "second", "first"), titles());
+  }
+
+  private List<String> titles() {
+    return this.snapshot.page(1, 10).stream().map(dto -> dto.getPost().getTitle()).toList();
+  }
+
+  // Posts are created a minute apart, in ID order
+  private static PostDTO entry(long id, String title, int updatedAfterMinutes) {
+    Post post = new Post();
+    post.setId(id);
+    post.setTitle(title);
+    post.setBody("body");
+    post.setCreatedAt(CREATED.plusMinutes(id));
+    post.setUpdatedAt(CREATED.plusMinutes(id + updatedAfterMinutes));
+    PostDTO dto = new PostDTO();
+    dto.setPost(post);
+    return dto;
+  }
+}
@@ -0,0 +1,58 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dto.RatingSummaryDTO;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RatingSummaryTest {
+
+  @Test
+  void averagesTheRatesWeightedByTheirCounts() {
+    // 1 one-star, 2 three-star, 1 five-star: (1 + 6 + 5) / 4
+    RatingSummaryDTO summary = RatingSummaryDTO.fromHistogram(42L, new int[]{1, 0, 2, 0, 1});
+
+    assertEquals(42L, summary.getPostId());
+    assertEquals(4, summary.getCount());
+    assertEquals(3.0, summary.getAverage(), 1e-9);
+    assertArrayEquals(new int[]{1, 0, 2, 0, 1}, summary.getHistogram());
+  }
+
+  @Test
+  void keepsFractionalAverages() {
+    RatingSummaryDTO summary = RatingSummaryDTO.fromHistogram(1L, new int[]{0, 0, 0, 1, 2});
+
+    assertEquals(3, summary.getCount());
+    assertEquals(14.0 / 3, summary.getAverage(), 1e-9);
+  }
+
+  @Test
+  void singleRateAveragesToItself() {
+    for (int rate = 1; rate <= 5; rate++) {
+      int[] histogram = new int[5];
+      histogram[rate - 1] = 7;
+
+      RatingSummaryDTO summary = RatingSummaryDTO.fromHistogram(1L, histogram);
+
+      assertEquals(7, summary.getCount());
+      assertEquals(rate, summary.getAverage(), 1e-9);
+    }
+  }
+
+  @Test
+  void noReviewsAverageToZero() {
+    RatingSummaryDTO summary = RatingSummaryDTO.fromHistogram(1L, new int[5]);
+
+    assertEquals(0, summary.getCount());
+    assertEquals(0.0, summary.getAverage());
+  }
+
+  @Test
+  void largeCountsDoNotOverflowTheTotal() {
+    int many = Integer.MAX_VALUE / 5;
+    RatingSummaryDTO summary = RatingSummaryDTO.fromHistogram(1L, new int[]{0, 0, 0, 0, many});
+
+    assertEquals(5.0, summary.getAverage(), 1e-9);
+  }
+}
@@ -0,0 +1,129 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dao.PostDAO;
+import amalitech.blog.dao.PostTagsDAO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+
+import static amalitech.blog.service.TagFilter.and;
+import static amalitech.blog.service.TagFilter.not;
+import static amalitech.blog.service.TagFilter.tag;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TagBitmapIndexTest {
+
+  private static final long JAVA = 100;
+  private static final long SQL = 200;
+  private static final long RARE = 300;
+
+  // Posts 1 to 10 are live, post 11 is soft-deleted
+  private final List<Long> liveIds = new ArrayList<>(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L));
+  private final List<long[]> associations = new ArrayList<>();
+
+  private final TagBitmapIndex index = new TagBitmapIndex(new PostTagsDAO() {
+    @Override
+    public void forEachAssociation(BiConsumer<Long, Long> consumer) {
+      associations.forEach(row -> consumer.accept(row[0], row[1]));
+    }
+  }, new PostDAO() {
+    @Override
+    public void forEachLiveId(LongConsumer consumer) {
+      liveIds.forEach(consumer::accept);
+    }
+  });
+
+  TagBitmapIndexTest() {
+    // JAVA on even posts, SQL on multiples of 3, RARE on posts 5 and 11
+    for (long postId = 1; postId <= 11; postId++) {
+      if (postId % 2 == 0)
+        this.associations.add(new long[]{postId, JAVA});
+      if (postId % 3 == 0)
+        this.associations.add(new long[]{postId, SQL});
+    }
+    this.associations.add(new long[]{5, RARE});
+    this.associations.add(new long[]{11, RARE});
+  }
+
+  @Test
+  void returnsPostsWithATagMostRecentFirst() {
+    assertEquals(List.of(10L, 8L, 6L, 4L, 2L), all(tag(JAVA)));
+  }
+
+  @Test
+  void intersectsTagsForAnd() {
+    assertEquals(List.of(6L), all(TagFilter.allOf(List.of(JAVA, SQL))));
+  }
+
+  @Test
+  void unitesTagsForOr() {
+    assertEquals(List.of(10L, 9L, 8L, 6L, 4L, 3L, 2L), all(TagFilter.anyOf(List.of(JAVA, SQL))));
+  }
+
+  @Test
+  void complementsTagsForNot() {
+    assertEquals(List.of(9L, 7L, 5L, 3L, 1L), all(not(tag(JAVA))));
+  }
+
+  @Test
+  void combinesOperators() {
+    TagFilter filter = and(TagFilter.anyOf(List.of(JAVA, RARE)), not(tag(SQL)));
+
+    assertEquals(List.of(10L, 8L, 5L, 4L, 2L), all(filter));
+    assertEquals(5, this.index.count(filter));
+  }
+
+  @Test
+  void emptyOperandsMatchEverythingOrNothing() {
+    assertEquals(10, this.index.count(and()));
+    assertEquals(0, this.index.count(TagFilter.or()));
+  }
+
+  @Test
+  void skipsDeletedPosts() {
+    assertEquals(List.of(5L), all(tag(RARE)));
+    assertEquals(1, this.index.count(tag(RARE)));
+  }
+
+  @Test
+  void pagesInRecencyOrder() {
+    TagFilter filter = TagFilter.anyOf(List.of(JAVA, SQL));
+
+    assertEquals(List.of(10L, 9L, 8L), this.index.candidates(filter, 0, 3));
+    assertEquals(List.of(6L, 4L, 3L), this.index.candidates(filter, 3, 3));
+    assertEquals(List.of(2L), this.index.candidates(filter, 6, 3));
+    assertEquals(List.of(), this.index.candidates(filter, 7, 3));
+    assertEquals(7, this.index.count(filter));
+  }
+
+  @Test
+  void appliesChangesAfterTheBuild() {
+    all(tag(JAVA));
+
+    this.index.addPost(12);
+    this.index.addTag(12, JAVA);
+    this.index.removePost(10);
+    this.index.removeTags(8, List.of(JAVA, SQL));
+
+    assertEquals(List.of(12L, 6L, 4L, 2L), all(tag(JAVA)));
+  }
+
+  @Test
+  void reloadReadsTheDatabaseAgain() {
+    all(tag(JAVA));
+    // Missed while the index was not notified
+    this.liveIds.add(12L);
+    this.associations.add(new long[]{12, JAVA});
+
+    this.index.reload();
+
+    assertEquals(List.of(12L, 10L, 8L, 6L, 4L, 2L), all(tag(JAVA)));
+  }
+
+  private List<Long> all(TagFilter filter) {
+    return this.index.candidates(filter, 0, 100);
+  }
+}
@@ -0,0 +1,95 @@
+package amalitech.blog.service;
+
+import amalitech.blog.dao.TagDAO;
+import amalitech.blog.dto.TagUsageDTO;
+import amalitech.blog.model.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TagSuggestionIndexTest {
+
+  private final List<TagUsageDTO> usages = new ArrayList<>(List.of(
+          usage(1, "Java", 5),
+          usage(2, "javascript", 12),
+          usage(3, "jvm", 3),
+          usage(4, "javafx", 8),
+          usage(5, "kotlin", 20)));
+
+  private final TagPopularityIndex popularity = new TagPopularityIndex(new TagDAO() {
+    @Override
+    public List<TagUsageDTO> getAllWithUsage() {
+      return usages;
+    }
+  });
+  private final TagSuggestionIndex index = new TagSuggestionIndex(this.popularity);
+
+  @Test
+  void ranksPrefixMatchesByUsage() {
+    this.index.ensureLoaded();
+
+    assertEquals(List.of("javascript", "javafx", "Java", "jvm"), this.index.suggest("j", 10));
+    assertEquals(List.of("javascript", "javafx", "Java"), this.index.suggest("jav", 10));
+  }
+
+  @Test
+  void keepsOnlyTheMostUsedUpToTheLimit() {
+    this.index.ensureLoaded();
+
+    assertEquals(List.of("javascript", "javafx"), this.index.suggest("ja", 2));
+  }
+
+  @Test
+  void ignoresCaseAndSurroundingSpaces() {
+    this.index.ensureLoaded();
+
+    assertEquals(List.of("javascript", "javafx", "Java"), this.index.suggest(" JAVA", 10));
+    assertEquals(List.of("kotlin"), this.index.suggest("Kot", 10));
+  }
+
+  @Test
+  void followsUsageChanges() {
+    this.index.ensureLoaded();
+
+    this.popularity.adjust(3L, 10);
+
+    assertEquals(List.of("jvm", "javascript", "javafx", "Java"), this.index.suggest("j", 10));
+  }
+
+  @Test
+  void suggestsNewTags() {
+    this.index.ensureLoaded();
+    Tag created = new Tag();
+    created.setId(6L);
+    created.setName("jakarta");
+    this.popularity.add(created);
+
+    this.index.add(created);
+
+    assertEquals(List.of("jakarta"), this.index.suggest("jak", 10));
+  }
+
+  @Test
+  void suggestsNothingForBlankPrefixesOrBeforeLoading() {
+    assertFalse(this.index.isLoaded());
+    assertEquals(List.of(), this.index.suggest("j", 10));
+
+    this.index.ensureLoaded();
+
+    assertEquals(List.of(), this.index.suggest("  ", 10));
+    assertEquals(List.of(), this.index.suggest("x", 10));
+    assertEquals(List.of(), this.index.suggest("j", 0));
+  }
+
+  private static TagUsageDTO usage(long id, String name, int postCount) {
+    TagUsageDTO usage = new TagUsageDTO();
+    usage.setId(id);
+    usage.setName(name);
+    usage.setPostCount(postCount);
+    return usage;
+  }
+}
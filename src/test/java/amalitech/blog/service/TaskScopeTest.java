@@ -0,0 +1,169 @@
+package amalitech.blog.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskScopeTest {
+
+  private final ServiceExecutor executor = new ServiceExecutor(4);
+
+  @Test
+  void joinWaitsForEveryPart() {
+    try (TaskScope scope = new TaskScope(this.executor)) {
+      Supplier<String> first = scope.fork(() -> sleepThen(50, "first"));
+      Supplier<Integer> second = scope.fork(() -> 2);
+      scope.join();
+
+      assertEquals("first", first.get());
+      assertEquals(2, second.get());
+    }
+  }
+
+  @Test
+  void resultsCannotBeReadBeforeJoin() {
+    try (TaskScope scope = new TaskScope(this.executor)) {
+      Supplier<String> part = scope.fork(() -> sleepThen(1_000, "late"));
+
+      assertThrows(IllegalStateException.class, part::get);
+    }
+  }
+
+  @Test
+  void joinRethrowsTheFirstFailure() {
+    IllegalStateException failure = new IllegalStateException("boom");
+    try (TaskScope scope = new TaskScope(this.executor)) {
+      scope.fork(() -> sleepThen(20, "ok"));
+      scope.fork(() -> {
+        throw failure;
+      });
+
+      assertSame(failure, assertThrows(IllegalStateException.class, scope::join));
+    }
+  }
+
+  @Test
+  void errorsAreRethrownAsIs() {
+    try (TaskScope scope = new TaskScope(this.executor)) {
+      scope.fork(() -> {
+        throw new AssertionError("broken");
+      });
+
+      assertThrows(AssertionError.class, scope::join);
+    }
+  }
+
+  @Test
+  void aFailureCancelsTheOtherParts() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    try (TaskScope scope = new TaskScope(this.executor)) {
+      Supplier<String> slow = scope.fork(() -> {
+        started.countDown();
+        try {
+          Thread.sleep(10_000);
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+        }
+        return "slow";
+      });
+      scope.fork(() -> {
+        awaitQuietly(started);
+        throw new IllegalArgumentException("fails fast");
+      });
+
+      assertTimeoutPreemptively(Duration.ofSeconds(5),
+              () -> assertThrows(IllegalArgumentException.class, scope::join));
+      assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+      assertThrows(IllegalStateException.class, slow::get);
+    }
+  }
+
+  @Test
+  void partsAfterAFailureDoNotRun() {
+    AtomicBoolean ran = new AtomicBoolean();
+    try (TaskScope scope = new TaskScope(this.executor)) {
+      scope.fork(() -> {
+        throw new IllegalStateException("boom");
+      });
+      assertThrows(IllegalStateException.class, scope::join);
+
+      scope.fork(() -> ran.getAndSet(true));
+      assertThrows(IllegalStateException.class, scope::join);
+    }
+    assertFalse(ran.get());
+  }
+
+  @Test
+  void partsShareTheExecutorBudget() {
+    ServiceExecutor single = new ServiceExecutor(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    try (TaskScope scope = new TaskScope(single)) {
+      for (int i = 0; i < 4; i++) {
+        scope.fork(() -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          sleepThen(20, null);
+          return running.decrementAndGet();
+        });
+      }
+      scope.join();
+    }
+    assertEquals(1, maxRunning.get());
+  }
+
+  @Test
+  void anInterruptedJoinCancelsTheParts() {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    try (TaskScope scope = new TaskScope(this.executor)) {
+      scope.fork(() -> {
+        started.countDown();
+        try {
+          Thread.sleep(10_000);
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+        }
+        return null;
+      });
+
+      assertTrue(awaitQuietly(started));
+      Thread.currentThread().interrupt();
+      assertThrows(CancellationException.class, scope::join);
+      assertTrue(Thread.interrupted());
+    }
+    assertTrue(awaitQuietly(interrupted));
+  }
+
+  private static <T> T sleepThen(long millis, T value) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted");
+    }
+    return value;
+  }
+
+  private static boolean awaitQuietly(CountDownLatch latch) {
+    try {
+      return latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
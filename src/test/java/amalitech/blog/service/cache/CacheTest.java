@@ -0,0 +1,161 @@
+package amalitech.blog.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheTest {
+
+  @Test
+  void loadsOnceAndServesFromMemory() {
+    Cache<String, String> cache = Cache.<String, String>builder("test").maximumSize(10).build();
+    AtomicInteger loads = new AtomicInteger();
+
+    assertEquals("a1", cache.get("a", key -> key + loads.incrementAndGet()));
+    assertEquals("a1", cache.get("a", key -> key + loads.incrementAndGet()));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void nullValuesAreNotCached() {
+    Cache<String, String> cache = Cache.<String, String>builder("test").maximumSize(10).build();
+
+    assertNull(cache.get("a", key -> null));
+    assertNull(cache.getIfPresent("a"));
+  }
+
+  @Test
+  void entriesExpireAfterWrite() throws InterruptedException {
+    Cache<String, String> cache = Cache.<String, String>builder("test")
+            .maximumSize(10)
+            .expireAfterWrite(Duration.ofMillis(50))
+            .build();
+    cache.put("a", "old");
+
+    assertEquals("old", cache.getIfPresent("a"));
+    Thread.sleep(80);
+    assertNull(cache.getIfPresent("a"));
+    assertEquals("new", cache.get("a", key -> "new"));
+  }
+
+  @Test
+  void staleEntriesAreServedWhileRefreshedInTheBackground() throws Exception {
+    Cache<String, String> cache = Cache.<String, String>builder("test")
+            .maximumSize(10)
+            .refreshAfterWrite(Duration.ofMillis(30))
+            .build();
+    cache.put("a", "old");
+    Thread.sleep(50);
+
+    CompletableFuture<String> refreshed = new CompletableFuture<>();
+    assertEquals("old", cache.get("a", key -> "new", refreshed::complete));
+    assertEquals("new", refreshed.get(5, TimeUnit.SECONDS));
+    assertEquals("new", cache.getIfPresent("a"));
+  }
+
+  @Test
+  void loadInFlightIsNotCachedWhenItsKeyIsInvalidated() throws Exception {
+    Cache<String, String> cache = Cache.<String, String>builder("test").maximumSize(10).build();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<String> load = CompletableFuture.supplyAsync(() -> cache.get("a", key -> {
+      loading.countDown();
+      await(release);
+      return "before write";
+    }));
+    assertTrue(loading.await(5, TimeUnit.SECONDS));
+    cache.invalidate("a");
+    release.countDown();
+
+    assertEquals("before write", load.get(5, TimeUnit.SECONDS));
+    assertNull(cache.getIfPresent("a"));
+    assertEquals("after write", cache.get("a", key -> "after write"));
+  }
+
+  @Test
+  void invalidatingAnotherKeyDoesNotDropALoadInFlight() throws Exception {
+    // One segment: both keys share it
+    Cache<String, String> cache = Cache.<String, String>builder("test").maximumSize(10).concurrencyLevel(1).build();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<String> load = CompletableFuture.supplyAsync(() -> cache.get("a", key -> {
+      loading.countDown();
+      await(release);
+      return "value";
+    }));
+    assertTrue(loading.await(5, TimeUnit.SECONDS));
+    cache.invalidate("b");
+    release.countDown();
+
+    assertEquals("value", load.get(5, TimeUnit.SECONDS));
+    assertEquals("value", cache.getIfPresent("a"));
+  }
+
+  @Test
+  void invalidateIfDropsMatchingLoadsInFlight() throws Exception {
+    Cache<String, String> cache = Cache.<String, String>builder("test").maximumSize(10).concurrencyLevel(1).build();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<String> load = CompletableFuture.supplyAsync(() -> cache.get("feed~1", key -> {
+      loading.countDown();
+      await(release);
+      return "page";
+    }));
+    assertTrue(loading.await(5, TimeUnit.SECONDS));
+    cache.invalidateIf(key -> key.startsWith("feed~"));
+    release.countDown();
+
+    assertEquals("page", load.get(5, TimeUnit.SECONDS));
+    assertNull(cache.getIfPresent("feed~1"));
+  }
+
+  @Test
+  void concurrentMissesShareOneLoad() throws Exception {
+    Cache<String, String> cache = Cache.<String, String>builder("test").maximumSize(10).build();
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<?>[] readers = new CompletableFuture<?>[4];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = CompletableFuture.supplyAsync(() -> cache.get("a", key -> {
+        loads.incrementAndGet();
+        await(release);
+        return "value";
+      }));
+    }
+    Thread.sleep(100);
+    release.countDown();
+    CompletableFuture.allOf(readers).get(5, TimeUnit.SECONDS);
+
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void evictsBeyondTheBound() {
+    Cache<Integer, Integer> cache = Cache.<Integer, Integer>builder("test").maximumSize(4).concurrencyLevel(1).build();
+    for (int i = 0; i < 10; i++)
+      cache.put(i, i);
+
+    assertEquals(4, cache.size());
+    assertEquals(6, cache.stats().evictionCount());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
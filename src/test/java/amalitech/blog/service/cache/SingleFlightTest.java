@@ -0,0 +1,156 @@
+package amalitech.blog.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+  private static final int CALLERS = 8;
+
+  private final SingleFlight<String, String> flight = new SingleFlight<>();
+
+  @Test
+  void concurrentCallsForAKeyRunTheLoaderOnce() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    try (ExecutorService threads = Executors.newFixedThreadPool(CALLERS)) {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < CALLERS; i++) {
+        results.add(threads.submit(() -> this.flight.execute("key", key -> {
+          loads.incrementAndGet();
+          awaitQuietly(release);
+          return "value";
+        })));
+      }
+      // Every other caller has joined the one running the loader
+      waitUntil(() -> this.flight.coalescedCount() == CALLERS - 1);
+      release.countDown();
+
+      for (Future<String> result : results) {
+        assertEquals("value", result.get(5, TimeUnit.SECONDS));
+      }
+    }
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void failuresReachEveryWaitingCaller() throws Exception {
+    IllegalStateException failure = new IllegalStateException("boom");
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    try (ExecutorService threads = Executors.newFixedThreadPool(2)) {
+      Future<String> first = threads.submit(() -> this.flight.execute("key", key -> {
+        started.countDown();
+        awaitQuietly(release);
+        throw failure;
+      }));
+      awaitQuietly(started);
+      Future<String> second = threads.submit(() -> this.flight.execute("key", key -> "not run"));
+      waitUntil(() -> this.flight.coalescedCount() == 1);
+      release.countDown();
+
+      assertSame(failure, causeOf(first));
+      assertSame(failure, causeOf(second));
+    }
+  }
+
+  @Test
+  void theNextCallRunsTheLoaderAgain() {
+    AtomicInteger loads = new AtomicInteger();
+
+    this.flight.execute("key", key -> "first " + loads.incrementAndGet());
+    String second = this.flight.execute("key", key -> "second " + loads.incrementAndGet());
+
+    assertEquals("second 2", second);
+    assertEquals(0, this.flight.coalescedCount());
+  }
+
+  @Test
+  void aFailedCallIsNotRemembered() {
+    assertThrows(IllegalStateException.class, () -> this.flight.execute("key", key -> {
+      throw new IllegalStateException("boom");
+    }));
+
+    assertEquals("recovered", this.flight.execute("key", key -> "recovered"));
+  }
+
+  @Test
+  void differentKeysDoNotWaitForEachOther() {
+    CountDownLatch release = new CountDownLatch(1);
+    try (ExecutorService threads = Executors.newSingleThreadExecutor()) {
+      CompletableFuture<String> slow = this.flight.executeAsync("slow", key -> {
+        awaitQuietly(release);
+        return "slow";
+      }, threads);
+
+      assertEquals("fast", this.flight.execute("fast", key -> "fast"));
+      assertFalse(slow.isDone());
+      release.countDown();
+      assertEquals("slow", slow.join());
+    }
+  }
+
+  @Test
+  void asyncCallsShareTheFutureAndItsFailure() {
+    IllegalArgumentException failure = new IllegalArgumentException("bad");
+    CountDownLatch release = new CountDownLatch(1);
+    try (ExecutorService threads = Executors.newSingleThreadExecutor()) {
+      CompletableFuture<String> first = this.flight.executeAsync("key", key -> {
+        awaitQuietly(release);
+        throw failure;
+      }, threads);
+      CompletableFuture<String> second = this.flight.executeAsync("key", key -> "not run", threads);
+      release.countDown();
+
+      assertSame(first, second);
+      assertSame(failure, assertThrows(CompletionException.class, second::join).getCause());
+      assertEquals(1, this.flight.coalescedCount());
+    }
+  }
+
+  private static Throwable causeOf(Future<String> result) throws InterruptedException {
+    try {
+      result.get(5, TimeUnit.SECONDS);
+      throw new AssertionError("Expected a failure");
+    } catch (ExecutionException e) {
+      return e.getCause();
+    } catch (TimeoutException e) {
+      throw new AssertionError("Timed out", e);
+    }
+  }
+
+  private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline)
+        throw new AssertionError("Condition not met within 5 seconds");
+      Thread.sleep(5);
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
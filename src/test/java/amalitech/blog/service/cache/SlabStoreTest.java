@@ -0,0 +1,74 @@
+package amalitech.blog.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlabStoreTest {
+
+  @Test
+  void readsBackWhatWasStored() {
+    SlabStore store = new SlabStore("test", 16, 2);
+    byte[] first = bytes("hello");
+    byte[] second = bytes("world!");
+
+    SlabStore.Ref firstRef = store.put(first, first.length);
+    SlabStore.Ref secondRef = store.put(second, second.length);
+
+    assertArrayEquals(first, store.get(firstRef));
+    assertArrayEquals(second, store.get(secondRef));
+    assertEquals(0, store.evictedSlabs());
+  }
+
+  @Test
+  void storesOnlyTheGivenLength() {
+    SlabStore store = new SlabStore("test", 16, 1);
+
+    SlabStore.Ref ref = store.put(bytes("abcdef"), 3);
+
+    assertArrayEquals(bytes("abc"), store.get(ref));
+  }
+
+  @Test
+  void refusesRecordsLargerThanASlab() {
+    SlabStore store = new SlabStore("test", 4, 2);
+
+    assertNull(store.put(bytes("too long"), 8));
+    assertNotNull(store.put(bytes("fits"), 4));
+  }
+
+  @Test
+  void refsToAReusedSlabAreInvalidated() {
+    SlabStore store = new SlabStore("test", 8, 2);
+    SlabStore.Ref old = store.put(bytes("oldest!!"), 8);
+    // Fills the second slab, then wraps around and overwrites the first one
+    SlabStore.Ref middle = store.put(bytes("middle!!"), 8);
+    SlabStore.Ref fresh = store.put(bytes("newest!!"), 8);
+
+    assertEquals(old.slab(), fresh.slab());
+    assertFalse(store.contains(old));
+    assertNull(store.get(old));
+    assertTrue(store.contains(middle));
+    assertArrayEquals(bytes("middle!!"), store.get(middle));
+    assertArrayEquals(bytes("newest!!"), store.get(fresh));
+    assertEquals(2, store.evictedSlabs());
+  }
+
+  @Test
+  void rejectsAnEmptyBudget() {
+    assertThrows(IllegalArgumentException.class, () -> new SlabStore("test", 0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new SlabStore("test", 8, 0));
+  }
+
+  private static byte[] bytes(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+}